@@ -161,6 +161,31 @@ public class ArrayElementBinding extends VariableBinding {
    }
 
 
+   /**
+    * When the list fires a change event that describes the range that changed, skip the event if it does not move or replace our
+    * element.  For example, appending to a list does not change any existing list[i] bindings.
+    */
+   private boolean isUnaffectedListChange(Object srcObject, Object srcProp, Object eventDetail) {
+      if (srcProp != null || !(eventDetail instanceof ListChange) || !valid || !direction.doForward() ||
+              lastDim.length != 1 || boundValues == null || boundValues.length == 0)
+         return false;
+      if (srcObject != boundValues[boundValues.length - 1])
+         return false;
+      return !((ListChange) eventDetail).affectsIndex(lastDim[0]);
+   }
+
+   public boolean valueInvalidated(Object srcObject, Object srcProp, Object eventDetail, boolean apply) {
+      if (isUnaffectedListChange(srcObject, srcProp, eventDetail))
+         return false;
+      return super.valueInvalidated(srcObject, srcProp, eventDetail, apply);
+   }
+
+   public boolean valueValidated(Object srcObject, Object srcProp, Object eventDetail, boolean apply) {
+      if (isUnaffectedListChange(srcObject, srcProp, eventDetail))
+         return false;
+      return super.valueValidated(srcObject, srcProp, eventDetail, apply);
+   }
+
    /** For the array element changed case, only trigger a firing if the array element matches.  Optimizing 1D only now */
    public boolean arrayElementInvalidated(Object srcObject, Object srcProp, Object dims, boolean apply) {
       int last = boundProps.length - 1;
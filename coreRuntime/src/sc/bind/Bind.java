@@ -71,7 +71,11 @@ public class Bind {
 
    static class BindingListenerEntry {
       int numProps = 0;
-      BindingListener[] bindingListeners;
+      /**
+       * Read without locking by sendEvent.  Updates are made holding the registry lock for the object and end with a write of
+       * this field, so a reader that sees the array also sees the listener lists stored in it.
+       */
+      volatile BindingListener[] bindingListeners;
 
       public String toString() {
          return arrayToString(bindingListeners);
@@ -87,6 +91,26 @@ public class Bind {
    /** Stores a linked list of binding listeners for a given object.  The BindingListenerEntry has the array of listeners which is indexed by the property position */
    public final static Map<Object,BindingListenerEntry> bindingListenerRegistry = PTypeUtil.getWeakIdentityHashMap();
 
+   /**
+    * Both registries are safe for concurrent reads (in the full runtime), so lookups do not lock.  Changes to the entry for a given object
+    * are made holding one of these locks, selected by the object's identity hash so that threads working on different objects rarely
+    * contend.  Must be a power of 2.
+    */
+   private final static int NUM_REGISTRY_LOCKS = 64;
+   private final static Object[] registryLocks = initRegistryLocks();
+
+   private static Object[] initRegistryLocks() {
+      Object[] locks = new Object[NUM_REGISTRY_LOCKS];
+      for (int i = 0; i < NUM_REGISTRY_LOCKS; i++)
+         locks[i] = new Object();
+      return locks;
+   }
+
+   /** Returns the lock that guards changes to the bindingListenerRegistry and bindingContainerRegistry entries for obj */
+   static Object getRegistryLock(Object obj) {
+      return registryLocks[System.identityHashCode(obj) & (NUM_REGISTRY_LOCKS - 1)];
+   }
+
    public static boolean trace = false;
    public static boolean traceAll = false;
    public static boolean info = true;
@@ -284,11 +308,9 @@ public class Bind {
          }
       }
       else {
-         synchronized (bindingContainerRegistry) {
-            bindings = bindingContainerRegistry.get(dstObj);
-            if (bindings == null) {
-               return 0;
-            }
+         bindings = bindingContainerRegistry.get(dstObj);
+         if (bindings == null) {
+            return 0;
          }
       }
       int sz = bindings.size();
@@ -318,7 +340,7 @@ public class Bind {
          oldBinding = bindToList(bindings, binding, dstObj);
       }
       else {
-         synchronized (bindingContainerRegistry) {
+         synchronized (getRegistryLock(dstObj)) {
             List<DestinationListener> bindings = bindingContainerRegistry.get(dstObj);
             if (bindings == null) {
                bindings = new ArrayList<DestinationListener>();
@@ -406,7 +428,7 @@ public class Bind {
          bc.setBindings(null);
       }
       else {
-         synchronized (bindingContainerRegistry) {
+         synchronized (getRegistryLock(dstObj)) {
             bindings = bindingContainerRegistry.remove(dstObj);
          }
       }
@@ -460,9 +482,7 @@ public class Bind {
          bindings = bc.getBindings();
       }
       else {
-         synchronized (bindingContainerRegistry) {
-            bindings = bindingContainerRegistry.get(dstObj);
-         }
+         bindings = bindingContainerRegistry.get(dstObj);
       }
       if (bindings != null) {
          for (int i = 0; i < bindings.size(); i++)
@@ -491,9 +511,7 @@ public class Bind {
          bindings = bc.getBindings();
       }
       else {
-         synchronized (bindingContainerRegistry) {
-            bindings = bindingContainerRegistry.get(dstObj);
-         }
+         bindings = bindingContainerRegistry.get(dstObj);
       }
       if (bindings != null) {
          for (int i = 0; i < bindings.size(); i++)
@@ -633,7 +651,7 @@ public class Bind {
 
             BindingListener n = new BindingListener(eventMask, listener, priority);
 
-            synchronized (bindingListenerRegistry) {
+            synchronized (getRegistryLock(obj)) {
                BindingListenerEntry ble = bindingListenerRegistry.get(obj);
                if (ble == null) {
                   ble = new BindingListenerEntry();
@@ -677,6 +695,8 @@ public class Bind {
                   n.next = prev.next;
                   prev.next = n;
                }
+               // Publish the change to threads reading the listeners without the lock
+               ble.bindingListeners = newListeners;
             }
             /*
             if (prop != null && (addListener = getChangeListener(obj, true)) != null) {
@@ -780,7 +800,7 @@ public class Bind {
             if (isStatic)
                obj = cl;
 
-            synchronized (bindingListenerRegistry) {
+            synchronized (getRegistryLock(obj)) {
                BindingListenerEntry ble = bindingListenerRegistry.get(obj);
                BindingListener [] oldListeners = ble == null ? null : ble.bindingListeners;
                if (oldListeners == null || propPos >= oldListeners.length) {
@@ -821,7 +841,7 @@ public class Bind {
    }
 
    private static void removeListenerFromList(Object cl, BindingListenerEntry ble, BindingListener[] oldListeners, int propPos, IListener listener, int eventMask, IBeanMapper prop) {
-      synchronized (bindingListenerRegistry) {
+      synchronized (getRegistryLock(cl)) {
          BindingListener b = oldListeners[propPos];
          BindingListener p = null;
          while (b != null && (b.listener != listener || b.eventMask != eventMask)) {
@@ -841,6 +861,8 @@ public class Bind {
             }
             else
                p.next = b.next;
+            if (ble != null)
+               ble.bindingListeners = oldListeners;
          }
       }
    }
@@ -852,35 +874,44 @@ public class Bind {
          return bobj.getBindingListeners();
       }
       else {
-         synchronized (bindingListenerRegistry) {
-            BindingListenerEntry ent = bindingListenerRegistry.get(obj);
-            return ent == null ? null : ent.bindingListeners;
-         }
+         // No lock here - this is on the event dispatch path
+         BindingListenerEntry ent = bindingListenerRegistry.get(obj);
+         return ent == null ? null : ent.bindingListeners;
       }
    }
 
    public static Object NO_VALUE_EVENT_DETAIL = new String("<noValueInEventSentinel>");
 
    public static void sendDynamicEvent(int event, Object obj, String propName) {
-      sendEvent(event, obj, DynUtil.getPropertyMapping(DynUtil.getType(obj), propName), NO_VALUE_EVENT_DETAIL);
+      sendNamedEvent(event, obj, propName, NO_VALUE_EVENT_DETAIL);
    }
 
    /** The easiest method to send a change event for a given property on a given object. If the property is null, the default event for that object is sent instead.  The property supplied must refer to an actual defined property on the object. */
    public static void sendChangedEvent(Object obj, String propName) {
-      sendEvent(IListener.VALUE_CHANGED, obj, propName == null ? null : DynUtil.getPropertyMapping(DynUtil.getType(obj), propName), NO_VALUE_EVENT_DETAIL);
+      sendNamedEvent(IListener.VALUE_CHANGED, obj, propName, NO_VALUE_EVENT_DETAIL);
    }
 
    /** like sendChangedEvent but a shorter name for less JS code.  Also takes the value for nice logging. */
    public static void sendChange(Object obj, String propName, Object val) {
-      sendEvent(IListener.VALUE_CHANGED, obj, propName == null ? null : DynUtil.getPropertyMapping(DynUtil.getType(obj), propName), val);
+      sendNamedEvent(IListener.VALUE_CHANGED, obj, propName, val);
    }
 
    public static void sendInvalidate(Object obj, String propName, Object val) {
-      sendEvent(IListener.VALUE_INVALIDATED, obj, propName == null ? null : DynUtil.getPropertyMapping(DynUtil.getType(obj), propName), val);
+      sendNamedEvent(IListener.VALUE_INVALIDATED, obj, propName, val);
    }
 
    public static void sendValidate(Object obj, String propName, Object val) {
-      sendEvent(IListener.VALUE_VALIDATED, obj, propName == null ? null : DynUtil.getPropertyMapping(DynUtil.getType(obj), propName), val);
+      sendNamedEvent(IListener.VALUE_VALIDATED, obj, propName, val);
+   }
+
+   /**
+    * Most objects have no listeners so check for that before resolving the property name.  Callers that send events
+    * frequently should use the IBeanMapper variants with a mapper looked up once and stored in a static field.
+    */
+   private static void sendNamedEvent(int event, Object obj, String propName, Object eventDetail) {
+      if (getBindingListeners(obj) == null)
+         return;
+      sendEvent(event, obj, propName == null ? null : DynUtil.getPropertyMapping(DynUtil.getType(obj), propName), eventDetail);
    }
 
    public static void sendChange(Object obj, IBeanMapper prop, Object val) {
@@ -1048,7 +1079,7 @@ public class Bind {
    }
 
    public static void sendEvent(int event, Object obj, String prop, Object eventDetail) {
-      sendEvent(event, obj, DynUtil.getPropertyMapping(DynUtil.getType(obj), prop), eventDetail);
+      sendNamedEvent(event, obj, prop, eventDetail);
    }
 
    // TODO: it would be nice to validate that "obj" has "prop" but kind of expensive and if this call is generated
@@ -1260,7 +1291,7 @@ public class Bind {
    public static DestinationListener getBinding(Object dstObj, IBinding dstProp) {
       List<DestinationListener> bindings;
       DestinationListener toRet = null;
-      synchronized (bindingContainerRegistry) {
+      synchronized (getRegistryLock(dstObj)) {
          if (dstObj instanceof IBindingContainer) {
             IBindingContainer bc = (IBindingContainer) dstObj;
             bindings = bc.getBindings();
@@ -1333,7 +1364,7 @@ public class Bind {
 
    public static DestinationListener[] getBindings(Object dstObj) {
       List<DestinationListener> bindings;
-      synchronized (bindingContainerRegistry) {
+      synchronized (getRegistryLock(dstObj)) {
          if (dstObj instanceof IBindingContainer) {
             IBindingContainer bc = (IBindingContainer) dstObj;
             bindings = bc.getBindings();
@@ -1426,14 +1457,12 @@ public class Bind {
    }
 
    public static void printAllBindings() {
-      synchronized (bindingContainerRegistry) {
-         System.out.println("Printing all bindings:");
-         for (Map.Entry<Object,List<DestinationListener>> ent:bindingContainerRegistry.entrySet()) {
-            Object obj = ent.getKey();
-            printBindings(obj);
-         }
-         System.out.println("");
+      System.out.println("Printing all bindings:");
+      for (Map.Entry<Object,List<DestinationListener>> ent:bindingContainerRegistry.entrySet()) {
+         Object obj = ent.getKey();
+         printBindings(obj);
       }
+      System.out.println("");
    }
 
    public static String indent(int n) {
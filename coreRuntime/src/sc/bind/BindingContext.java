@@ -12,6 +12,7 @@ import sc.type.IBeanMapper;
 import sc.type.PTypeUtil;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -38,6 +39,27 @@ import java.util.List;
 @JSSettings(jsLibFiles = "js/scbind.js", prefixAlias="sc_")
 public class BindingContext implements IScopeEventListener {
    BindingEvent queuedEvents;
+   /** The last event in queuedEvents - the list is sorted by priority so events for the lowest priority are appended here without a scan */
+   BindingEvent lastQueuedEvent;
+   int queueSize;
+
+   /**
+    * Index of the queued events for each listener so a duplicate event is found without walking the queue.  Each
+    * listener typically has one or two events queued (invalidate and validate) which are linked through nextForListener.
+    */
+   HashMap<IListener,BindingEvent> eventIndex;
+
+   /**
+    * When true, a new value event for an (object, property, listener) which is already queued replaces the queued event's
+    * value rather than being dropped.  The listener still runs once per property when the queue is flushed, in the order
+    * the first change was made, but sees the last value that was set.
+    */
+   boolean coalesceEvents;
+
+   /** Dispatched events kept for reuse, linked through 'next' so queueing an event does not allocate in the steady state */
+   private BindingEvent freeEvents;
+   private int numFreeEvents;
+   final static int MAX_FREE_EVENTS = 256;
 
    public BindingContext(IListener.SyncType defaultSyncType) {
       this.defaultSyncType = defaultSyncType;
@@ -49,23 +71,34 @@ public class BindingContext implements IScopeEventListener {
 
    public int getQueueSize() {
       synchronized (this) {
-         BindingEvent e = queuedEvents;
-         int ct = 0;
-         while (e != null) {
-            ct++;
-            e = e.next;
-         }
-         return ct;
+         return queueSize;
       }
    }
 
+   public boolean getCoalesceEvents() {
+      return coalesceEvents;
+   }
+
+   public void setCoalesceEvents(boolean val) {
+      coalesceEvents = val;
+   }
+
    public static BindingContext getBindingContext() {
       return (BindingContext) PTypeUtil.getThreadLocal("bindingContext");
    }
 
    // Begin queueing either all events, or queue only the validate events. Send the invalidate events immediately.
    public static BindingContext queueEvents(boolean onlyQueueValidate) {
+      return queueEvents(onlyQueueValidate, false);
+   }
+
+   /**
+    * Like queueEvents but with the option to coalesce repeated changes to the same property into one event with the
+    * latest value.  Use this around a batch of updates to a model so each listener runs once per property when flushQueue is called.
+    */
+   public static BindingContext queueEvents(boolean onlyQueueValidate, boolean coalesce) {
       BindingContext ctx = new BindingContext(onlyQueueValidate ? IListener.SyncType.QUEUE_VALIDATE_EVENTS : IListener.SyncType.QUEUED);
+      ctx.coalesceEvents = coalesce;
       BindingContext oldBindCtx = BindingContext.getBindingContext();
       BindingContext.setBindingContext(ctx);
       return oldBindCtx;
@@ -102,48 +135,109 @@ public class BindingContext implements IScopeEventListener {
    */
 
    public void queueEvent(int eventFlag, Object obj, IBeanMapper prop, IListener listener, Object eventDetail, CurrentScopeContext origCtx) {
-      BindingEvent newEvent = new BindingEvent(eventFlag, obj, prop, listener, eventDetail, origCtx);
       BindingEvent oldEvent;
       BindingEvent prevEvent = null;
+      double newPriority = listener.getPriority();
 
       synchronized (this) {
-         for (oldEvent = queuedEvents; oldEvent != null; oldEvent = oldEvent.next) {
-            double newPriority = newEvent.listener.getPriority();
-            double oldPriority = oldEvent.listener.getPriority();
-            // Higher priority numbers are at the top of the list - no need to check for dependencies in this case.   For the same priority, keep the order the same as when the events occurred.
-            // It's particularly important that we deliver the invalidate event before the validate event.
-            if (newPriority > oldPriority) {
-               if (prevEvent == null) {
-                  newEvent.next = queuedEvents;
-                  queuedEvents = newEvent;
-               }
-               else {
-                  newEvent.next = oldEvent;
-                  prevEvent.next = newEvent;
+         BindingEvent listenerEvents = eventIndex == null ? null : eventIndex.get(listener);
+         for (BindingEvent dupEvent = listenerEvents; dupEvent != null; dupEvent = dupEvent.nextForListener) {
+            // Check for the duplicate before we create the event so ignored events cost nothing
+            if (dupEvent.sameEvent(eventFlag, obj, prop, listener)) {
+               // Two list changes can't be merged into one so the listener gets a change event for the whole list
+               if (eventDetail instanceof ListChange || dupEvent.eventDetail instanceof ListChange) {
+                  dupEvent.eventDetail = Bind.NO_VALUE_EVENT_DETAIL;
+                  return;
                }
-               break;
-            }
-            else if (newPriority == oldPriority) {
-               if (newEvent.sameEvent(oldEvent)) {
+               // Array element events carry the changed index as the detail so those are not merged
+               if (coalesceEvents && (eventFlag & IListener.VALUE_CHANGED) != 0) {
                   if (Bind.trace)
-                     Bind.logMessage("Ignoring duplicate event: ", obj, prop, eventDetail);
-                  return;
+                     Bind.logMessage("Coalescing event: ", obj, prop, eventDetail);
+                  dupEvent.eventDetail = eventDetail;
                }
+               else if (Bind.trace)
+                  Bind.logMessage("Ignoring duplicate event: ", obj, prop, eventDetail);
+               return;
             }
-            prevEvent = oldEvent;
          }
-         if (Bind.trace)
-            Bind.logMessage("Queuing event: ", obj, prop, eventDetail);
 
-         if (oldEvent == null) {
-            if (prevEvent == null) {
-               newEvent.next = queuedEvents;
-               queuedEvents = newEvent;
-            }
-            else {
-               prevEvent.next = newEvent;
+         // Higher priority numbers are at the top of the list.  For the same priority, keep the order the same as when the events occurred.
+         // It's particularly important that we deliver the invalidate event before the validate event.
+         if (lastQueuedEvent != null && newPriority <= lastQueuedEvent.listener.getPriority()) {
+            prevEvent = lastQueuedEvent;
+            oldEvent = null;
+         }
+         else {
+            for (oldEvent = queuedEvents; oldEvent != null; oldEvent = oldEvent.next) {
+               if (newPriority > oldEvent.listener.getPriority())
+                  break;
+               prevEvent = oldEvent;
             }
          }
+         if (Bind.trace && oldEvent == null)
+            Bind.logMessage("Queuing event: ", obj, prop, eventDetail);
+
+         BindingEvent newEvent = allocEvent(eventFlag, obj, prop, listener, eventDetail, origCtx);
+         // Either goes in front of the first lower priority event or at the end of the list
+         newEvent.next = oldEvent;
+         if (prevEvent == null)
+            queuedEvents = newEvent;
+         else
+            prevEvent.next = newEvent;
+         if (oldEvent == null)
+            lastQueuedEvent = newEvent;
+
+         if (eventIndex == null)
+            eventIndex = new HashMap<IListener,BindingEvent>();
+         newEvent.nextForListener = listenerEvents;
+         eventIndex.put(listener, newEvent);
+         queueSize++;
+      }
+   }
+
+   /** Called when the event is taken off of the queue to remove it from the index.  Must be called while synchronized on this context */
+   private void removeFromIndex(BindingEvent ev) {
+      BindingEvent cur = eventIndex.get(ev.listener);
+      BindingEvent prev = null;
+      while (cur != null && cur != ev) {
+         prev = cur;
+         cur = cur.nextForListener;
+      }
+      if (cur != null) {
+         if (prev != null)
+            prev.nextForListener = ev.nextForListener;
+         else if (ev.nextForListener == null)
+            eventIndex.remove(ev.listener);
+         else
+            eventIndex.put(ev.listener, ev.nextForListener);
+      }
+      ev.nextForListener = null;
+      queueSize--;
+   }
+
+   /** Must be called while synchronized on this context */
+   private BindingEvent allocEvent(int eventFlag, Object obj, IBeanMapper prop, IListener listener, Object eventDetail, CurrentScopeContext origCtx) {
+      BindingEvent ev = freeEvents;
+      if (ev == null)
+         return new BindingEvent(eventFlag, obj, prop, listener, eventDetail, origCtx);
+      freeEvents = ev.next;
+      numFreeEvents--;
+      ev.next = null;
+      ev.init(eventFlag, obj, prop, listener, eventDetail, origCtx);
+      return ev;
+   }
+
+   /** Returns a list of events which have been dispatched to the free list */
+   private void freeEvents(BindingEvent list) {
+      synchronized (this) {
+         BindingEvent next;
+         for (BindingEvent ev = list; ev != null && numFreeEvents < MAX_FREE_EVENTS; ev = next) {
+            next = ev.next;
+            ev.clear();
+            ev.next = freeEvents;
+            freeEvents = ev;
+            numFreeEvents++;
+         }
       }
    }
 
@@ -160,9 +254,8 @@ public class BindingContext implements IScopeEventListener {
       BindingEvent oldEvent;
       BindingEvent toExecute = null, lastToExecute = null;
       float priority = UNSET_PRIORITY;
-      BindingEvent prevEvent = null, nextEvent;
+      BindingEvent lastRemaining = null, nextEvent;
       List<BindingEvent> runList = null;
-      boolean queuedLastEvent = false;
       boolean any = false;
 
       synchronized (this) {
@@ -193,23 +286,18 @@ public class BindingContext implements IScopeEventListener {
                   lastToExecute = oldEvent;
                }
 
-               if (prevEvent == null)
-                   queuedEvents = nextEvent;
-               else {
-                  if (queuedEvents == oldEvent)
-                     queuedEvents = nextEvent;
-
-                  // Only if it is still in the queued events list, need to remove it
-                  if (!queuedLastEvent)
-                     prevEvent.next = nextEvent;
-               }
+               // Unlink it from the events which remain queued
+               if (lastRemaining == null)
+                  queuedEvents = nextEvent;
+               else
+                  lastRemaining.next = nextEvent;
                oldEvent.next = null;
-               queuedLastEvent = true;
+               removeFromIndex(oldEvent);
             }
             else
-               queuedLastEvent = false;
-            prevEvent = oldEvent;
+               lastRemaining = oldEvent;
          }
+         lastQueuedEvent = lastRemaining;
       }
       // If we have more than one priority, the list stores the lists that need to be run first
       if (runList != null) {
@@ -219,10 +307,12 @@ public class BindingContext implements IScopeEventListener {
             BindingEvent be = runList.get(i);
             // Dispatch all of the events with the same priority.
             doDispatch(be);
+            freeEvents(be);
          }
       }
       if (toExecute != null) {
          doDispatch(toExecute);
+         freeEvents(toExecute);
          any = true;
       }
       return any;
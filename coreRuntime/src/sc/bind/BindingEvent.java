@@ -23,9 +23,15 @@ class BindingEvent {
    IListener listener;
    List dependencies;
    BindingEvent next;
+   /** Links the queued events with the same listener in the BindingContext's index */
+   BindingEvent nextForListener;
    CurrentScopeContext origCtx;
 
    BindingEvent(int ev, Object o, IBeanMapper p, IListener l, Object detail, CurrentScopeContext octx) {
+      init(ev, o, p, l, detail, octx);
+   }
+
+   void init(int ev, Object o, IBeanMapper p, IListener l, Object detail, CurrentScopeContext octx) {
       eventType = ev;
       obj = o;
       prop = p;
@@ -34,6 +40,19 @@ class BindingEvent {
       origCtx = octx;
    }
 
+   /** Clears the references so a pooled event does not keep objects alive */
+   void clear() {
+      eventType = 0;
+      flags = 0;
+      obj = null;
+      prop = null;
+      listener = null;
+      eventDetail = null;
+      dependencies = null;
+      nextForListener = null;
+      origCtx = null;
+   }
+
    void addDependency(BindingEvent to) {
       List deps = dependencies;
       if (deps == null)
@@ -46,9 +65,11 @@ class BindingEvent {
    }
 
    public boolean sameEvent(BindingEvent other) {
-      if (obj == other.obj && prop == other.prop && listener == other.listener && eventType == other.eventType)
-         return true;
-      return false;
+      return sameEvent(other.eventType, other.obj, other.prop, other.listener);
+   }
+
+   boolean sameEvent(int ev, Object o, IBeanMapper p, IListener l) {
+      return obj == o && prop == p && listener == l && eventType == ev;
    }
 
    public String toString() {
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.bind;
+
+import sc.js.JSSettings;
+import sc.type.IBeanMapper;
+
+/**
+ * Sent by lists like BArrayList and DBList as the eventDetail of the default VALUE_CHANGED event to describe which elements changed.
+ * Listeners that don't look at the detail see the same whole-list change event as before.  Listeners that understand it (e.g. the repeat
+ * tags in Element and ArrayElementBinding) can update just the affected range.  When two changes are queued for the same listener before
+ * they are delivered, the listener gets a plain change event without the detail so it must still handle that case.
+ * <p>
+ * Converted to Javascript with BArrayList which sends it.
+ * </p>
+ */
+@JSSettings(jsModuleFile="js/scutil.js", prefixAlias="sc_")
+public class ListChange {
+   public enum Op {
+      Insert, Remove, Replace
+   }
+
+   public final Op op;
+   /** The first index of the range inserted, removed or replaced */
+   public final int index;
+   public final int count;
+
+   public ListChange(Op op, int index, int count) {
+      this.op = op;
+      this.index = index;
+      this.count = count;
+   }
+
+   public static void sendInsert(Object list, int index, int count) {
+      send(list, Op.Insert, index, count);
+   }
+
+   public static void sendRemove(Object list, int index, int count) {
+      send(list, Op.Remove, index, count);
+   }
+
+   public static void sendReplace(Object list, int index, int count) {
+      send(list, Op.Replace, index, count);
+   }
+
+   private static void send(Object list, Op op, int index, int count) {
+      // Most lists have no listeners so avoid allocating the change
+      if (Bind.getBindingListeners(list) == null)
+         return;
+      Bind.sendEvent(IListener.VALUE_CHANGED, list, (IBeanMapper) null, new ListChange(op, index, count));
+   }
+
+   /** Returns true if the element at ix before this change might be different or at a different position after it */
+   public boolean affectsIndex(int ix) {
+      switch (op) {
+         case Insert:
+         case Remove:
+            return ix >= index;
+         case Replace:
+            return ix >= index && ix < index + count;
+      }
+      return true;
+   }
+
+   public String toString() {
+      return op + "[" + index + (count != 1 ? ":" + count : "") + "]";
+   }
+}
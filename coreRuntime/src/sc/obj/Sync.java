@@ -53,6 +53,11 @@ public @interface Sync {
 
    /** Set this to true for a synchronized property to include it in the state used to restore a session */
    boolean resetState() default false;
+   /**
+    * For a List or Map property, set this to send the changes made to the collection since the last sync instead of the whole value.
+    * The remote side applies them to the value it already has.
+    */
+   boolean incremental() default false;
 
    /**
     * An internal property set in serialized layers in the 'scn' format where @Sync is used as a marker attribute annotation.
@@ -4,7 +4,9 @@
 
 package sc.sync;
 
+import sc.bind.Bind;
 import sc.bind.BindingContext;
+import sc.bind.IChangeable;
 import sc.bind.IListener;
 import sc.dyn.DynUtil;
 import sc.dyn.INameContext;
@@ -213,15 +215,20 @@ public class JSONDeserializer implements JSONResolver {
                   }
                }
             }
+            boolean canSet = true;
             if (!hasObjValue) {
-               propVal = parser.parseJSONValue(null);
+               canSet = checkSetProperty(curObj, nextNameStr, isMap);
+               // No need to build the value, or resolve the references in it, when it's not going to be set
+               if (canSet)
+                  propVal = parser.parseJSONValue(null);
+               else
+                  parser.skipJSONValue();
             }
             else {
                Object inst = resolveObject(nextNameStr, true);
                // If we are setting a map property that already has an old map value, the resolveObject returns it as an object
-               // but this operation is not incremental - it's replacing the old map with a new one.
-               // TODO: right now, the map serialization is not incremental but maybe if we have an event-aware map, we can track keys being added/removed
-               // and send over commands to add/remove from the map
+               // but this operation is not incremental - it's replacing the old map with a new one.  Properties marked SYNC_INCREMENTAL
+               // send changes to the map with the $delta command instead - see applyCollectionDelta.
                if (inst instanceof HashMap)
                   inst = null;
                // If there's no object name, it might be a map property
@@ -232,6 +239,7 @@ public class JSONDeserializer implements JSONResolver {
                   parseSubs(true);
                   popCurrentObj();
                   propVal = mapVal;
+                  canSet = checkSetProperty(curObj, nextNameStr, isMap);
                }
                else {
                   pushCurrentObj(inst, nextNameStr);
@@ -240,58 +248,128 @@ public class JSONDeserializer implements JSONResolver {
                   isProp = false;
                }
             }
-            if (isProp) {
-               if (curObj != null) {
-                  try {
-                     SyncManager mgr = syncCtx.getSyncManager();
-                     Object objType = null;
-                     boolean skipSet = false;
-                     if (!mgr.syncDestination.clientDestination) {
-                        objType = DynUtil.getSType(curObj);
-                        if (!isMap && !mgr.isSynced(objType, nextNameStr, false)) {
-                           System.err.println("Not allowed to set unsynchronized property from json: " + DynUtil.getTypeName(objType, true) + "." + nextNameStr);
-                           boolean isSynced = !mgr.isSynced(objType, nextNameStr, false);
-                           skipSet = true;
-                        }
-                     }
-                     if (!skipSet) {
-                        // For array or collection properties, we need to have the property metadata in order to deserialize the
-                        // value and set the object property correctly.
-                        if (propVal instanceof List) {
-                           if (objType == null)
-                              objType = DynUtil.getSType(curObj);
-                           Object propType = DynUtil.getPropertyType(objType, nextNameStr);
-                           if (propType != null) {
-                              propVal = SyncHandler.convertRemoteType(propVal, propType);
-                           }
-                        }
-                        // Dates and BigDecimals come in as Strings and also need to be converted
-                        else if (propVal instanceof CharSequence) {
-                           if (objType == null)
-                              objType = DynUtil.getSType(curObj);
-                           Object propType = DynUtil.getPropertyType(objType, nextNameStr);
-                           if (propType != null)
-                              propVal = SyncHandler.convertRemoteType(propVal, propType);
-                        }
-                        if (curObj instanceof Map) {// TODO - it's possible for a map to have regular properties too... we should perhaps be keying off of whether we created a Map before calling parseSubs
-                           ((Map) curObj).put(nextNameKey, propVal);
-                        }
-                        else
-                           DynUtil.setPropertyValue(curObj, nextNameStr, propVal);
+            if (isProp && canSet) {
+               try {
+                  Object objType = null;
+                  // For array or collection properties, we need to have the property metadata in order to deserialize the
+                  // value and set the object property correctly.
+                  if (propVal instanceof List) {
+                     objType = DynUtil.getSType(curObj);
+                     Object propType = DynUtil.getPropertyType(objType, nextNameStr);
+                     if (propType != null) {
+                        propVal = SyncHandler.convertRemoteType(propVal, propType);
                      }
                   }
-                  catch (IllegalArgumentException exc) {
-                     System.err.println("No property: " + curObj + "." + nextNameStr + ": " + exc);
+                  // Dates and BigDecimals come in as Strings and also need to be converted
+                  else if (propVal instanceof CharSequence) {
+                     objType = DynUtil.getSType(curObj);
+                     Object propType = DynUtil.getPropertyType(objType, nextNameStr);
+                     if (propType != null)
+                        propVal = SyncHandler.convertRemoteType(propVal, propType);
                   }
+                  if (curObj instanceof Map) {// TODO - it's possible for a map to have regular properties too... we should perhaps be keying off of whether we created a Map before calling parseSubs
+                     ((Map) curObj).put(nextNameKey, propVal);
+                  }
+                  else
+                     DynUtil.setPropertyValue(curObj, nextNameStr, propVal);
                }
-               else {
-                  System.err.println("No current object for set property: " + nextNameStr);
+               catch (IllegalArgumentException exc) {
+                  System.err.println("No property: " + curObj + "." + nextNameStr + ": " + exc);
                }
             }
          }
       }
    }
 
+   /** Returns false, after logging the reason, if the remote side is not allowed to set this property */
+   private boolean checkSetProperty(Object curObj, String propName, boolean isMap) {
+      if (curObj == null) {
+         System.err.println("No current object for set property: " + propName);
+         return false;
+      }
+      SyncManager mgr = syncCtx.getSyncManager();
+      if (!isMap && !mgr.syncDestination.clientDestination) {
+         try {
+            Object objType = DynUtil.getSType(curObj);
+            if (!mgr.isSynced(objType, propName, false)) {
+               System.err.println("Not allowed to set unsynchronized property from json: " + DynUtil.getTypeName(objType, true) + "." + propName);
+               return false;
+            }
+         }
+         catch (IllegalArgumentException exc) {
+            System.err.println("No property: " + curObj + "." + propName + ": " + exc);
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Applies the ops from a $delta command to the List or Map value of propName in the current object.  The collection is updated in
+    * place and the result becomes the previous value, as if it had been set.
+    */
+   public void applyCollectionDelta(String propName, List ops) {
+      Object curObj = getCurObj();
+      if (!checkSetProperty(curObj, propName, false))
+         return;
+      Object coll = DynUtil.getPropertyValue(curObj, propName);
+      if (!(coll instanceof List) && !(coll instanceof Map)) {
+         System.err.println("*** Delta for property: " + DynUtil.getInstanceName(curObj) + "." + propName + " with value: " + DynUtil.getInstanceName(coll) + " that's not a List or Map");
+         return;
+      }
+      boolean isMap = coll instanceof Map;
+      // Like a property set, convert the values to the declared element types - for a Map, the key and value types
+      Object objType = DynUtil.getSType(curObj);
+      Object keyType = isMap ? SyncTypeUtil.getTypeArgument(objType, propName, 0) : null;
+      Object valueType = SyncTypeUtil.getTypeArgument(objType, propName, isMap ? 1 : 0);
+      for (Object opObj:ops) {
+         List op = opObj instanceof List ? (List) opObj : null;
+         SyncLayer.DeltaOpType opType = op == null || op.size() < 2 || !(op.get(0) instanceof CharSequence) ? null : SyncLayer.DeltaOpType.valueOf(op.get(0).toString());
+         if (opType == null)
+            throw new IllegalArgumentException("Invalid delta op: " + opObj + " for property: " + propName + " in: " + parser);
+         boolean isMapOp = opType == SyncLayer.DeltaOpType.put || opType == SyncLayer.DeltaOpType.del;
+         if (isMapOp != isMap)
+            throw new IllegalArgumentException("Delta op: " + opType + " does not match value: " + DynUtil.getInstanceName(coll) + " of property: " + propName + " in: " + parser);
+         Object key = acceptDeltaValue(op.get(1), keyType);
+         // The value is the element for put and set, the list of elements for ins and the count for rem
+         boolean isElem = opType == SyncLayer.DeltaOpType.put || opType == SyncLayer.DeltaOpType.set;
+         Object value = op.size() > 2 ? acceptDeltaValue(op.get(2), isElem ? valueType : null) : null;
+         switch (opType) {
+            case put:
+               ((Map) coll).put(key, value);
+               break;
+            case del:
+               ((Map) coll).remove(key);
+               break;
+            case set:
+               ((List) coll).set(((Number) key).intValue(), value);
+               break;
+            case ins:
+               List newVals = (List) value;
+               for (int i = 0; i < newVals.size(); i++)
+                  newVals.set(i, acceptDeltaValue(newVals.get(i), valueType));
+               ((List) coll).addAll(((Number) key).intValue(), newVals);
+               break;
+            case rem:
+               int start = ((Number) key).intValue();
+               ((List) coll).subList(start, start + ((Number) value).intValue()).clear();
+               break;
+         }
+      }
+      syncCtx.addPreviousValue(curObj, propName, coll, true, true);
+      // Bindable lists and maps sent their own events as the ops were applied.  For others, bindings on the property need to refresh as
+      // they would if the whole value was set.
+      if (!(coll instanceof IChangeable))
+         Bind.sendChangedEvent(curObj, propName);
+   }
+
+   private static Object acceptDeltaValue(Object val, Object valType) {
+      // Strings are parsed as CharSequences
+      if (val instanceof CharSequence)
+         val = val.toString();
+      return valType == null ? val : SyncHandler.convertRemoteType(val, valType);
+   }
+
    public void invokeMethod(CharSequence methName, CharSequence typeSig, List args, CharSequence callIdSeq) {
       Object curObj = getCurObj();
       if (curObj == null) {
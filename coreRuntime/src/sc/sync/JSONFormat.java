@@ -163,6 +163,18 @@ public class JSONFormat extends SerializerFormat {
                SyncManager.clearResetState(objName.toString());
             }
          }
+      },
+      delta {
+         // { "$delta": "propName", "ops": [ [ "opName", key, value ], ... ] }
+         public void apply(JSONDeserializer dser, boolean topLevel) {
+            CharSequence propName = dser.parser.parseString(false);
+            dser.parser.expectNextName(DeltaArgs.ops.name());
+            List ops = dser.parser.parseArray(null);
+            if (propName != null && ops != null)
+               dser.applyCollectionDelta(propName.toString(), ops);
+            else
+               throw new IllegalArgumentException("Invalid delta command in JSON: " + dser.parser);
+         }
       };
 
       public static Commands get(CharSequence seq) {
@@ -185,6 +197,8 @@ public class JSONFormat extends SerializerFormat {
                return len == 3 ? nc : newCmd;
             case 'c':
                return len == 3 ? cn : clearResetState;
+            case 'd':
+               return delta;
          }
          return null;
       }
@@ -221,4 +235,8 @@ public class JSONFormat extends SerializerFormat {
       callId, args, typeSig
    }
 
+   enum DeltaArgs {
+      ops
+   }
+
 }
@@ -15,6 +15,11 @@ import java.util.Map;
 
 import static sc.sync.JSONFormat.ExprPrefixes.isRefPrefix;
 
+/**
+ * Parses JSON for the sync system and for JSON stored in the database.  This class is converted to Javascript for the sync client so
+ * it only uses the CharSequence, String and Character methods supported by the JS runtime.  Values that won't be used can be passed
+ * over with skipJSONValue without creating anything.
+ */
 @sc.js.JSSettings(jsModuleFile="js/sync.js", prefixAlias="sc_")
 public class JSONParser {
    CharSequence input;
@@ -93,8 +98,12 @@ public class JSONParser {
          else if (val.charAt(0) == '\\' && len > 5 && isRefPrefix(val, 1))
             val = val.subSequence(1, len);
       }
-      if (val != null)
+      if (val != null) {
          val = CTypeUtil.unescapeJavaString(val);
+         // The serializer escapes the \ it inserts before 'ref:' along with the rest of the string
+         if (resolver != null && val.length() > 5 && val.charAt(0) == '\\' && isRefPrefix(val, 1))
+            val = val.subSequence(1, val.length());
+      }
       return val;
    }
 
@@ -124,10 +133,8 @@ public class JSONParser {
    }
 
    private void skipWhitespace() {
-      char nextChar = input.charAt(curPos);
-      while (Character.isWhitespace(nextChar)) {
-         nextChar = input.charAt(++curPos);
-      }
+      while (curPos < len && Character.isWhitespace(input.charAt(curPos)))
+         curPos++;
    }
 
    public Map parseObject() {
@@ -154,11 +161,11 @@ public class JSONParser {
          BArrayList res = new BArrayList();
 
          boolean first = true;
+         Object compType = resultType == null ? null : DynUtil.getComponentType(resultType);
          while (!parseCharToken(']')) {
             if (!first)
                expect(",");
             first = false;
-            Object compType = resultType == null ? null : DynUtil.getComponentType(resultType);
             Object val = parseJSONValue(compType);
             res.add(val);
          }
@@ -169,6 +176,8 @@ public class JSONParser {
 
    public Object parseJSONValue(Object resultType) {
       skipWhitespace();
+      if (curPos >= len)
+         throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
       char nextChar = input.charAt(curPos);
       switch (nextChar) {
          case '{':
@@ -195,6 +204,60 @@ public class JSONParser {
       throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
    }
 
+   /** Moves past the next value - string, number, object, array or literal - without creating it or resolving any references in it */
+   public void skipJSONValue() {
+      int depth = 0;
+      do {
+         skipWhitespace();
+         if (curPos >= len)
+            throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
+         char c = input.charAt(curPos);
+         switch (c) {
+            case '"':
+               skipString();
+               break;
+            case '{':
+            case '[':
+               depth++;
+               curPos++;
+               break;
+            case '}':
+            case ']':
+               if (depth == 0)
+                  throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
+               depth--;
+               curPos++;
+               break;
+            case ',':
+            case ':':
+               if (depth == 0)
+                  throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
+               curPos++;
+               break;
+            default:
+               // A number or true, false, null
+               int start = curPos;
+               while (curPos < len && (c = input.charAt(curPos)) != ',' && c != '}' && c != ']' && c != ':' && !Character.isWhitespace(c))
+                  curPos++;
+               if (curPos == start)
+                  throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
+               break;
+         }
+      } while (depth > 0);
+   }
+
+   // Moves past the "string" token at curPos
+   private void skipString() {
+      char c;
+      curPos++;
+      do {
+         if (curPos >= len)
+            throw new IllegalArgumentException("Unterminated JSON string at: " + this);
+         c = input.charAt(curPos++);
+         if (c == '\\')
+            curPos++;
+      } while (c != '"');
+   }
 
    public Number parseNumber(boolean negative) {
       int startNum = curPos;
@@ -239,10 +302,9 @@ public class JSONParser {
    public void expect(String val) {
       int len = val.length();
       for (int i = 0; i < len; i++) {
-         if (input.charAt(curPos++) != val.charAt(i)) {
-            curPos--;
+         if (curPos >= this.len || input.charAt(curPos) != val.charAt(i))
             throw new IllegalArgumentException("Expected: " + val + " found: " + this);
-         }
+         curPos++;
       }
    }
 
@@ -253,6 +315,7 @@ public class JSONParser {
       expect("\"");
       expect(val);
       expect("\"");
+      skipWhitespace();
       expect(":");
    }
 
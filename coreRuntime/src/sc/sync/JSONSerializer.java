@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.Set;
 
 import sc.sync.JSONFormat.Commands;
+import sc.sync.JSONFormat.DeltaArgs;
 import sc.sync.JSONFormat.ExprPrefixes;
 import sc.sync.JSONFormat.MethodArgs;
 
@@ -234,6 +235,32 @@ public class JSONSerializer extends SyncSerializer {
       }
    }
 
+   // { "$delta": "propName", "ops": [ ["put", key, value], ["del", key], ["set", ix, value], ["ins", ix, [values]], ["rem", ix, count] ] }
+   public void appendCollectionDelta(SyncLayer.SyncCollectionDelta delta, ArrayList<String> newObjNames, String newLastPackageName, SyncManager.SyncContext parentContext, SyncLayer syncLayer, ArrayList<SyncLayer.SyncChange> depChanges) {
+      int ix = newObjNames.size();
+      appendCommandStart(Commands.delta, delta.prop, ix);
+      appendName(DeltaArgs.ops.name());
+      sb.append('[');
+      List<SyncLayer.DeltaOp> ops = delta.ops;
+      for (int i = 0; i < ops.size(); i++) {
+         SyncLayer.DeltaOp op = ops.get(i);
+         if (i != 0)
+            sb.append(',');
+         sb.append('[');
+         formatString(sb, op.type.name());
+         sb.append(',');
+         parentContext.formatExpression(this, sb, op.key, newObjNames, newLastPackageName, null, null, null, true, null, depChanges, syncLayer);
+         if (op.type != SyncLayer.DeltaOpType.del) {
+            sb.append(',');
+            parentContext.formatExpression(this, sb, op.value, newObjNames, newLastPackageName, null, null, null, true, null, depChanges, syncLayer);
+         }
+         sb.append(']');
+      }
+      sb.append(']');
+      if (ix == 0)
+         appendObjEnd();
+   }
+
    public void appendPropertyAssignment(SyncManager.SyncContext syncContext, Object changedObj, String propName, Object propValue, Object previousValue, ArrayList<String> currentObjNames, String currentPackageName, SyncSerializer preBlockCode, SyncSerializer postBlockCode, List<SyncLayer.SyncChange> depChanges, SyncLayer syncLayer) {
       try {
          appendNameIndent(propName, currentObjNames.size());
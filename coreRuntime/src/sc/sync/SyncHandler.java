@@ -209,6 +209,9 @@ public class SyncHandler {
             return DynUtil.parseDate((String) value);
          }
       }
+      // Numbers small enough for an int are parsed as Integers
+      if (type == Long.class && value instanceof Integer)
+         return ((Integer) value).longValue();
       if (type == BigDecimal.class) {
          if (value == null)
             return null;
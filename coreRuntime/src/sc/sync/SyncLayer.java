@@ -397,6 +397,162 @@ public class SyncLayer {
       }
    }
 
+   public enum DeltaOpType {
+      /** Map: put key, value */
+      put,
+      /** Map: remove key */
+      del,
+      /** List: set index, value */
+      set,
+      /** List: insert index, list of values */
+      ins,
+      /** List: remove index, count */
+      rem
+   }
+
+   public static class DeltaOp {
+      DeltaOpType type;
+      /** The map key or Integer list index */
+      Object key;
+      Object value;
+
+      DeltaOp(DeltaOpType type, Object key, Object value) {
+         this.type = type;
+         this.key = key;
+         this.value = value;
+      }
+
+      public String toString() {
+         return type + "(" + DynUtil.getInstanceName(key) + (type == DeltaOpType.del ? "" : ", " + DynUtil.getInstanceName(value)) + ")";
+      }
+   }
+
+   /**
+    * The changes to a List or Map property marked SyncPropOptions.SYNC_INCREMENTAL, made against the previous value - the copy
+    * of the value last applied on the remote side.  It's built when the property change is serialized so all of the changes made to the
+    * collection since the last sync turn into one set of ops.  The serializer sends these ops in place of the whole value.
+    */
+   public static class SyncCollectionDelta extends SyncChange {
+      /** When the ops carry more than this fraction of the collection's size, the whole value is sent instead */
+      public static double MaxDeltaRatio = 0.5;
+
+      String prop;
+      Object val;
+      ArrayList<DeltaOp> ops = new ArrayList<DeltaOp>();
+
+      SyncCollectionDelta(Object obj, String prop, Object val) {
+         super(obj);
+         this.prop = prop;
+         this.val = val;
+      }
+
+      void addOp(DeltaOpType type, Object key, Object value) {
+         ops.add(new DeltaOp(type, key, value));
+      }
+
+      /** Returns the ops to turn prevVal into val, or null if they are not both Lists or both Maps or the ops would be too large */
+      static SyncCollectionDelta create(Object obj, String prop, Object prevVal, Object val) {
+         // A previous value that's not a separate copy can't tell us what changed
+         if (prevVal == null || prevVal == val)
+            return null;
+         if (val instanceof List && prevVal instanceof List)
+            return createListDelta(obj, prop, (List) prevVal, (List) val);
+         if (val instanceof Map && prevVal instanceof Map)
+            return createMapDelta(obj, prop, (Map) prevVal, (Map) val);
+         return null;
+      }
+
+      private static int getMaxValues(int size) {
+         return (int) (size * MaxDeltaRatio);
+      }
+
+      private static SyncCollectionDelta createListDelta(Object obj, String prop, List prev, List cur) {
+         int prevSz = prev.size();
+         int curSz = cur.size();
+         int start = 0;
+         while (start < prevSz && start < curSz && DynUtil.equalObjects(prev.get(start), cur.get(start)))
+            start++;
+         int prevEnd = prevSz;
+         int curEnd = curSz;
+         while (prevEnd > start && curEnd > start && DynUtil.equalObjects(prev.get(prevEnd - 1), cur.get(curEnd - 1))) {
+            prevEnd--;
+            curEnd--;
+         }
+         // Everything between the common prefix and suffix is sent - the overlapping part as set ops and the rest as one insert or remove
+         int prevNum = prevEnd - start;
+         int curNum = curEnd - start;
+         if (curNum > getMaxValues(curSz))
+            return null;
+         SyncCollectionDelta delta = new SyncCollectionDelta(obj, prop, cur);
+         int numSet = Math.min(prevNum, curNum);
+         int setEnd = start + numSet;
+         for (int i = start; i < setEnd; i++) {
+            Object elem = cur.get(i);
+            if (!DynUtil.equalObjects(prev.get(i), elem))
+               delta.addOp(DeltaOpType.set, i, elem);
+         }
+         if (curNum > prevNum)
+            delta.addOp(DeltaOpType.ins, setEnd, new ArrayList<Object>(cur.subList(setEnd, curEnd)));
+         else if (prevNum > curNum)
+            delta.addOp(DeltaOpType.rem, setEnd, prevNum - curNum);
+         return delta;
+      }
+
+      private static SyncCollectionDelta createMapDelta(Object obj, String prop, Map prev, Map cur) {
+         int maxValues = getMaxValues(cur.size());
+         SyncCollectionDelta delta = new SyncCollectionDelta(obj, prop, cur);
+         for (Object entObj:cur.entrySet()) {
+            Map.Entry ent = (Map.Entry) entObj;
+            Object key = ent.getKey();
+            Object value = ent.getValue();
+            if (!prev.containsKey(key) || !DynUtil.equalObjects(prev.get(key), value)) {
+               if (delta.ops.size() == maxValues)
+                  return null;
+               delta.addOp(DeltaOpType.put, key, value);
+            }
+         }
+         for (Object key:prev.keySet()) {
+            if (!cur.containsKey(key)) {
+               if (delta.ops.size() == maxValues)
+                  return null;
+               delta.addOp(DeltaOpType.del, key, null);
+            }
+         }
+         return delta;
+      }
+
+      public String getPropName() {
+         return prop;
+      }
+
+      public Object getValue() {
+         return val;
+      }
+
+      public List<DeltaOp> getOps() {
+         return ops;
+      }
+
+      public String toString() {
+         return DynUtil.getInstanceName(obj) + "." + prop + " delta: " + ops;
+      }
+   }
+
+   private SyncCollectionDelta getCollectionDelta(Object changedObj, String propName, Object propValue, SyncManager.SyncContext parentContext) {
+      if (initialLayer || !(propValue instanceof List || propValue instanceof Map))
+         return null;
+      // The ops are applied to the value on the remote side so they can only be used when no other sync that might change it is in flight
+      if (syncContext.pendingSyncs != 0 || parentContext.pendingSyncs != 0)
+         return null;
+      SyncProperties syncProps = syncContext.getSyncManager().getSyncPropertiesForInst(changedObj);
+      if (syncProps == null)
+         return null;
+      int flags = syncProps.getSyncFlags(propName);
+      if (flags == -1 || (flags & SyncPropOptions.SYNC_INCREMENTAL) == 0)
+         return null;
+      return SyncCollectionDelta.create(changedObj, propName, parentContext.getPreviousValue(changedObj, propName), propValue);
+   }
+
    public SyncLayer(SyncManager.SyncContext ctx) {
       syncContext = ctx;
    }
@@ -1138,7 +1294,11 @@ public class SyncLayer {
                newSB.appendRemoteChanges(remoteChange, false, newObjNames.size());
             }
 
-            newSB.appendProp(changedObj, propName, propValue, newObjNames, newLastPackageName, parentContext, this, depChanges);
+            SyncCollectionDelta delta = isResetType ? null : getCollectionDelta(changedObj, propName, propValue, parentContext);
+            if (delta != null)
+               newSB.appendCollectionDelta(delta, newObjNames, newLastPackageName, parentContext, this, depChanges);
+            else
+               newSB.appendProp(changedObj, propName, propValue, newObjNames, newLastPackageName, parentContext, this, depChanges);
          }
       }
       else if (change instanceof SyncMethodCall) {
@@ -38,6 +38,10 @@ public class SyncPropOptions {
     * a sync listener and do send changes to the client as normal. */
    public final static int SYNC_SEND_ONLY = 256;
 
+   /** For List and Map properties, send changes as ops against the value the remote side already has (see SyncLayer.SyncCollectionDelta)
+    * instead of the whole value.  Set with @Sync(incremental=true) on the property. */
+   public final static int SYNC_INCREMENTAL = 512;
+
    public String propName;
    public int flags;
    public boolean hasDefault;
@@ -75,6 +79,8 @@ public class SyncPropOptions {
          sb.append(" (static)");
       if ((flags & SYNC_RESET_STATE) != 0)
          sb.append(" (resetState)");
+      if ((flags & SYNC_INCREMENTAL) != 0)
+         sb.append(" (incremental)");
       if (hasDefault)
          sb.append(" fixed default: " + defaultValue);
       return sb.toString();
@@ -185,6 +185,11 @@ public class SyncSerializer {
       sb.append(postBlockCode);
    }
 
+   /** Serializers that have no way to express the ops of a delta send the whole value */
+   public void appendCollectionDelta(SyncLayer.SyncCollectionDelta delta, ArrayList<String> newObjNames, String newLastPackageName, SyncManager.SyncContext parentContext, SyncLayer syncLayer, ArrayList<SyncLayer.SyncChange> depChanges) {
+      appendProp(delta.obj, delta.prop, delta.val, newObjNames, newLastPackageName, parentContext, syncLayer, depChanges);
+   }
+
    public void formatNullValue(StringBuilder sb) {
       sb.append("null");
    }
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.sync;
+
+import sc.obj.Sync;
+import sc.obj.SyncMode;
+
+/**
+ * Type utilities for the sync system which depend on the runtime.  This version is converted to Javascript, which has no generic type
+ * information.  The Java runtime uses the version in fullRuntime.
+ */
+@sc.js.JSSettings(jsModuleFile="js/sync.js", prefixAlias="sc_")
+@Sync(syncMode=SyncMode.Disabled)
+public class SyncTypeUtil {
+   /** Returns the class of the ix'th type argument of the property's declared type - e.g. the value type of a Map for 1 - or null if it's not known */
+   public static Object getTypeArgument(Object objType, String propName, int ix) {
+      return null;
+   }
+}
@@ -4,6 +4,7 @@
 
 package sc.util;
 
+import sc.bind.ListChange;
 import sc.js.JSSettings;
 
 import java.util.Collection;
@@ -32,25 +33,32 @@ public class BArrayList<E> extends java.util.ArrayList<E> implements sc.bind.ICh
 
    public boolean add(E value) {
       boolean res = super.add(value);
-      sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+      ListChange.sendInsert(this, size() - 1, 1);
       return res;
    }
  
    public boolean remove(Object o) {
-      boolean res = super.remove(o);
-      sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
-      return res;
+      int ix = indexOf(o);
+      if (ix == -1)
+         return false;
+      super.remove(ix);
+      ListChange.sendRemove(this, ix, 1);
+      return true;
    }
  
    public boolean addAll(Collection<? extends E> c) {
+      int sz = size();
       boolean res = super.addAll(c);
-      sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+      if (res)
+         ListChange.sendInsert(this, sz, size() - sz);
       return res;
   }
 
   public boolean addAll(int index, Collection<? extends E> c) {
+      int sz = size();
       boolean res = super.addAll(index, c);
-      sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+      if (res)
+         ListChange.sendInsert(this, index, size() - sz);
       return res;
   }
 
@@ -70,27 +78,34 @@ public class BArrayList<E> extends java.util.ArrayList<E> implements sc.bind.ICh
      int sz = size();
      super.clear();
      if (sz != 0)
-        sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+        ListChange.sendRemove(this, 0, sz);
   }
       
   public E set(int index, E element) {
      E res = super.set(index, element);
      if (res != element && (res == null || !res.equals(element)))
-        sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+        ListChange.sendReplace(this, index, 1);
      return res;
   }
 
   public void add(int index, E element) {
      super.add(index, element);
-     sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+     ListChange.sendInsert(this, index, 1);
   }
 
   public E remove(int index) {
      E res = super.remove(index);
-     sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+     ListChange.sendRemove(this, index, 1);
      return res;
   }
 
+  /** Called for subList(from, to).clear() */
+  protected void removeRange(int fromIndex, int toIndex) {
+     super.removeRange(fromIndex, toIndex);
+     if (toIndex > fromIndex)
+        ListChange.sendRemove(this, fromIndex, toIndex - fromIndex);
+  }
+
   /** Just like get but returns null if the element is out of range */
   @sc.bind.BindSettings(reverseMethod="set", reverseSlot=1)
   public E ret(int index) {
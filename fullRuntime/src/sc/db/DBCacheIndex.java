@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.db;
+
+import sc.type.IBeanMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * A hash index over the instances in a DBInstanceCache for the properties of a FindBy query, so queryCache can find the candidates
+ * for a query without scanning the cache.
+ * <p>
+ * The index is updated lazily.  Instances added to the cache, or whose indexed property is set, are marked as pending and are
+ * (re)indexed by the next find.  Because the setX method updates the field after DBObject.dbSetProp returns, the new value
+ * is not available until then anyway.  The caller still compares the property values of each candidate, so the index only has
+ * to be sure not to leave out a match.
+ * </p>
+ */
+class DBCacheIndex {
+   final List<String> propNames;
+
+   private HashMap<Object,ArrayList<IDBObject>> instsByKey = new HashMap<Object,ArrayList<IDBObject>>();
+   private IdentityHashMap<IDBObject,Object> keysByInst = new IdentityHashMap<IDBObject,Object>();
+   private IdentityHashMap<IDBObject,Boolean> pending = new IdentityHashMap<IDBObject,Boolean>();
+
+   // Marks a property value that does not exist on the instance's type
+   private final static Object NO_VALUE = new Object();
+
+   DBCacheIndex(List<String> propNames) {
+      this.propNames = propNames;
+   }
+
+   synchronized void added(IDBObject inst) {
+      pending.put(inst, Boolean.TRUE);
+   }
+
+   synchronized void removed(IDBObject inst) {
+      pending.remove(inst);
+      removeKey(inst);
+   }
+
+   synchronized void changed(IDBObject inst, String propName) {
+      if (propNames.contains(propName) && keysByInst.containsKey(inst))
+         pending.put(inst, Boolean.TRUE);
+   }
+
+   synchronized void clear() {
+      instsByKey.clear();
+      keysByInst.clear();
+      pending.clear();
+   }
+
+   /** Returns the instances indexed with these property values - the caller should still check that each one matches */
+   synchronized List<IDBObject> find(List<Object> propValues) {
+      if (pending.size() > 0)
+         updatePending();
+      ArrayList<IDBObject> res = instsByKey.get(toKey(propValues));
+      return res == null ? new ArrayList<IDBObject>(0) : new ArrayList<IDBObject>(res);
+   }
+
+   private void updatePending() {
+      // Getting the values might fetch properties and mark the instance as pending again - those are picked up next time
+      IdentityHashMap<IDBObject,Boolean> toIndex = pending;
+      pending = new IdentityHashMap<IDBObject,Boolean>();
+      for (IDBObject inst:toIndex.keySet()) {
+         removeKey(inst);
+         Object key = getKey(inst);
+         ArrayList<IDBObject> insts = instsByKey.get(key);
+         if (insts == null) {
+            insts = new ArrayList<IDBObject>(1);
+            instsByKey.put(key, insts);
+         }
+         insts.add(inst);
+         keysByInst.put(inst, key);
+      }
+   }
+
+   private void removeKey(IDBObject inst) {
+      if (!keysByInst.containsKey(inst))
+         return;
+      Object oldKey = keysByInst.remove(inst);
+      ArrayList<IDBObject> insts = instsByKey.get(oldKey);
+      if (insts != null) {
+         for (int i = 0; i < insts.size(); i++) {
+            if (insts.get(i) == inst) {
+               insts.remove(i);
+               break;
+            }
+         }
+         if (insts.size() == 0)
+            instsByKey.remove(oldKey);
+      }
+   }
+
+   private Object getKey(IDBObject inst) {
+      DBTypeDescriptor instType = ((DBObject) inst.getDBObject()).dbTypeDesc;
+      int numProps = propNames.size();
+      Object[] vals = new Object[numProps];
+      for (int i = 0; i < numProps; i++) {
+         DBPropertyDescriptor prop = instType.getPropertyDescriptor(propNames.get(i));
+         IBeanMapper mapper = prop == null ? null : prop.getPropertyMapper();
+         // Read the field when there is one so we don't fetch the property here
+         vals[i] = mapper == null ? NO_VALUE : mapper.getPropertyValue(inst, true, false);
+      }
+      return toKey(Arrays.asList(vals));
+   }
+
+   private Object toKey(List<Object> vals) {
+      if (vals.size() == 1)
+         return normalize(vals.get(0));
+      ArrayList<Object> res = new ArrayList<Object>(vals.size());
+      for (Object val:vals)
+         res.add(normalize(val));
+      return res;
+   }
+
+   /** DynUtil.equalObjects treats numbers of different types as equal so use the same key for them */
+   private static Object normalize(Object val) {
+      if (val instanceof Integer || val instanceof Short || val instanceof Byte)
+         return Long.valueOf(((Number) val).longValue());
+      if (val instanceof Float || val instanceof Double) {
+         double d = ((Number) val).doubleValue();
+         if (d == Math.rint(d) && d >= Long.MIN_VALUE && d <= Long.MAX_VALUE)
+            return Long.valueOf((long) d);
+         return Double.valueOf(d);
+      }
+      return val;
+   }
+}
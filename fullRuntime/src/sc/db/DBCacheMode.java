@@ -0,0 +1,15 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.db;
+
+/** Controls how long instances stay in a DB type's instance cache - set with DBTypeSettings.cacheMode */
+public enum DBCacheMode {
+   /** Instances stay in the cache until they are evicted because of cacheMaxSize or expireTimeMillis */
+   Strong,
+   /** The cache holds soft references so the garbage collector can reclaim instances that are no longer used when memory is low */
+   Soft,
+   /** Instances used in a transaction are removed from the cache when that transaction is closed */
+   Transaction
+}
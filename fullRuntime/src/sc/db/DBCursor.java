@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.db;
+
+import sc.bind.BindingContext;
+import sc.bind.IListener;
+
+import java.io.Closeable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Returned by the cursor query methods in DBTypeDescriptor to iterate over a large query result without reading it all into memory.
+ * Rows are read from a forward-only ResultSet in chunks of fetchSize.  Like the list queries, the properties for each chunk are set
+ * with the binding events queued and then sent once the chunk is populated.
+ * <p>
+ * When useCache is false, instances that are not already in the type's cache are not added to it, so they can be garbage collected
+ * after they've been read.  The cursor holds a statement open on the transaction's connection so it should be closed when it's no
+ * longer needed.  It's closed automatically once the last row has been read.  Note that some drivers, like PostgreSQL's, only fetch
+ * rows in chunks when the connection is not in autoCommit mode - otherwise they read the entire result set when the query is run.
+ * </p>
+ */
+public class DBCursor<E extends IDBObject> implements Iterator<E>, Closeable {
+   private final DBTransaction transaction;
+   private final SelectQuery query;
+   private PreparedStatement st;
+   private ResultSet rs;
+   private final int fetchSize;
+   private final boolean useCache;
+
+   private List<IDBObject> chunk;
+   private int chunkIx = 0;
+   private boolean done = false;
+   private int numRows = 0;
+
+   DBCursor(DBTransaction transaction, SelectQuery query, PreparedStatement st, ResultSet rs, int fetchSize, boolean useCache) {
+      this.transaction = transaction;
+      this.query = query;
+      this.st = st;
+      this.rs = rs;
+      this.fetchSize = fetchSize <= 0 ? 100 : fetchSize;
+      this.useCache = useCache;
+   }
+
+   /** A cursor over results that are already in memory - e.g. for a data source that is disabled */
+   DBCursor(List<IDBObject> results) {
+      this(null, null, null, null, results.size(), true);
+      this.chunk = results;
+      this.done = true;
+   }
+
+   public boolean hasNext() {
+      while (chunk == null || chunkIx >= chunk.size()) {
+         if (done)
+            return false;
+         readChunk();
+      }
+      return true;
+   }
+
+   public E next() {
+      if (!hasNext())
+         throw new NoSuchElementException();
+      numRows++;
+      return (E) chunk.get(chunkIx++);
+   }
+
+   public void remove() {
+      throw new UnsupportedOperationException();
+   }
+
+   /** The number of results returned by next so far */
+   public int getNumRows() {
+      return numRows;
+   }
+
+   private void readChunk() {
+      // Drop the last chunk before reading the next one so those instances can be collected
+      chunk = null;
+      chunkIx = 0;
+      DBList<IDBObject> resList = new DBList<IDBObject>();
+      SelectQuery.MultiRowState state = new SelectQuery.MultiRowState(resList, useCache);
+      StringBuilder logSB = DBUtil.verbose ? new StringBuilder() : null;
+
+      boolean origDBChanges = transaction.applyingDBChanges;
+      BindingContext oldBindCtx = BindingContext.getBindingContext();
+      BindingContext ctx = new BindingContext(IListener.SyncType.QUEUE_VALIDATE_EVENTS);
+      boolean success = false;
+      try {
+         transaction.applyingDBChanges = true;
+         BindingContext.setBindingContext(ctx);
+         if (!query.readMultiRows(state, null, rs, fetchSize, logSB))
+            done = true;
+         chunk = state.resList;
+         success = true;
+         if (logSB != null)
+            DBUtil.info("Cursor read " + chunk.size() + " rows" + (done ? " (done)" : "") + ":" + logSB);
+      }
+      catch (SQLException exc) {
+         throw new IllegalArgumentException("*** Cursor read failed with SQL error: " + exc);
+      }
+      finally {
+         transaction.applyingDBChanges = origDBChanges;
+         if (!origDBChanges)
+            transaction.doFetchLater();
+         BindingContext.setBindingContext(oldBindCtx);
+         ctx.dispatchEvents(null);
+         if (done || !success)
+            close();
+      }
+   }
+
+   public void close() {
+      if (rs != null || st != null) {
+         DBUtil.close(null, st, rs);
+         rs = null;
+         st = null;
+      }
+      done = true;
+   }
+}
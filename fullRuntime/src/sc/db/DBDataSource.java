@@ -23,6 +23,12 @@ public class DBDataSource {
     * Set this to false for data sources that have a specific use and are only used by types that refer to them explicitly.
     */
    public boolean makeDefaultDataSource = true;
+   /**
+    * Set to the number of prepared statements to keep open for each connection in a transaction so statements run more than
+    * once reuse the same PreparedStatement.  They are closed when the transaction is committed, rolled back or closed.  The default
+    * of 0 prepares each statement when it's run.
+    */
+   public int statementCacheSize = 0;
    private boolean schemaReady = true;
    public javax.sql.DataSource dataSource;
 
@@ -0,0 +1,460 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.db;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The cache of instances for a DBTypeDescriptor, keyed by the id of the instance.  Lookups go through a ConcurrentHashMap and
+ * don't lock.  Changes are synchronized on this cache.
+ * <p>
+ * When maxSize is set, entries are kept in a ring in insertion order and evicted with the 'clock' algorithm: a lookup marks the
+ * entry as referenced, and when the cache is over its size the hand moves from the oldest entry.  It gives a referenced entry a
+ * second chance and evicts the first one that's not.  When idleTimeMillis is set, the same hand evicts entries that have not been
+ * used for that long.  Each put moves the hand a bounded number of steps, so eviction cost doesn't grow with the size of the cache.
+ * </p>
+ * <p>
+ * Evicting an entry calls DBTypeDescriptor.evictInstance to stop the instance.  That locks the DBObject so it's done after the entries
+ * to evict are taken out of the ring and the lock on this cache is released.  Instances with pending changes, a fetch in progress,
+ * or that are prototypes are not stopped and go back in the ring for a later pass.  A stopped instance that's still referenced
+ * restarts itself and goes back into the cache the next time it's used.
+ * </p>
+ * <p>
+ * The cache also keeps the DBCacheIndex for each FindBy query that's been run against it with queryCache.
+ * </p>
+ */
+public class DBInstanceCache {
+   // Max number of entries to examine in one pass when freeing space
+   private final static int MAX_SWEEP = 32;
+   // Number of entries examined on each put to find idle entries
+   private final static int IDLE_SWEEP = 2;
+
+   final DBTypeDescriptor typeDesc;
+   public final int maxSize;
+   public final long idleTimeMillis;
+   public final DBCacheMode mode;
+
+   private final ConcurrentHashMap<Object,Entry> index = new ConcurrentHashMap<Object,Entry>();
+   // Sentinel for the ring of entries - head.next is the oldest
+   private final Entry head = new Entry(null);
+   private final ReferenceQueue<IDBObject> clearedRefs;
+   private int size = 0;
+
+   // Indexes for FindBy queries over the cached instances - created by getIndex and replaced, not modified, when one is added
+   private volatile DBCacheIndex[] indexes = null;
+
+   // Set when DBTypeDescriptor.initCache replaces this cache - changes made after that are forwarded to the new cache
+   private DBInstanceCache replacedBy;
+
+   private final AtomicLong numHits = new AtomicLong();
+   private final AtomicLong numMisses = new AtomicLong();
+   private long numEvictions = 0;
+   private long numCollected = 0;
+
+   static class Entry {
+      final Object id;
+      IDBObject inst;
+      SoftInst softInst;
+      volatile boolean referenced;
+      volatile long lastAccess;
+      DBInstanceCache cache;
+      // The last transaction that used this entry in Transaction mode
+      DBTransaction lastTx;
+      Entry prev, next;
+
+      Entry(Object id) {
+         this.id = id;
+         prev = next = this;
+      }
+
+      IDBObject getInst() {
+         return softInst != null ? softInst.get() : inst;
+      }
+   }
+
+   static class SoftInst extends SoftReference<IDBObject> {
+      final Entry entry;
+      SoftInst(IDBObject inst, Entry entry, ReferenceQueue<IDBObject> queue) {
+         super(inst, queue);
+         this.entry = entry;
+      }
+   }
+
+   public DBInstanceCache(DBTypeDescriptor typeDesc, int maxSize, long idleTimeMillis, DBCacheMode mode) {
+      this.typeDesc = typeDesc;
+      this.maxSize = maxSize;
+      this.idleTimeMillis = idleTimeMillis;
+      this.mode = mode == null ? DBCacheMode.Strong : mode;
+      clearedRefs = this.mode == DBCacheMode.Soft ? new ReferenceQueue<IDBObject>() : null;
+   }
+
+   public IDBObject get(Object id) {
+      Entry ent = index.get(id);
+      IDBObject res = ent == null ? null : ent.getInst();
+      if (res == null) {
+         numMisses.incrementAndGet();
+         return null;
+      }
+      numHits.incrementAndGet();
+      touch(ent);
+      return res;
+   }
+
+   private void touch(Entry ent) {
+      if (maxSize > 0)
+         ent.referenced = true;
+      if (idleTimeMillis > 0)
+         ent.lastAccess = System.currentTimeMillis();
+      if (mode == DBCacheMode.Transaction) {
+         DBTransaction tx = DBTransaction.getCurrent();
+         if (tx != null && ent.lastTx != tx) {
+            ent.lastTx = tx;
+            tx.addCacheEntry(ent);
+         }
+      }
+   }
+
+   /** Adds or replaces the instance for this id, returning the old one */
+   public IDBObject put(Object id, IDBObject inst) {
+      DBInstanceCache newCache;
+      IDBObject oldInst = null;
+      List<Entry> toEvict = null;
+      synchronized (this) {
+         newCache = replacedBy;
+         if (newCache == null) {
+            expungeCollected();
+            Entry ent = newEntry(id, inst);
+            Entry old = index.put(id, ent);
+            if (old != null) {
+               unlink(old);
+               oldInst = old.getInst();
+               if (oldInst != inst)
+                  indexRemoved(oldInst);
+            }
+            else
+               size++;
+            link(ent);
+            indexAdded(inst);
+            touch(ent);
+            toEvict = sweep(ent.lastAccess);
+         }
+      }
+      if (newCache != null)
+         return newCache.put(id, inst);
+      evictEntries(toEvict);
+      return oldInst;
+   }
+
+   private Entry newEntry(Object id, IDBObject inst) {
+      Entry ent = new Entry(id);
+      ent.cache = this;
+      if (mode == DBCacheMode.Soft)
+         ent.softInst = new SoftInst(inst, ent, clearedRefs);
+      else
+         ent.inst = inst;
+      ent.lastAccess = System.currentTimeMillis();
+      return ent;
+   }
+
+   public IDBObject remove(Object id) {
+      DBInstanceCache newCache;
+      IDBObject inst = null;
+      synchronized (this) {
+         newCache = replacedBy;
+         Entry ent = index.remove(id);
+         if (ent != null) {
+            unlink(ent);
+            size--;
+            inst = ent.getInst();
+            indexRemoved(inst);
+         }
+      }
+      // Removed from this cache first so replaceWith won't copy it over after this
+      if (newCache != null)
+         return newCache.remove(id);
+      return inst;
+   }
+
+   /**
+    * Copies the entries, oldest first, into newCache and forwards any later put or remove to it.  An entry is not copied if newCache
+    * already has that id or if it was removed from this cache in the meantime.
+    */
+   void replaceWith(DBInstanceCache newCache) {
+      ArrayList<Entry> ents;
+      synchronized (this) {
+         ents = new ArrayList<Entry>(size);
+         for (Entry ent = head.next; ent != head; ent = ent.next)
+            ents.add(ent);
+         replacedBy = newCache;
+      }
+      for (Entry ent:ents)
+         newCache.copyEntry(this, ent);
+   }
+
+   private void copyEntry(DBInstanceCache oldCache, Entry oldEnt) {
+      List<Entry> toEvict = null;
+      synchronized (this) {
+         IDBObject inst = oldEnt.getInst();
+         if (inst == null || index.containsKey(oldEnt.id) || oldCache.index.get(oldEnt.id) != oldEnt)
+            return;
+         Entry ent = newEntry(oldEnt.id, inst);
+         index.put(ent.id, ent);
+         size++;
+         link(ent);
+         indexAdded(inst);
+         toEvict = sweep(ent.lastAccess);
+      }
+      evictEntries(toEvict);
+   }
+
+   public int size() {
+      return size;
+   }
+
+   /** Returns a snapshot of the instances in the cache */
+   public List<IDBObject> values() {
+      ArrayList<IDBObject> res = new ArrayList<IDBObject>(index.size());
+      for (Entry ent:index.values()) {
+         IDBObject inst = ent.getInst();
+         if (inst != null)
+            res.add(inst);
+      }
+      return res;
+   }
+
+   public synchronized void clear() {
+      index.clear();
+      head.next = head.prev = head;
+      size = 0;
+      DBCacheIndex[] idxs = indexes;
+      if (idxs != null) {
+         for (DBCacheIndex idx:idxs)
+            idx.clear();
+      }
+   }
+
+   /**
+    * Returns the index for queries on these properties, creating it the first time.  Returns null for properties that can't be
+    * indexed - paths like a.b since a change to b is not seen by this cache - and in Soft mode, where the index would keep
+    * the instances from being collected.
+    */
+   DBCacheIndex getIndex(List<String> propNames) {
+      DBCacheIndex[] idxs = indexes;
+      if (idxs != null) {
+         for (DBCacheIndex idx:idxs)
+            if (idx.propNames.equals(propNames))
+               return idx;
+      }
+      if (mode == DBCacheMode.Soft)
+         return null;
+      for (String propName:propNames)
+         if (propName.indexOf('.') != -1)
+            return null;
+      synchronized (this) {
+         idxs = indexes;
+         if (idxs != null) {
+            for (DBCacheIndex idx:idxs)
+               if (idx.propNames.equals(propNames))
+                  return idx;
+         }
+         DBCacheIndex newIdx = new DBCacheIndex(new ArrayList<String>(propNames));
+         for (Entry ent = head.next; ent != head; ent = ent.next) {
+            IDBObject inst = ent.getInst();
+            if (inst != null)
+               newIdx.added(inst);
+         }
+         DBCacheIndex[] newIdxs;
+         if (idxs == null)
+            newIdxs = new DBCacheIndex[1];
+         else {
+            newIdxs = new DBCacheIndex[idxs.length + 1];
+            System.arraycopy(idxs, 0, newIdxs, 0, idxs.length);
+         }
+         newIdxs[newIdxs.length - 1] = newIdx;
+         indexes = newIdxs;
+         return newIdx;
+      }
+   }
+
+   /** Called when a property of a cached instance is set so the indexes on that property are updated */
+   void propertyChanged(IDBObject inst, String propName) {
+      DBCacheIndex[] idxs = indexes;
+      if (idxs != null) {
+         for (DBCacheIndex idx:idxs)
+            idx.changed(inst, propName);
+      }
+   }
+
+   private void indexAdded(IDBObject inst) {
+      DBCacheIndex[] idxs = indexes;
+      if (idxs != null && inst != null) {
+         for (DBCacheIndex idx:idxs)
+            idx.added(inst);
+      }
+   }
+
+   private void indexRemoved(IDBObject inst) {
+      DBCacheIndex[] idxs = indexes;
+      if (idxs != null && inst != null) {
+         for (DBCacheIndex idx:idxs)
+            idx.removed(inst);
+      }
+   }
+
+   private void link(Entry ent) {
+      ent.prev = head.prev;
+      ent.next = head;
+      head.prev.next = ent;
+      head.prev = ent;
+   }
+
+   private void unlink(Entry ent) {
+      ent.prev.next = ent.next;
+      ent.next.prev = ent.prev;
+      ent.prev = ent.next = ent;
+   }
+
+   private void moveToTail(Entry ent) {
+      unlink(ent);
+      link(ent);
+   }
+
+   /**
+    * Moves the clock hand from the oldest entry, picking entries until the cache will be under maxSize and idle entries along the way.
+    * The entries are taken out of the ring and returned - the caller passes them to evictEntries after releasing the lock.
+    */
+   private List<Entry> sweep(long now) {
+      int toFree = maxSize > 0 ? size - maxSize : 0;
+      if (toFree <= 0 && idleTimeMillis <= 0)
+         return null;
+      int limit = toFree > 0 ? MAX_SWEEP : IDLE_SWEEP;
+      List<Entry> res = null;
+      for (int i = 0; i < limit && head.next != head; i++) {
+         Entry ent = head.next;
+         boolean idle = idleTimeMillis > 0 && ent.lastAccess + idleTimeMillis < now;
+         if (!idle) {
+            if (toFree <= 0)
+               break;
+            if (ent.referenced) {
+               ent.referenced = false;
+               moveToTail(ent);
+               continue;
+            }
+         }
+         unlink(ent);
+         if (res == null)
+            res = new ArrayList<Entry>();
+         res.add(ent);
+         toFree--;
+      }
+      return res;
+   }
+
+   /** Stops the instances for entries returned by sweep and removes them - must be called without the lock on this cache */
+   private int evictEntries(List<Entry> ents) {
+      if (ents == null)
+         return 0;
+      int ct = 0;
+      for (Entry ent:ents) {
+         IDBObject inst = ent.getInst();
+         boolean stopped = inst == null || typeDesc.evictInstance(inst);
+         synchronized (this) {
+            if (stopped) {
+               // The entry might have been replaced or removed while the instance was being stopped
+               if (index.remove(ent.id, ent)) {
+                  size--;
+                  numEvictions++;
+                  indexRemoved(inst);
+                  ct++;
+               }
+            }
+            // Can't stop it now - put it back for a later pass if it's still in the cache
+            else if (index.get(ent.id) == ent && ent.next == ent)
+               link(ent);
+         }
+      }
+      return ct;
+   }
+
+   /** Evicts the entries not used for idleTimeMillis - examines every entry in the cache */
+   public int evictIdle(long idleTime) {
+      long now = System.currentTimeMillis();
+      ArrayList<Entry> toEvict = new ArrayList<Entry>();
+      synchronized (this) {
+         Entry next;
+         for (Entry ent = head.next; ent != head; ent = next) {
+            next = ent.next;
+            IDBObject inst = ent.getInst();
+            long lastUsed = ent.lastAccess;
+            if (inst != null) {
+               // Also consider the time the instance was last used in a transaction
+               long instLastUsed = ((DBObject) inst.getDBObject()).instanceLastUsed;
+               if (instLastUsed > lastUsed)
+                  lastUsed = instLastUsed;
+            }
+            if (lastUsed + idleTime < now) {
+               unlink(ent);
+               toEvict.add(ent);
+            }
+         }
+      }
+      return evictEntries(toEvict);
+   }
+
+   /** Called when a transaction that used this entry is closed in Transaction mode */
+   void evictForTransaction(Entry ent, DBTransaction tx) {
+      synchronized (this) {
+         // Another transaction has used it since
+         if (ent.lastTx != tx)
+            return;
+         ent.lastTx = null;
+         if (index.get(ent.id) != ent)
+            return;
+         unlink(ent);
+      }
+      evictEntries(Collections.singletonList(ent));
+   }
+
+   private void expungeCollected() {
+      if (clearedRefs == null)
+         return;
+      Object ref;
+      while ((ref = clearedRefs.poll()) != null) {
+         Entry ent = ((SoftInst) ref).entry;
+         if (index.remove(ent.id, ent)) {
+            unlink(ent);
+            size--;
+            numCollected++;
+         }
+      }
+   }
+
+   public long getNumHits() {
+      return numHits.get();
+   }
+
+   public long getNumMisses() {
+      return numMisses.get();
+   }
+
+   public long getNumEvictions() {
+      return numEvictions;
+   }
+
+   public String getStats() {
+      return "cache for: " + typeDesc.getTypeName() + " size: " + size + (maxSize > 0 ? "/" + maxSize : "") + " hits: " + numHits.get() +
+              " misses: " + numMisses.get() + " evictions: " + numEvictions + (clearedRefs != null ? " collected: " + numCollected : "");
+   }
+
+   public String toString() {
+      return getStats();
+   }
+}
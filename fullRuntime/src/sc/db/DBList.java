@@ -4,6 +4,8 @@
 
 package sc.db;
 
+import sc.bind.ListChange;
+
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
@@ -50,29 +52,26 @@ public class DBList<E extends IDBObject> extends java.util.ArrayList<E> implemen
          res = listUpdate.newList.add(value);
       else
          res = super.add(value);
-      sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+      ListChange.sendInsert(this, size() - 1, 1);
       return res;
    }
 
    public boolean remove(Object o) {
       TxListUpdate<E> listUpdate = dbObject == null ? null : dbObject.getListUpdate(this, true, false);
       boolean res;
+      int ix = indexOf(o);
+      if (ix == -1)
+         return false;
       if (listUpdate != null)
          res = listUpdate.newList.remove(o);
       else {
-         if (refIds != null) {
-            int ix = indexOf(o);
-            if (ix == -1)
-               return false;
-            super.remove(ix);
+         super.remove(ix);
+         if (refIds != null)
             refIds.remove(ix);
-            res = true;
-         }
-         else
-            res = super.remove(o);
+         res = true;
       }
       if (res) {
-         sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+         ListChange.sendRemove(this, ix, 1);
          refIds = null;
       }
       return res;
@@ -81,22 +80,26 @@ public class DBList<E extends IDBObject> extends java.util.ArrayList<E> implemen
    public boolean addAll(Collection<? extends E> c) {
       TxListUpdate<E> listUpdate = dbObject == null ? null : dbObject.getListUpdate(this, true, false);
       boolean res;
+      int sz = size();
       if (listUpdate != null)
          res = listUpdate.newList.addAll(c);
       else
          res = super.addAll(c);
-      sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+      if (res)
+         ListChange.sendInsert(this, sz, size() - sz);
       return res;
    }
 
    public boolean addAll(int index, Collection<? extends E> c) {
       TxListUpdate<E> listUpdate = dbObject == null ? null : dbObject.getListUpdate(this, true, false);
       boolean res;
+      int sz = size();
       if (listUpdate != null)
          res = listUpdate.newList.addAll(index, c);
       else
          res = super.addAll(index, c);
-      sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+      if (res)
+         ListChange.sendInsert(this, index, size() - sz);
       return res;
    }
 
@@ -129,7 +132,7 @@ public class DBList<E extends IDBObject> extends java.util.ArrayList<E> implemen
       if (sz != 0) {
          // Creating the change with an empty list so no need to clear anything
          TxListUpdate<E> listUpdate = dbObject == null ? null : dbObject.getListUpdate(this, true, true);
-         sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+         ListChange.sendRemove(this, 0, sz);
       }
       refIds = null;
    }
@@ -140,9 +143,9 @@ public class DBList<E extends IDBObject> extends java.util.ArrayList<E> implemen
       if (listUpdate != null)
          res = (E) listUpdate.newList.set(index, element);
       else
-         res = (E) set(index, element);
+         res = super.set(index, element);
       if (res != element && (res == null || !res.equals(element))) {
-         sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+         ListChange.sendReplace(this, index, 1);
          if (refIds != null)
             refIds.set(index, null);
       }
@@ -161,7 +164,7 @@ public class DBList<E extends IDBObject> extends java.util.ArrayList<E> implemen
             refIds.add(index, null);
          }
       }
-      sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+      ListChange.sendInsert(this, index, 1);
    }
 
    public E remove(int index) {
@@ -174,7 +177,7 @@ public class DBList<E extends IDBObject> extends java.util.ArrayList<E> implemen
          if (refIds != null && index < refIds.size())
             refIds.remove(index);
       }
-      sc.bind.Bind.sendEvent(sc.bind.IListener.VALUE_CHANGED, this, null);
+      ListChange.sendRemove(this, index, 1);
       return res;
    }
 
@@ -451,7 +451,42 @@ public class DBObject implements IDBObject {
       return res;
    }
 
+   /**
+    * Returns the fetch query for this property when it should be fetched along with other instances in one batch, marking the
+    * query as pending for this instance.  Returns null when the property is already fetched or being fetched, when the select group
+    * is not batched, or when this instance has pending changes - those go through dbFetch.  The caller must call endBatchFetch.
+    */
+   SelectGroupQuery startBatchFetch(String property) {
+      if (replacedBy != null || unknownType)
+         return null;
+      SelectGroupQuery selectQuery = dbTypeDesc.getFetchQueryForProperty(property);
+      if (selectQuery == null || selectQuery.queryNumber >= 31 || !selectQuery.canBatchFetch())
+         return null;
+      int shift = selectQuery.queryNumber << 1;
+      synchronized (pendingOps) {
+         synchronized (this) {
+            if ((flags & (TRANSIENT | PROTOTYPE | REMOVED | STOPPED)) != 0 || pendingOps.size() > 0)
+               return null;
+            if (((fstate >> shift) & (PENDING | FETCHED)) != 0)
+               return null;
+            fstate = fstate | (PENDING << shift);
+         }
+      }
+      return selectQuery;
+   }
+
+   /** Clears the pending state set by startBatchFetch, marking the query as fetched if the row was selected */
+   synchronized void endBatchFetch(SelectGroupQuery selectQuery, boolean selected) {
+      int shift = selectQuery.queryNumber << 1;
+      fstate = fstate & ~(PENDING << shift);
+      if (selected)
+         fstate = fstate | (FETCHED << shift);
+      notifyAll();
+   }
+
    public PropUpdate dbSetIdProp(String propertyName, Object propertyValue, Object oldVal)  {
+      restartIfNecessary();
+
       if (replacedBy != null)
          return ((DBObject) replacedBy.getDBObject()).dbSetIdProp(propertyName, propertyValue, oldVal);
 
@@ -472,6 +507,14 @@ public class DBObject implements IDBObject {
     * in a reverse relationship change.
     */
    public PropUpdate dbSetProp(String propertyName, Object propertyValue, Object oldValue)  {
+      PropUpdate res = setPropInternal(propertyName, propertyValue, oldValue);
+      // A null result means the setX method is about to update the field
+      if (res == null && propertyValue != oldValue)
+         dbTypeDesc.cachedPropertyChanged(this, propertyName);
+      return res;
+   }
+
+   private PropUpdate setPropInternal(String propertyName, Object propertyValue, Object oldValue)  {
       restartIfNecessary();
 
       if (replacedBy != null)
@@ -553,6 +596,8 @@ public class DBObject implements IDBObject {
    }
 
    public void dbInsert(boolean queue) {
+      restartIfNecessary();
+
       if (replacedBy != null) {
          replacedBy.dbInsert(queue);
          return;
@@ -802,6 +847,26 @@ public class DBObject implements IDBObject {
       flags = STOPPED;
    }
 
+   /**
+    * Called when this instance is evicted from the type's cache.  Stops the instance unless it has pending changes, a fetch is in
+    * progress, or it's in a state that can't be stopped.  Returns false if the instance should stay in the cache.
+    */
+   boolean stopForEviction() {
+      synchronized (pendingOps) {
+         synchronized (this) {
+            if ((flags & (PENDING_INSERT | PENDING_DELETE | TRANSIENT | PROTOTYPE | REMOVED | STOPPED)) != 0 || pendingOps.size() > 0)
+               return false;
+            // Any query with the PENDING bit set is being fetched
+            if ((fstate & 0x5555555555555555L) != 0)
+               return false;
+            if (changeableListeners != null)
+               clearChangeableListeners();
+            flags = STOPPED;
+            return true;
+         }
+      }
+   }
+
    public synchronized void markRemoved() {
       if ((flags & (PENDING_INSERT | TRANSIENT | PROTOTYPE | STOPPED)) != 0)
          throw new IllegalArgumentException("Invalid state for markRemoved: " + getStateString());
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.db;
+
+import java.util.List;
+
+/**
+ * One page of results returned by the keyset pagination methods in DBTypeDescriptor - queryPage, findByPage, findAllPage and searchQueryPage.
+ * Pass nextKey as the afterValues for the next call with the same orderByProps to get the following page.  Unlike paging with startIx,
+ * the database seeks to the next row using the order by columns so deep pages cost the same as the first one.
+ */
+public class DBPage<E extends IDBObject> {
+   /** The rows in this page - at most maxResults */
+   public final List<E> results;
+   /** True if there are more rows after this page */
+   public final boolean hasMore;
+   /** The order by properties used for the query, including the id properties added to make the order unique */
+   public final List<String> orderByProps;
+   /** The values of orderByProps for the last row in this page, or null if it's empty */
+   public final Object[] nextKey;
+
+   public DBPage(List<E> results, boolean hasMore, List<String> orderByProps, Object[] nextKey) {
+      this.results = results;
+      this.hasMore = hasMore;
+      this.orderByProps = orderByProps;
+      this.nextKey = nextKey;
+   }
+
+   public String toString() {
+      return "page of " + results.size() + (hasMore ? " with more" : "");
+   }
+}
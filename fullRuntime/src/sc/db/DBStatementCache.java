@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.db;
+
+import java.sql.PreparedStatement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An LRU cache of the prepared statements for one connection in a DBTransaction, keyed by the SQL string.  A statement is
+ * removed from the cache while it's in use and put back when it's released so a nested query with the same SQL gets its own
+ * statement.  The least recently used statement is closed when the cache is over maxSize.  Enabled with DBDataSource.statementCacheSize.
+ */
+class DBStatementCache extends LinkedHashMap<String,PreparedStatement> {
+   private static final long serialVersionUID = 1L;
+
+   final int maxSize;
+   int numHits, numMisses;
+
+   DBStatementCache(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+   }
+
+   protected boolean removeEldestEntry(Map.Entry<String,PreparedStatement> eldest) {
+      if (size() > maxSize) {
+         DBUtil.close(eldest.getValue());
+         return true;
+      }
+      return false;
+   }
+
+   void closeAll() {
+      for (PreparedStatement st:values())
+         DBUtil.close(st);
+      clear();
+   }
+}
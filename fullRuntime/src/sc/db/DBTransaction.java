@@ -7,6 +7,7 @@ package sc.db;
 import sc.util.LinkedIdentityHashSet;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
 
@@ -43,6 +44,9 @@ public class DBTransaction {
 
    public String lastThreadName;
 
+   // Cache entries used by this transaction for types using DBCacheMode.Transaction - evicted when the transaction is closed
+   ArrayList<DBInstanceCache.Entry> cacheEntries;
+
    public DBTransaction() {
    }
 
@@ -141,6 +145,7 @@ public class DBTransaction {
             op.cancel();
          }
       }
+      closeStatements();
       if (connections != null) {
          TreeMap<String,Connection> toRollback = connections;
          if (!autoCommit) {
@@ -159,6 +164,7 @@ public class DBTransaction {
    /** Flush pending operations and commit any transactions */
    public void commit() {
       flush();
+      closeStatements();
       if (connections != null) {
          TreeMap<String,Connection> toCommit = connections;
          if (!autoCommit) {
@@ -175,6 +181,8 @@ public class DBTransaction {
    }
 
    public void close() {
+      closeStatements();
+      statementCaches = null;
       if (connections != null) {
          TreeMap<String,Connection> toClose = connections;
          connections = null;
@@ -182,10 +190,24 @@ public class DBTransaction {
             DBUtil.close(conn);
          }
       }
+      if (cacheEntries != null) {
+         ArrayList<DBInstanceCache.Entry> toEvict = cacheEntries;
+         cacheEntries = null;
+         for (DBInstanceCache.Entry ent:toEvict)
+            ent.cache.evictForTransaction(ent, this);
+      }
       currentTransaction.remove();
    }
 
+   void addCacheEntry(DBInstanceCache.Entry ent) {
+      if (cacheEntries == null)
+         cacheEntries = new ArrayList<DBInstanceCache.Entry>();
+      cacheEntries.add(ent);
+   }
+
    TreeMap<String,Connection> connections = null;
+   // Prepared statements for each connection in data sources with statementCacheSize set
+   HashMap<String,DBStatementCache> statementCaches = null;
 
    public Connection getConnection(String dataSource) {
       Connection conn;
@@ -199,9 +221,67 @@ public class DBTransaction {
       }
       conn = DBUtil.createConnection(dataSource, autoCommit);
       connections.put(dataSource, conn);
+      DBDataSource dbDS = DataSourceManager.getDBDataSource(dataSource);
+      if (dbDS != null && dbDS.statementCacheSize > 0) {
+         if (statementCaches == null)
+            statementCaches = new HashMap<String,DBStatementCache>();
+         statementCaches.put(dataSource, new DBStatementCache(dbDS.statementCacheSize));
+      }
       return conn;
    }
 
+   /**
+    * Returns a PreparedStatement for the sql on the connection for the data source - reusing a cached statement when
+    * DBDataSource.statementCacheSize is set.  Pass the statement to releaseStatement rather than closing it.
+    */
+   public PreparedStatement prepareStatement(String dataSource, String sql) throws SQLException {
+      Connection conn = getConnection(dataSource);
+      DBStatementCache cache = statementCaches == null ? null : statementCaches.get(dataSource);
+      if (cache != null) {
+         PreparedStatement st = cache.remove(sql);
+         if (st != null) {
+            cache.numHits++;
+            return st;
+         }
+         cache.numMisses++;
+      }
+      return conn.prepareStatement(sql);
+   }
+
+   /** Called when done with a statement from prepareStatement to put it back in the statement cache or close it */
+   public void releaseStatement(String dataSource, String sql, PreparedStatement st) {
+      if (st == null)
+         return;
+      DBStatementCache cache = statementCaches == null ? null : statementCaches.get(dataSource);
+      if (cache == null) {
+         DBUtil.close(st);
+         return;
+      }
+      try {
+         st.clearParameters();
+      }
+      catch (SQLException exc) {
+         DBUtil.close(st);
+         return;
+      }
+      PreparedStatement old = cache.put(sql, st);
+      // Nested use of the same sql - keep just one of them
+      if (old != null && old != st)
+         DBUtil.close(old);
+   }
+
+   /** Closes the cached statements - the caches stay in place as long as the connections are open */
+   private void closeStatements() {
+      if (statementCaches != null) {
+         for (Map.Entry<String,DBStatementCache> ent:statementCaches.entrySet()) {
+            DBStatementCache cache = ent.getValue();
+            if (DBUtil.verbose && cache.numHits > 0)
+               DBUtil.verbose("Statement cache for: " + ent.getKey() + " hits: " + cache.numHits + " misses: " + cache.numMisses);
+            cache.closeAll();
+         }
+      }
+   }
+
    public String toString() {
       return "tx:" + lastThreadName + (connections == null ? " (new)" : " pending dataSources:" + connections.keySet()) + (operationList == null ? "" : " - " + operationList.size() + " queued op");
    }
@@ -223,7 +303,8 @@ public class DBTransaction {
       if (toFetchLater != null) {
          Map<IDBObject,List<String>> toFetch = toFetchLater;
          toFetchLater = null;
-         // TODO: look for some common types, properties and batch up the queries to avoid the N+1 select statements
+         batchFetch(toFetch);
+         // Anything not fetched in a batch is fetched one instance at a time here
          for (Map.Entry<IDBObject,List<String>> fetchEnt:toFetch.entrySet()) {
             IDBObject wrapper = fetchEnt.getKey();
             DBObject dbObj = (DBObject) wrapper.getDBObject();
@@ -236,4 +317,46 @@ public class DBTransaction {
          }
       }
    }
+
+   /**
+    * Groups the instances to fetch by the select group query for each property and, for groups with batch fetching enabled,
+    * fetches each group with one query per batch instead of one for each instance.
+    */
+   private void batchFetch(Map<IDBObject,List<String>> toFetch) {
+      if (toFetch.size() < 2)
+         return;
+      LinkedHashMap<SelectGroupQuery,List<DBObject>> batches = null;
+      for (Map.Entry<IDBObject,List<String>> fetchEnt:toFetch.entrySet()) {
+         DBObject dbObj = (DBObject) fetchEnt.getKey().getDBObject();
+         for (String prop:fetchEnt.getValue()) {
+            // Returns null if the query is already fetched for this instance, including by another property in this list
+            SelectGroupQuery query = dbObj.startBatchFetch(prop);
+            if (query == null)
+               continue;
+            if (batches == null)
+               batches = new LinkedHashMap<SelectGroupQuery,List<DBObject>>();
+            List<DBObject> batch = batches.get(query);
+            if (batch == null) {
+               batch = new ArrayList<DBObject>();
+               batches.put(query, batch);
+            }
+            batch.add(dbObj);
+         }
+      }
+      if (batches == null)
+         return;
+      for (Map.Entry<SelectGroupQuery,List<DBObject>> batchEnt:batches.entrySet()) {
+         List<DBObject> batch = batchEnt.getValue();
+         if (DBUtil.verbose)
+            DBUtil.verbose("Batch fetching: " + batchEnt.getKey().queryName + " for " + batch.size() + " instances of: " + batchEnt.getKey().dbTypeDesc);
+         try {
+            batchEnt.getKey().batchSelectProperties(this, batch);
+         }
+         catch (RuntimeException exc) {
+            // The instances are no longer pending so they will be fetched one at a time
+            System.err.println("*** Batch fetch query failed: " + exc);
+            exc.printStackTrace();
+         }
+      }
+   }
 }
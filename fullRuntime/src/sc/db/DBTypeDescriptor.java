@@ -14,7 +14,6 @@ import sc.util.StringUtil;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Predicate;
 
 /**
  * Stores the metadata for a given type in the system that represents the mapping to a persistence storage
@@ -126,10 +125,24 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
    public String defaultFetchGroup;
 
    /** The cache of instances for this type but only if baseType = null - otherwise, we use the baseType's typeInstances cache */
-   // TODO: need a way to expire the cache. I'm thinking framework hooks installed by type to control the behavior:
-   // LRU cache, flush at the end of a transaction for all objects touched in that transaction, or for objects cached
-   // in a ScopeContext, they will get removed when the scope context is disposed (e.g. per session).
-   public ConcurrentHashMap<Object,IDBObject> typeInstances = null;
+   // TODO: for objects cached in a ScopeContext, remove them when the scope context is disposed (e.g. per session).
+   public DBInstanceCache typeInstances = null;
+
+   /** Max number of instances in the typeInstances cache or -1 for no limit - set from DBTypeSettings.cacheMaxSize */
+   public int cacheMaxSize = -1;
+   /** Instances not used for this long are evicted from the cache or -1 to keep them - set from DBTypeSettings.expireTimeMillis */
+   public long cacheIdleTimeMillis = -1;
+   public DBCacheMode cacheMode = DBCacheMode.Strong;
+   /** When true, queryCache uses a hash index over the cached instances for the properties of FindBy queries rather than scanning them */
+   public boolean cacheIndexEnabled = true;
+
+   /**
+    * Max number of instances to fetch in one query when a select group is fetched for several instances at once - e.g. for the
+    * references loaded along with a query result.  0 disables batch fetching - set from DBTypeSettings.batchFetchSize
+    */
+   public int batchFetchSize = 0;
+   /** When not null, batchFetchSize applies to only these select groups - set from DBTypeSettings.batchFetchGroups */
+   public List<String> batchFetchGroups = null;
 
    public List<BaseQueryDescriptor> queries = null;
    private Map<String,NamedQueryDescriptor> namedQueryIndex = null;
@@ -460,6 +473,13 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
    // and ensure we only queue a single query at a time for that property group, even if requested by more than
    // one thread.
    Map<String, SelectGroupQuery> propQueriesIndex = new HashMap<String, SelectGroupQuery>();
+
+   /** Set to false to build the SelectGroupQuery with a prototype for every query and count call */
+   public static boolean useQueryPlans = true;
+   /** When there are more query shapes than this for a type, the cached plans are discarded and rebuilt as they are used */
+   public static int MaxQueryPlans = 512;
+   /** Plans for query and count indexed by select group and shape of the Query - see initPlannedGroupQuery */
+   Map<String,QueryPlan> queryPlans = new ConcurrentHashMap<String,QueryPlan>();
    Map<String,DBQuery> selectQueriesIndex = new HashMap<String,DBQuery>();
    ArrayList<DBQuery> selectQueriesList = new ArrayList<DBQuery>();
 
@@ -626,6 +646,49 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
       return findBy(null, null, null, orderByNames, startIx, maxResults);
    }
 
+   /**
+    * Like findAll but returns a DBCursor that reads the results fetchSize rows at a time.  Set useCache to false to avoid adding the
+    * instances returned to the cache - e.g. for an export that reads every row once.  The cursor should be closed when it's not read to the end.
+    */
+   public DBCursor<? extends IDBObject> findAllCursor(List<String> orderByNames, int fetchSize, boolean useCache) {
+      return findByCursor(null, null, null, orderByNames, fetchSize, useCache);
+   }
+
+   public DBCursor<? extends IDBObject> findByCursor(List<String> propNames, List<Object> propValues, String selectGroup, List<String> orderByNames, int fetchSize, boolean useCache) {
+      IDBObject proto = initPrototypeForQuery(propNames, propValues);
+      try {
+         DBObject protoDB = (DBObject) proto.getDBObject();
+         SelectGroupQuery groupQuery = initQuery(selectGroup, propNames, true);
+         addPropsToQuery(groupQuery, protoDB, propNames, true);
+         addParamValues(groupQuery, protoDB, propNames, QCombine.And);
+         groupQuery.setQueryAttributes(orderByNames, 0, 0);
+         return groupQuery.openCursor(DBTransaction.getOrCreate(), protoDB, fetchSize, useCache);
+      }
+      finally {
+         DynUtil.dispose(proto);
+      }
+   }
+
+   /** Keyset pagination version of findAll - see queryPage */
+   public DBPage<? extends IDBObject> findAllPage(List<String> orderByNames, Object[] afterValues, int maxResults) {
+      return findByPage(null, null, null, orderByNames, afterValues, maxResults);
+   }
+
+   /** Keyset pagination version of findBy - see queryPage */
+   public DBPage<? extends IDBObject> findByPage(List<String> propNames, List<Object> propValues, String selectGroup, List<String> orderByNames, Object[] afterValues, int maxResults) {
+      IDBObject proto = initPrototypeForQuery(propNames, propValues);
+      try {
+         DBObject protoDB = (DBObject) proto.getDBObject();
+         SelectGroupQuery groupQuery = initQuery(selectGroup, propNames, true);
+         addPropsToQuery(groupQuery, protoDB, propNames, true);
+         addParamValues(groupQuery, protoDB, propNames, QCombine.And);
+         return runPageQuery(groupQuery, orderByNames, afterValues, maxResults, protoDB);
+      }
+      finally {
+         DynUtil.dispose(proto);
+      }
+   }
+
    public List<? extends IDBObject> findBy(List<String> propNames, List<Object> propValues, String selectGroup, List<String> orderByNames, int startIx, int maxResults) {
       IDBObject proto = initPrototypeForQuery(propNames, propValues);
       try {
@@ -734,6 +797,21 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
 
    public List<? extends IDBObject> searchQuery(String text, List<String> propNames, List<Object> propValues, String selectGroup, List<String> orderByProps, int startIx, int maxResults) {
       IDBObject proto = propNames == null ? null : initPrototypeForQuery(propNames, propValues);
+      SelectGroupQuery groupQuery = initSearchGroupQuery(text, propNames, selectGroup, proto);
+      groupQuery.setQueryAttributes(orderByProps, startIx, maxResults);
+
+      DBTransaction curTx = DBTransaction.getOrCreate();
+
+      try {
+         return groupQuery.runQuery(curTx, null);
+      }
+      finally {
+         if (proto != null)
+            DynUtil.dispose(proto);
+      }
+   }
+
+   private SelectGroupQuery initSearchGroupQuery(String text, List<String> propNames, String selectGroup, IDBObject proto) {
       SelectGroupQuery groupQuery = initQuery(selectGroup, propNames, true);
       if (proto != null) {
          DBObject protoDB = (DBObject) proto.getDBObject();
@@ -747,12 +825,15 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
       if (proto != null && text != null) {
          groupQuery.curQuery.whereAppend(")");
       }
-      groupQuery.setQueryAttributes(orderByProps, startIx, maxResults);
-
-      DBTransaction curTx = DBTransaction.getOrCreate();
+      return groupQuery;
+   }
 
+   /** Like searchQuery but returns the page of rows after afterValues - see queryPage */
+   public DBPage<? extends IDBObject> searchQueryPage(String text, List<String> propNames, List<Object> propValues, String selectGroup, List<String> orderByProps, Object[] afterValues, int maxResults) {
+      IDBObject proto = propNames == null ? null : initPrototypeForQuery(propNames, propValues);
       try {
-         return groupQuery.runQuery(curTx, null);
+         SelectGroupQuery groupQuery = initSearchGroupQuery(text, propNames, selectGroup, proto);
+         return runPageQuery(groupQuery, orderByProps, afterValues, maxResults, null);
       }
       finally {
          if (proto != null)
@@ -873,9 +954,123 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
    }
 
    public List<? extends IDBObject> query(Query query, String selectGroup, List<String> orderByProps, int startIx, int maxResults) {
+      IDBObject proto = null;
+      SelectGroupQuery groupQuery = initPlannedGroupQuery(query, selectGroup, false);
+      if (groupQuery == null) {
+         proto = initPrototypeForQuery(query);
+         groupQuery = initGroupQuery(query, selectGroup, proto);
+      }
+      groupQuery.setQueryAttributes(orderByProps, startIx, maxResults);
+
+      DBTransaction curTx = DBTransaction.getOrCreate();
+
+      try {
+         return groupQuery.runQuery(curTx, null);
+      }
+      finally {
+         if (proto != null)
+            DynUtil.dispose(proto);
+      }
+   }
+
+   /**
+    * Like query but returns a DBCursor that reads the results fetchSize rows at a time.  Set useCache to false to avoid adding the
+    * instances returned to the cache.  The cursor should be closed when it's not read to the end.
+    */
+   public DBCursor<? extends IDBObject> queryCursor(Query query, String selectGroup, List<String> orderByProps, int fetchSize, boolean useCache) {
+      IDBObject proto = null;
+      try {
+         SelectGroupQuery groupQuery = initPlannedGroupQuery(query, selectGroup, false);
+         if (groupQuery == null) {
+            proto = initPrototypeForQuery(query);
+            groupQuery = initGroupQuery(query, selectGroup, proto);
+         }
+         groupQuery.setQueryAttributes(orderByProps, 0, 0);
+         return groupQuery.openCursor(DBTransaction.getOrCreate(), null, fetchSize, useCache);
+      }
+      finally {
+         if (proto != null)
+            DynUtil.dispose(proto);
+      }
+   }
+
+   /**
+    * Keyset pagination version of query.  Returns up to maxResults rows which sort after the row whose orderByProps have afterValues -
+    * pass null for the first page, then the nextKey of the previous page.  The id properties are added to the end of orderByProps
+    * when they are not already there so the order is unique.  Unlike startIx, the database seeks directly to the next row using an
+    * index on those columns so each page costs the same no matter how deep it is.  The orderByProps must not be null in the rows
+    * or the next page query throws IllegalArgumentException.
+    */
+   public DBPage<? extends IDBObject> queryPage(Query query, String selectGroup, List<String> orderByProps, Object[] afterValues, int maxResults) {
+      IDBObject proto = null;
+      try {
+         SelectGroupQuery groupQuery = initPlannedGroupQuery(query, selectGroup, false);
+         if (groupQuery == null) {
+            proto = initPrototypeForQuery(query);
+            groupQuery = initGroupQuery(query, selectGroup, proto);
+         }
+         return runPageQuery(groupQuery, orderByProps, afterValues, maxResults, null);
+      }
+      finally {
+         if (proto != null)
+            DynUtil.dispose(proto);
+      }
+   }
+
+   private DBPage<? extends IDBObject> runPageQuery(SelectGroupQuery groupQuery, List<String> orderByProps, Object[] afterValues, int maxResults, DBObject proto) {
+      if (maxResults <= 0)
+         throw new IllegalArgumentException("Keyset page query needs maxResults > 0");
+      List<String> keyProps = getKeysetOrderBy(orderByProps);
+      // Select one extra row to find out if there's another page
+      groupQuery.setQueryAttributes(keyProps, 0, maxResults + 1);
+      if (afterValues != null)
+         groupQuery.addKeysetClause(afterValues);
+
+      List<IDBObject> res = groupQuery.runQuery(DBTransaction.getOrCreate(), proto);
+      if (res == null)
+         res = new ArrayList<IDBObject>(0);
+      boolean hasMore = res.size() > maxResults;
+      if (hasMore)
+         res.remove(maxResults);
+
+      Object[] nextKey = null;
+      int numRes = res.size();
+      if (numRes > 0) {
+         IDBObject last = res.get(numRes - 1);
+         List<DBPropertyDescriptor> keyDescs = groupQuery.curQuery.orderByProps;
+         nextKey = new Object[keyDescs.size()];
+         for (int i = 0; i < nextKey.length; i++)
+            nextKey[i] = keyDescs.get(i).getPropertyMapper().getPropertyValue(last, false, false);
+      }
+      return new DBPage<IDBObject>(res, hasMore, keyProps, nextKey);
+   }
+
+   /**
+    * Returns orderByProps with any id properties not already in the list added to the end, sorted in the same direction as the last one.
+    * The nextKey is read from the properties of the last instance so properties in other objects (i.e. a.b) are not supported.
+    */
+   private List<String> getKeysetOrderBy(List<String> orderByProps) {
+      List<String> res = orderByProps == null ? new ArrayList<String>() : new ArrayList<String>(orderByProps);
+      for (String orderByProp:res) {
+         if (orderByProp.indexOf('.') != -1)
+            throw new IllegalArgumentException("Keyset query orderBy property: " + orderByProp + " must be a property of: " + this);
+      }
+      boolean desc = res.size() > 0 && res.get(res.size() - 1).startsWith("-");
+      for (IdPropertyDescriptor idProp:primaryTable.idColumns) {
+         String idName = idProp.propertyName;
+         if (!res.contains(idName) && !res.contains("-" + idName))
+            res.add(desc ? "-" + idName : idName);
+      }
+      return res;
+   }
+
+   private IDBObject initPrototypeForQuery(Query query) {
+      List<String> protoPropNames = query.getAllPropertyNames();
+      return protoPropNames == null ? null : initPrototypeForQuery(protoPropNames, query.getAllPropertyValues());
+   }
+
+   private SelectGroupQuery initGroupQuery(Query query, String selectGroup, IDBObject proto) {
       List<String> protoPropNames = query.getAllPropertyNames();
-      List<Object> propValues = query.getAllPropertyValues();
-      IDBObject proto = protoPropNames == null ? null : initPrototypeForQuery(protoPropNames, propValues);
       List<String> nonProtoProps = query.getNonProtoProps();
       List<String> allPropNames;
       if (nonProtoProps != null) {
@@ -906,12 +1101,21 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
          // Add the parameter values to the query
          addQueryParams(query, groupQuery, protoDB, true, QCombine.And);
       }
-      groupQuery.setQueryAttributes(orderByProps, startIx, maxResults);
+      return groupQuery;
+   }
 
-      DBTransaction curTx = DBTransaction.getOrCreate();
 
+   public int count(Query query) {
+      IDBObject proto = null;
+      SelectGroupQuery groupQuery = initPlannedGroupQuery(query, null, true);
+      if (groupQuery == null) {
+         proto = initPrototypeForQuery(query);
+         groupQuery = initCountGroupQuery(query, proto);
+      }
+
+      DBTransaction curTx = DBTransaction.getOrCreate();
       try {
-         return groupQuery.runQuery(curTx, null);
+         return groupQuery.countQuery(curTx, null);
       }
       finally {
          if (proto != null)
@@ -919,11 +1123,8 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
       }
    }
 
-
-   public int count(Query query) {
+   private SelectGroupQuery initCountGroupQuery(Query query, IDBObject proto) {
       List<String> propNames = query.getAllPropertyNames();
-      List<Object> propValues = query.getAllPropertyValues();
-      IDBObject proto = propNames == null ? null : initPrototypeForQuery(propNames, propValues);
       // Initialize the wrapper query - the one that will join across multiple DBs
       SelectGroupQuery groupQuery = initQuery(null, propNames, true);
       if (proto != null) {
@@ -941,21 +1142,127 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
          // Add the parameters to the query
          addQueryParams(query, groupQuery, protoDB, true, QCombine.And);
       }
+      return groupQuery;
+   }
 
-      DBTransaction curTx = DBTransaction.getOrCreate();
-      try {
-         return groupQuery.countQuery(curTx, null);
+   /**
+    * Returns a new SelectGroupQuery with the query's parameter values from the cached plan for the query's shape, building the plan
+    * the first time that shape is used.  Returns null for queries which have to be built each time with a prototype - i.e. those that
+    * refer to properties that are not columns, like JSON paths or properties defined with bindings.
+    */
+   private SelectGroupQuery initPlannedGroupQuery(Query query, String selectGroup, boolean countQuery) {
+      // The verbose log shows the values inline with the SQL and that's built along with the query
+      if (!useQueryPlans || DBUtil.verbose)
+         return null;
+      StringBuilder keySB = new StringBuilder();
+      keySB.append(countQuery ? "#count" : selectGroup == null ? defaultFetchGroup : selectGroup);
+      keySB.append(':');
+      ArrayList<DBPropertyDescriptor> opProps = new ArrayList<DBPropertyDescriptor>();
+      if (!appendQueryShape(keySB, query, opProps))
+         return null;
+      String key = keySB.toString();
+      QueryPlan plan = queryPlans.get(key);
+      if (plan == null) {
+         IDBObject proto = initPrototypeForQuery(query);
+         try {
+            SelectGroupQuery groupQuery = countQuery ? initCountGroupQuery(query, proto) : initGroupQuery(query, selectGroup, proto);
+            plan = new QueryPlan(groupQuery.clonePlan(), opProps.toArray(new DBPropertyDescriptor[opProps.size()]));
+         }
+         finally {
+            if (proto != null)
+               DynUtil.dispose(proto);
+         }
+         if (queryPlans.size() >= MaxQueryPlans)
+            queryPlans.clear();
+         queryPlans.put(key, plan);
       }
-      finally {
-         if (proto != null)
-            DynUtil.dispose(proto);
+      return plan.newGroupQuery(query);
+   }
+
+   /**
+    * Appends the parts of the query that change the SQL - not the values themselves, except for null and the number of values in an IN list.
+    * Returns false if a property is not a column so the query can't use a QueryPlan.
+    */
+   private boolean appendQueryShape(StringBuilder sb, Query query, List<DBPropertyDescriptor> opProps) {
+      if (query instanceof PQuery) {
+         PQuery pquery = (PQuery) query;
+         sb.append(pquery.combiner);
+         sb.append('(');
+         for (Query subQuery:pquery.queries) {
+            if (!appendQueryShape(sb, subQuery, opProps))
+               return false;
+            sb.append(',');
+         }
+         sb.append(')');
+         return true;
+      }
+      else if (query instanceof OpQuery) {
+         OpQuery opQuery = (OpQuery) query;
+         DBPropertyDescriptor dbProp = opQuery.propName == null ? null : getPropertyDescriptor(opQuery.propName);
+         if (dbProp == null || opQuery.comparator == null)
+            return false;
+         sb.append(opQuery.propName);
+         sb.append(' ');
+         sb.append(opQuery.comparator);
+         if (opQuery.comparator == QCompare.In) {
+            if (opQuery.propValue == null)
+               return false;
+            sb.append(DynUtil.getArrayLength(opQuery.propValue));
+         }
+         else if (opQuery.propValue == null)
+            sb.append(" null");
+         opProps.add(dbProp);
+         return true;
       }
+      return false;
    }
 
    private void initTypeInstances() {
       synchronized (this) {
          if (typeInstances == null)
-            typeInstances = new ConcurrentHashMap<Object,IDBObject>();
+            typeInstances = new DBInstanceCache(this, cacheMaxSize, cacheIdleTimeMillis, cacheMode);
+      }
+   }
+
+   /**
+    * Enables batch fetching for this type's select groups - called from the generated code for types that set batchFetchSize in
+    * DBTypeSettings.  groupNames is a comma separated list of select groups or null for all of them.
+    */
+   public void initBatchFetch(int size, String groupNames) {
+      batchFetchSize = size;
+      batchFetchGroups = null;
+      if (groupNames != null && groupNames.length() > 0) {
+         batchFetchGroups = new ArrayList<String>();
+         for (String groupName:StringUtil.split(groupNames, ','))
+            batchFetchGroups.add(groupName.trim());
+      }
+   }
+
+   public int getBatchFetchSize(String selectGroup) {
+      if (batchFetchGroups != null && !batchFetchGroups.contains(selectGroup))
+         return 0;
+      return batchFetchSize;
+   }
+
+   /**
+    * Sets the cache policy for instances of this type - called from the generated code for types that set cacheMaxSize,
+    * expireTimeMillis or cacheMode in DBTypeSettings.  Sub-types share the cache of the root type so it's the root type's settings
+    * that are used.
+    */
+   public void initCache(int maxSize, long idleTimeMillis, DBCacheMode mode) {
+      cacheMaxSize = maxSize;
+      cacheIdleTimeMillis = idleTimeMillis;
+      if (idleTimeMillis > 0)
+         expireTimeMillis = idleTimeMillis;
+      cacheMode = mode;
+      if (typeInstances != null && baseType == null) {
+         synchronized (this) {
+            DBInstanceCache oldCache = typeInstances;
+            DBInstanceCache newCache = new DBInstanceCache(this, maxSize, idleTimeMillis, mode);
+            // Anything put into the old cache by a thread that read typeInstances before the switch is forwarded to the new one
+            oldCache.replaceWith(newCache);
+            typeInstances = newCache;
+         }
       }
    }
 
@@ -1032,12 +1339,36 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
       return inst;
    }
 
+   /**
+    * Like lookupInstById but a new instance is not put into typeInstances, so it can be garbage collected once the caller is done
+    * with it.  Returns the cached instance if there is one.  Used by a DBCursor that does not use the cache.
+    */
+   public IDBObject lookupUncachedInstById(Object id, int typeId) {
+      if (baseType != null)
+         return baseType.lookupUncachedInstById(id, typeId == DBUnsetTypeId ? this.typeId : typeId);
+
+      if (typeInstances == null)
+         initTypeInstances();
+      IDBObject inst = typeInstances.get(id);
+      if (inst != null)
+         return inst;
+      DBTypeDescriptor resTypeDesc = getSubTypeByTypeId(typeId);
+      if (resTypeDesc == null)
+         throw new IllegalArgumentException("Attempt to lookup instance of abstract type: " + this);
+      inst = resTypeDesc.createPrototype(typeId == DBUnsetTypeId);
+      // Without the concrete type, it's the cache that lets the DBObject stub be replaced so use it here
+      if (inst == null)
+         return lookupInstById(id, typeId, true, false);
+      ((DBObject) inst.getDBObject()).setDBId(id);
+      return inst;
+   }
+
    private final static int cacheCheckInterval = 100;
 
    private void checkCacheSize() {
       int size = typeInstances.size();
       if (size > cacheCheckInterval && ((size % cacheCheckInterval) == 0))
-         DBUtil.info("DB cache size: " + size + " for type " + getTypeName());
+         DBUtil.verbose("DB " + typeInstances.getStats());
    }
 
    public IDBObject createInstance() {
@@ -1223,6 +1554,15 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
          removeReverseListeners(toStop);
    }
 
+   /** Called by the DBInstanceCache to stop an instance it's evicting.  Returns false if the instance is in use and should stay in the cache. */
+   boolean evictInstance(IDBObject inst) {
+      DBObject dbObj = (DBObject) inst.getDBObject();
+      if (!dbObj.stopForEviction())
+         return false;
+      removeReverseListeners(dbObj);
+      return true;
+   }
+
    public Object getIdColumnValue(Object inst, int ci) {
       IBeanMapper mapper = primaryTable.idColumns.get(ci).getPropertyMapper();
       return mapper.getPropertyValue(inst, false,false);
@@ -1572,6 +1912,23 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
       return res;
    }
 
+   private boolean isFindByProps(List<String> props) {
+      if (queries == null)
+         return false;
+      for (BaseQueryDescriptor query:queries) {
+         if (query instanceof FindByDescriptor && ((FindByDescriptor) query).propNames.equals(props))
+            return true;
+      }
+      return false;
+   }
+
+   /** Called when a property of an instance of this type is set so any index on that property in the instance cache is updated */
+   void cachedPropertyChanged(DBObject dbObj, String propName) {
+      DBInstanceCache cache = getRootType().typeInstances;
+      if (cache != null)
+         cache.propertyChanged(dbObj.getInst(), propName);
+   }
+
    public List<IDBObject> queryCache(DBObject proto, List<String> props, DBTypeDescriptor fromType) {
       if (baseType != null) {
          return baseType.queryCache(proto, props, fromType == null ? this : fromType);
@@ -1585,7 +1942,11 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
          Object protoVal = proto.getPropertyInPath(props.get(i));
          protoVals.add(protoVal);
       }
-      for (IDBObject inst: typeInstances.values()) {
+      DBCacheIndex cacheIndex = null;
+      if (cacheIndexEnabled && (isFindByProps(props) || (fromType != null && fromType.isFindByProps(props))))
+         cacheIndex = typeInstances.getIndex(props);
+      List<IDBObject> candidates = cacheIndex != null ? cacheIndex.find(protoVals) : typeInstances.values();
+      for (IDBObject inst: candidates) {
          if (fromType != null && !DynUtil.instanceOf(inst, fromType.typeDecl))
             continue;
          DBObject dbObj = (DBObject) inst.getDBObject();
@@ -1697,7 +2058,15 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
    private void appendPropParamValues(SelectGroupQuery groupQuery, DBTypeDescriptor curTypeDesc, DBObject curObj,
                                       String propNamePath, boolean needsParens, QCompare compareOp, boolean useProtoVal, Object compareVal) {
       DBPropertyDescriptor dbProp = curTypeDesc.getPropertyDescriptor(propNamePath);
-      Object propValue = curObj.getPropertyInPath(propNamePath);
+      // For a Query, bind the value from this comparison like appendPropToWhereClause and QueryPlan do - the prototype only holds one
+      // value for a property compared more than once (e.g. a > 1 and a < 10)
+      Object propValue;
+      if (useProtoVal)
+         propValue = curObj.getPropertyInPath(propNamePath);
+      else if (compareOp == QCompare.Match && compareVal instanceof CharSequence)
+         propValue = convertToSQLSearchString(compareVal.toString());
+      else
+         propValue = compareVal;
       SelectQuery curQuery = groupQuery.curQuery;
       StringBuilder logSB = curQuery.logSB;
       if (dbProp != null) {
@@ -2571,7 +2940,7 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
       if (!liveDynTypes) {
          liveDynTypes = true;
 
-         Map<Object,IDBObject> instList = baseType == null ? typeInstances : baseType.typeInstances;
+         DBInstanceCache instList = baseType == null ? typeInstances : baseType.typeInstances;
          if (instList != null) {
             String typeName = getTypeName();
             for (IDBObject inst:instList.values()) {
@@ -2604,18 +2973,12 @@ public class DBTypeDescriptor extends BaseTypeDescriptor {
    }
 
    public void invalidateExpiredItems() {
-      final long now = System.currentTimeMillis();
-      synchronized (this) {
-         typeInstances.entrySet().removeIf(new Predicate<Map.Entry<Object, IDBObject>>() {
-            public boolean test(Map.Entry<Object, IDBObject> obj) {
-               DBObject dbObj = (DBObject) obj.getValue().getDBObject();
-               if (dbObj.instanceLastUsed + expireTimeMillis < now) {
-                  stopObject(dbObj);
-                  return true;
-               }
-               return false;
-            }
-         });
+      if (baseType != null) {
+         baseType.invalidateExpiredItems();
+         return;
       }
+      DBInstanceCache cache = typeInstances;
+      if (cache != null)
+         cache.evictIdle(expireTimeMillis);
    }
 }
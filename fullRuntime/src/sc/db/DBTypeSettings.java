@@ -25,8 +25,22 @@ public @interface DBTypeSettings {
    // TODO: need more work to make cache policies configurable - the goal being that they are configured as part of the framework
    // so that application code without awareness of how caching is performed.
    boolean cacheEnabled() default true;
-   // TODO: not yet implemented
+   /** Instances not used for this many milliseconds are evicted from the cache.  The default of -1 keeps them until the cache is full or cleared. */
    long expireTimeMillis() default -1;
+   /**
+    * Max number of instances of this type to keep in the cache.  When the cache is full, the least recently used instances without pending
+    * changes are evicted.  The default of -1 has no limit.  Sub-types share the cache of their base type so set this on the base type.
+    */
+   int cacheMaxSize() default -1;
+   /** Set to Soft to let the garbage collector reclaim cached instances, or Transaction to evict instances when the transaction that used them is closed */
+   DBCacheMode cacheMode() default DBCacheMode.Strong;
+   /**
+    * Set to fetch a select group for up to this many instances with one query when several instances need the same properties,
+    * e.g. the onDemand references of the rows returned by a query.  The default of 0 fetches one instance at a time.
+    */
+   int batchFetchSize() default 0;
+   /** A comma separated list of the select groups that use batchFetchSize.  The default applies it to all select groups. */
+   String batchFetchGroups() default "";
    // TODO: add a way to enable checking of the versionProperty each time the cache is accessed, or periodically to automatically refresh
    // the cache more efficiently
    // boolean versionCheck() - to enable version checking to keep cache valid?
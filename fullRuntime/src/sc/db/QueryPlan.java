@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.db;
+
+import sc.dyn.DynUtil;
+
+/**
+ * The SelectGroupQuery built for one shape of Query - the same property names, QCompare operators and QCombine tree, the same
+ * properties compared with null and the same number of values in each IN list.  The tables, joins and where clause are built once
+ * using a prototype.  Queries with the same shape copy the plan and bind the values from the Query into the parameters.
+ * Only queries where each property is a column (see DBTypeDescriptor.appendQueryShape) use a plan.
+ */
+class QueryPlan {
+   final SelectGroupQuery groupQuery;
+   /** The column for each OpQuery in the order they are visited by bindParams */
+   final DBPropertyDescriptor[] opProps;
+
+   QueryPlan(SelectGroupQuery groupQuery, DBPropertyDescriptor[] opProps) {
+      this.groupQuery = groupQuery;
+      this.opProps = opProps;
+   }
+
+   SelectGroupQuery newGroupQuery(Query query) {
+      SelectGroupQuery res = groupQuery.clonePlan();
+      if (res.curQuery != null)
+         bindParams(query, res.curQuery, new int[1]);
+      return res;
+   }
+
+   private void bindParams(Query query, SelectQuery curQuery, int[] nextOp) {
+      if (query instanceof PQuery) {
+         for (Query subQuery:((PQuery) query).queries)
+            bindParams(subQuery, curQuery, nextOp);
+      }
+      else {
+         OpQuery opQuery = (OpQuery) query;
+         DBColumnType colType = opProps[nextOp[0]++].getDBColumnType();
+         Object propValue = opQuery.propValue;
+         if (opQuery.comparator == QCompare.In) {
+            int numValues = DynUtil.getArrayLength(propValue);
+            for (int i = 0; i < numValues; i++) {
+               curQuery.paramValues.add(DynUtil.getArrayElement(propValue, i));
+               curQuery.paramTypes.add(colType);
+            }
+         }
+         // A null value is part of the shape - it's turned into IS NULL without a parameter
+         else if (propValue != null) {
+            if (opQuery.comparator == QCompare.Match && propValue instanceof CharSequence)
+               propValue = DBTypeDescriptor.convertToSQLSearchString(propValue.toString());
+            curQuery.paramValues.add(propValue);
+            curQuery.paramTypes.add(colType);
+         }
+      }
+   }
+}
@@ -5,6 +5,7 @@
 package sc.db;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -78,6 +79,51 @@ public class SelectGroupQuery extends DBQuery {
       return res;
    }
 
+   /** Returns the max number of instances to fetch with one query for this select group - 0 or 1 if batch fetching is disabled */
+   public int getBatchFetchSize() {
+      return dbTypeDesc.getBatchFetchSize(selectGroup);
+   }
+
+   public boolean canBatchFetch() {
+      return queries.size() > 0 && getBatchFetchSize() > 1;
+   }
+
+   /**
+    * Selects the properties of this group for a list of instances, each marked as pending with DBObject.startBatchFetch.  Single row
+    * queries are run once for each batch of up to batchFetchSize instances with an 'IN' clause on the id.  Other queries are run
+    * for each instance.
+    */
+   void batchSelectProperties(DBTransaction transaction, List<DBObject> dbObjs) {
+      int num = dbObjs.size();
+      boolean[] selected = new boolean[num];
+      Arrays.fill(selected, true);
+      boolean success = false;
+      try {
+         int batchSize = getBatchFetchSize();
+         for (SelectQuery query:queries) {
+            if (query.canBatchFetch()) {
+               for (int start = 0; start < num; start += batchSize)
+                  query.batchSelectProperties(transaction, dbObjs, selected, start, Math.min(num, start + batchSize));
+            }
+            else {
+               for (int i = 0; i < num; i++) {
+                  if (selected[i] && !query.selectProperties(transaction, dbObjs.get(i)) && query.includesPrimary)
+                     selected[i] = false;
+               }
+            }
+         }
+         success = true;
+      }
+      finally {
+         for (int i = 0; i < num; i++) {
+            DBObject dbObj = dbObjs.get(i);
+            if (success && !selected[i] && !dbObj.isPrototype())
+               System.err.println("*** Non-prototype state DBObject no longer exists in DB");
+            dbObj.endBatchFetch(this, success && selected[i]);
+         }
+      }
+   }
+
    public SelectGroupQuery cloneForSubType(DBTypeDescriptor subType) {
       SelectGroupQuery res = new SelectGroupQuery(dbTypeDesc, propNames, selectGroup);
       res.queryNumber = queryNumber;
@@ -87,6 +133,20 @@ public class SelectGroupQuery extends DBQuery {
       return res;
    }
 
+   /** Returns a copy of this query for running a QueryPlan - see SelectQuery.clonePlan */
+   public SelectGroupQuery clonePlan() {
+      SelectGroupQuery res = new SelectGroupQuery(dbTypeDesc, propNames, selectGroup);
+      res.queryNumber = queryNumber;
+      res.queryName = queryName;
+      for (SelectQuery ftq:queries) {
+         SelectQuery newFtq = ftq.clonePlan();
+         res.queries.add(newFtq);
+         if (ftq == curQuery)
+            res.curQuery = newFtq;
+      }
+      return res;
+   }
+
    public List<IDBObject> runQuery(DBTransaction transaction, DBObject proto) {
       // Here we pick the main query, run it first, look for queries that just select additional properties (i.e. without a 'where clause') and do
       // selectProperties on them.
@@ -99,6 +159,14 @@ public class SelectGroupQuery extends DBQuery {
       return curQuery.matchQuery(transaction, proto);
    }
 
+   public <E extends IDBObject> DBCursor<E> openCursor(DBTransaction transaction, DBObject proto, int fetchSize, boolean useCache) {
+      if (queries.size() > 1)
+         System.err.println("*** Need to do join of queries here");
+      if (curQuery == null)
+         curQuery = queries.get(0);
+      return curQuery.openCursor(transaction, proto, fetchSize, useCache);
+   }
+
    public int countQuery(DBTransaction transaction, DBObject proto) {
       if (queries.size() > 1)
          System.err.println("*** Need to do join of queries here");
@@ -173,6 +241,13 @@ public class SelectGroupQuery extends DBQuery {
          setMaxResults(max);
    }
 
+   /** Call after setQueryAttributes to only return rows after the one with afterValues for the orderByProps */
+   public void addKeysetClause(Object[] afterValues) {
+      if (curQuery == null)
+         curQuery = queries.get(0);
+      curQuery.appendKeysetClause(afterValues);
+   }
+
    public void activate() {
       if (activated)
          return;
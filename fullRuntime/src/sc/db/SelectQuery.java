@@ -55,6 +55,10 @@ public class SelectQuery implements Cloneable {
 
    private boolean activated = false;
 
+   // The SQL for selectProperties and batchSelectProperties - built the first time they are used
+   private String fetchQueryStr;
+   private String[] batchFetchQueryStrs;
+
    public SelectQuery(String dataSourceName, DBTypeDescriptor dbTypeDesc, boolean multiRow) {
       this.dataSourceName = dataSourceName;
       this.dbTypeDesc = dbTypeDesc;
@@ -66,6 +70,8 @@ public class SelectQuery implements Cloneable {
       String tableName = table.tableName;
       SelectTableDesc ftd;
       ftd = getSelectTableForProperty(curRefProp, prop);
+      fetchQueryStr = null;
+      batchFetchQueryStrs = null;
 
       if (ftd == null) {
          ftd = new SelectTableDesc(table, new ArrayList<DBPropertyDescriptor>());
@@ -290,7 +296,9 @@ public class SelectQuery implements Cloneable {
 
    public boolean selectProperties(DBTransaction transaction, DBObject dbObj) {
       TableDescriptor mainTable = selectTables.get(0).table;
-      StringBuilder qsb = buildTableFetchQuery(selectTables);
+      String queryStr = fetchQueryStr;
+      if (queryStr == null)
+         fetchQueryStr = queryStr = buildTableFetchQuery(selectTables).toString();
       ResultSet rs = null;
       List<IdPropertyDescriptor> idColumns = mainTable.getIdColumns();
       StringBuilder logSB = null;
@@ -300,11 +308,9 @@ public class SelectQuery implements Cloneable {
       BindingContext oldBindCtx = null;
       BindingContext ctx = null;
       try {
-         String queryStr = qsb.toString();
          boolean res;
          if (!mainTable.dbTypeDesc.dbDisabled) {
-            Connection conn = transaction.getConnection(mainTable.getDataSourceName());
-            st = conn.prepareStatement(queryStr);
+            st = transaction.prepareStatement(mainTable.getDataSourceName(), queryStr);
             String logStr = DBUtil.verbose ? queryStr : null;
             IDBObject inst = dbObj.getInst();
             for (int i = 0; i < idColumns.size(); i++) {
@@ -368,17 +374,139 @@ public class SelectQuery implements Cloneable {
             BindingContext.setBindingContext(oldBindCtx);
             ctx.dispatchEvents(null);
          }
-         if (rs != null)
-            DBUtil.close(null, st, rs);
+         DBUtil.close(rs);
+         transaction.releaseStatement(mainTable.getDataSourceName(), queryStr, st);
       }
    }
 
-   public List<IDBObject> matchQuery(DBTransaction transaction, DBObject proto) {
+   /** Returns true for queries that can select the properties for more than one instance at a time with batchSelectProperties */
+   boolean canBatchFetch() {
+      return !multiRow && whereSB == null && selectTables.get(0).table.getIdColumns().size() == 1;
+   }
+
+   /**
+    * Selects the properties in this query for the instances in dbObjs from start to end with one query, matching each row
+    * to its instance with the id column.  Clears the selected flag for an instance with no row when this query includes the
+    * primary table.
+    */
+   void batchSelectProperties(DBTransaction transaction, List<DBObject> dbObjs, boolean[] selected, int start, int end) {
+      TableDescriptor mainTable = selectTables.get(0).table;
+      IdPropertyDescriptor idCol = mainTable.getIdColumns().get(0);
+      IBeanMapper idMapper = idCol.getPropertyMapper();
+
+      // Instances to select by id - skipping any already known not to exist
+      HashMap<Object,Integer> toSelect = new HashMap<Object,Integer>();
+      ArrayList<Object> ids = new ArrayList<Object>(end - start);
+      for (int i = start; i < end; i++) {
+         if (!selected[i])
+            continue;
+         DBObject dbObj = dbObjs.get(i);
+         Object id = idMapper.getPropertyValue(dbObj.getInst(), false, false);
+         toSelect.put(getBatchKey(id), i);
+         ids.add(id);
+      }
+      if (ids.size() == 0 || mainTable.dbTypeDesc.dbDisabled)
+         return;
+
+      String queryStr = getBatchFetchQuery(idCol, ids.size());
+      ResultSet rs = null;
+      StringBuilder logSB = null;
+
+      boolean origDBChanges = transaction.applyingDBChanges;
+      PreparedStatement st = null;
+      BindingContext oldBindCtx = null;
+      BindingContext ctx = null;
+      try {
+         st = transaction.prepareStatement(mainTable.getDataSourceName(), queryStr);
+         String logStr = DBUtil.verbose ? queryStr : null;
+         DBColumnType colType = idCol.getDBColumnType();
+         for (int i = 0; i < ids.size(); i++) {
+            Object colVal = ids.get(i);
+            DBUtil.setStatementValue(st, i+1, colType, colVal, idCol.getPropertyType());
+            if (logStr != null)
+               logStr = DBUtil.replaceNextParam(logStr, colVal, DBColumnType.LongId, mainTable.dbTypeDesc);
+         }
+
+         rs = st.executeQuery();
+
+         logSB = logStr != null ? new StringBuilder(logStr) : null;
+
+         if (logSB != null)
+            logSB.append(" -> ");
+
+         transaction.applyingDBChanges = true;
+         // Queue validate events as in selectProperties so bindings don't run on partial results
+         ctx = new BindingContext(IListener.SyncType.QUEUE_VALIDATE_EVENTS);
+         oldBindCtx = BindingContext.getBindingContext();
+         BindingContext.setBindingContext(ctx);
+
+         int numRows = 0;
+         while (rs.next()) {
+            Object id = DBUtil.getResultSetByIndex(rs, 1, idCol);
+            Integer objIx = toSelect.remove(getBatchKey(id));
+            if (objIx == null) {
+               DBUtil.error("Batch fetch query returned unexpected row for id: " + id);
+               continue;
+            }
+            DBObject dbObj = dbObjs.get(objIx);
+            if (logSB != null) {
+               if (numRows != 0)
+                  logSB.append("; ");
+               logSB.append("id=");
+               logSB.append(id);
+               logSB.append(": ");
+            }
+            processRow(transaction, dbObj, dbObj.getInst(), rs, 2, logSB);
+            numRows++;
+         }
+
+         // Any left were not found - same as processOneRowQueryResults when there's no row
+         if (toSelect.size() > 0) {
+            if (includesPrimary) {
+               for (Integer objIx:toSelect.values()) {
+                  dbObjs.get(objIx).setTransient(true);
+                  selected[objIx] = false;
+               }
+            }
+            if (logSB != null)
+               logSB.append(" (" + toSelect.size() + " not found)");
+         }
+
+         if (logSB != null)
+            DBUtil.info(logSB.toString());
+      }
+      catch (SQLException exc) {
+         if (logSB != null)
+            DBUtil.error("Batch fetch properties for " + ids.size() + " instances failed: " + exc + " with query: " + logSB);
+         exc.printStackTrace();
+         throw new IllegalArgumentException("*** batchSelectProperties failed with SQL error: " + exc);
+      }
+      finally {
+         transaction.applyingDBChanges = origDBChanges;
+         if (!origDBChanges)
+            transaction.doFetchLater();
+         if (oldBindCtx != null) {
+            BindingContext.setBindingContext(oldBindCtx);
+            ctx.dispatchEvents(null);
+         }
+         DBUtil.close(rs);
+         transaction.releaseStatement(mainTable.getDataSourceName(), queryStr, st);
+      }
+   }
+
+   /** The id read from the result set might not be the same type as the id property - e.g. Integer and Long */
+   private static Object getBatchKey(Object id) {
+      if (id instanceof Number && !(id instanceof Double || id instanceof Float))
+         return ((Number) id).longValue();
+      return id;
+   }
+
+   /** Builds the SQL for matchQuery and openCursor, appending the query with the parameter values to logSB if it's not null */
+   private StringBuilder buildMatchQuery(StringBuilder logSB) {
       SelectTableDesc mainTableDesc = selectTables.get(0);
-      TableDescriptor mainTable = mainTableDesc.table;
       StringBuilder qsb = buildTableQueryBase(mainTableDesc, false);
-      ResultSet rs = null;
-      StringBuilder logSB = DBUtil.verbose ? new StringBuilder(qsb) : null;
+      if (logSB != null)
+         logSB.append(qsb);
       if (whereSB != null) {
          DBUtil.append(qsb, logSB, " WHERE ");
          qsb.append(whereSB);
@@ -408,19 +536,70 @@ public class SelectQuery implements Cloneable {
             logSB.append(startIndex);
          }
       }
+      return qsb;
+   }
+
+   /**
+    * Runs this multi-row query and returns a cursor to read the results in chunks of fetchSize rows, rather than reading them all
+    * into a list like matchQuery.
+    */
+   public <E extends IDBObject> DBCursor<E> openCursor(DBTransaction transaction, DBObject proto, int fetchSize, boolean useCache) {
+      if (!multiRow)
+         throw new IllegalArgumentException("openCursor only for multiRow queries");
+      DBTypeDescriptor dbTypeDesc = selectTables.get(0).table.dbTypeDesc;
+      if (dbTypeDesc.dbDisabled) {
+         List<IDBObject> cacheRes = dbTypeDesc.dbReadOnly ? dbTypeDesc.queryCache(proto, propNames, null) : null;
+         return new DBCursor<E>(cacheRes == null ? new ArrayList<IDBObject>(0) : cacheRes);
+      }
+      StringBuilder logSB = DBUtil.verbose ? new StringBuilder() : null;
+      String queryStr = buildMatchQuery(logSB).toString();
+      PreparedStatement st = null;
+      ResultSet rs = null;
+      try {
+         // Not using the statement cache since we change the fetch size and the statement stays open with the cursor
+         Connection conn = transaction.getConnection(dbTypeDesc.getDataSource().jndiName);
+         st = conn.prepareStatement(queryStr, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+         st.setFetchSize(fetchSize);
+         int numParams = paramValues == null ? 0 : paramValues.size();
+         for (int i = 0; i < numParams; i++)
+            DBUtil.setStatementValue(st, i+1, paramTypes.get(i), paramValues.get(i), null);
+
+         rs = st.executeQuery();
+         if (logSB != null)
+            DBUtil.info(logSB.append(" -> cursor with fetchSize: ").append(fetchSize));
+         DBCursor<E> res = new DBCursor<E>(transaction, this, st, rs, fetchSize, useCache);
+         st = null;
+         return res;
+      }
+      catch (SQLException exc) {
+         throw new IllegalArgumentException("*** openCursor failed with SQL error: " + exc);
+      }
+      finally {
+         // Only if opening the cursor failed
+         if (st != null)
+            DBUtil.close(null, st, rs);
+      }
+   }
+
+   public List<IDBObject> matchQuery(DBTransaction transaction, DBObject proto) {
+      TableDescriptor mainTable = selectTables.get(0).table;
+      ResultSet rs = null;
+      StringBuilder logSB = DBUtil.verbose ? new StringBuilder() : null;
+      StringBuilder qsb = buildMatchQuery(logSB);
 
       boolean origDBChanges = transaction.applyingDBChanges;
       BindingContext oldBindCtx = null;
       BindingContext ctx = null;
       PreparedStatement st = null;
+      String queryStr = qsb.toString();
+      String queryDataSource = null;
       try {
-         String queryStr = qsb.toString();
          DBList<IDBObject> res = new DBList<IDBObject>();
          DBTypeDescriptor dbTypeDesc = mainTable.dbTypeDesc;
 
          if (!dbTypeDesc.dbDisabled) {
-            Connection conn = transaction.getConnection(dbTypeDesc.getDataSource().jndiName);
-            st = conn.prepareStatement(queryStr);
+            queryDataSource = dbTypeDesc.getDataSource().jndiName;
+            st = transaction.prepareStatement(queryDataSource, queryStr);
             IDBObject inst = proto == null ? null : proto.getInst();
             int numParams = paramValues == null ? 0 : paramValues.size();
             for (int i = 0; i < numParams; i++) {
@@ -492,7 +671,7 @@ public class SelectQuery implements Cloneable {
             ctx.dispatchEvents(null);
          }
          DBUtil.close(rs);
-         DBUtil.close(st);
+         transaction.releaseStatement(queryDataSource, queryStr, st);
       }
    }
 
@@ -519,13 +698,14 @@ public class SelectQuery implements Cloneable {
          logSB.append(this.logSB);
 
       PreparedStatement st = null;
+      String queryStr = qsb.toString();
+      String queryDataSource = null;
       try {
-         String queryStr = qsb.toString();
          DBTypeDescriptor dbTypeDesc = mainTable.dbTypeDesc;
 
          if (!dbTypeDesc.dbDisabled) {
-            Connection conn = transaction.getConnection(dbTypeDesc.getDataSource().jndiName);
-            st = conn.prepareStatement(queryStr);
+            queryDataSource = dbTypeDesc.getDataSource().jndiName;
+            st = transaction.prepareStatement(queryDataSource, queryStr);
             int numParams = paramValues == null ? 0 : paramValues.size();
             for (int i = 0; i < numParams; i++) {
                Object paramValue = paramValues.get(i);
@@ -560,7 +740,7 @@ public class SelectQuery implements Cloneable {
       }
       finally {
          DBUtil.close(rs);
-         DBUtil.close(st);
+         transaction.releaseStatement(queryDataSource, queryStr, st);
       }
    }
 
@@ -577,9 +757,17 @@ public class SelectQuery implements Cloneable {
             return dbObj;
       }
 
+      inst = processRow(tx, dbObj, inst, rs, 1, logSB);
+      if (rs.next())
+         throw new IllegalArgumentException("Fetch query returns more than one row!");
+      return inst;
+   }
+
+   /** Sets the properties selected by this query from the current row of the result set, starting at the column startIx */
+   private IDBObject processRow(DBTransaction tx, DBObject dbObj, IDBObject inst, ResultSet rs, int startIx, StringBuilder logSB) throws SQLException {
       boolean first = true;
 
-      int rix = 1;
+      int rix = startIx;
       for (SelectTableDesc ftd: selectTables) {
          // If this table is actually defined in another type, and represents a reference an instance of that type (a 1-1 relationship),
          // this row sets properties of that referenced instance. Otherwise, its a normal table setting properties on the main instance.
@@ -687,7 +875,7 @@ public class SelectQuery implements Cloneable {
          if (ftd.revColumns != null) {
             for (int ri = 0; ri < ftd.revColumns.size(); ri++) {
               DBPropertyDescriptor propDesc = ftd.revColumns.get(ri);
-               if (logSB != null && rix != 1)
+               if (logSB != null && rix != startIx)
                   logSB.append(", ");
                IBeanMapper propMapper = propDesc.getPropertyMapper();
 
@@ -720,8 +908,6 @@ public class SelectQuery implements Cloneable {
             }
          }
       }
-      if (rs.next())
-         throw new IllegalArgumentException("Fetch query returns more than one row!");
       return inst;
    }
 
@@ -730,15 +916,64 @@ public class SelectQuery implements Cloneable {
     * The second and subsequent select tables are only there for onDemand=false references in the referenced object
     */
    boolean processMultiResults(DBList<IDBObject> resList, DBObject dbObj, Object inst, ResultSet rs, StringBuilder logSB) throws SQLException {
-      DBPropertyDescriptor listProp = null;
+      MultiRowState state = new MultiRowState(resList, true);
+      readMultiRows(state, dbObj, rs, -1, logSB);
+      resList = state.resList;
+      DBPropertyDescriptor listProp = state.listProp;
+      int rowCt = state.rowCt;
+
+      if (resList == null) {
+         if (rowCt != 0)
+            System.err.println("*** Invalid case for processMultiResults");
+         SelectTableDesc mainTableDesc = selectTables.get(0);
+         if (mainTableDesc.revColumns != null) {
+            listProp = mainTableDesc.revProps.get(0);
+         }
+         else {
+            listProp = mainTableDesc.props.get(0);
+         }
+         resList = new DBList(10, dbObj, listProp);
+      }
+      if (listProp != null) {
+         // TODO: handle arrays, incremental update of existing destination list for incremental 'refresh' when the list is
+         //  bound to a UI, handle other concrete classes for the list type and IBeanIndexMapper.
+         listProp.getPropertyMapper().setPropertyValue(inst, resList);
+         resList.trackingChanges = true;
+      }
+      return true;
+   }
+
+   /** Returns the instance for a reference read from a row - the row's main value is not added to the cache when useCache is false */
+   private static IDBObject lookupRowInst(DBTypeDescriptor typeDesc, Object id, int typeId, boolean useCache) {
+      return useCache ? typeDesc.lookupInstById(id, typeId, true, false) : typeDesc.lookupUncachedInstById(id, typeId);
+   }
+
+   /** The results of the rows read so far by readMultiRows */
+   static class MultiRowState {
+      DBList<IDBObject> resList;
+      DBPropertyDescriptor listProp;
       int rowCt = 0;
+      /** When false, instances for the rows not already in the cache are created without adding them to it */
+      boolean useCache;
+
+      MultiRowState(DBList<IDBObject> resList, boolean useCache) {
+         this.resList = resList;
+         this.useCache = useCache;
+      }
+   }
 
-      while (rs.next()) {
+   /** Reads up to maxRows rows, or all rows for -1, adding them to state.resList.  Returns false once the result set has no more rows. */
+   boolean readMultiRows(MultiRowState state, DBObject dbObj, ResultSet rs, int maxRows, StringBuilder logSB) throws SQLException {
+      int numRead = 0;
+      while (maxRows == -1 || numRead < maxRows) {
+         if (!rs.next())
+            return false;
+         numRead++;
          int rix = 1;
          IDBObject currentRowVal = null;
 
          if (logSB != null) {
-            if (rowCt > 0) {
+            if (state.rowCt > 0) {
                logSB.append(",\n   ");
             }
             else
@@ -785,7 +1020,7 @@ public class SelectQuery implements Cloneable {
                               typeId = (int) typeIdRes;
                         }
                         Object idVal = val;
-                        val = val == null ? null : colTypeDesc.lookupInstById(val, typeId, true, false);
+                        val = val == null ? null : lookupRowInst(colTypeDesc, val, typeId, state.useCache || fi != 0 || rowValSet);
 
                         if (val != null) {
                            IDBObject valObj = (IDBObject) val;
@@ -849,7 +1084,7 @@ public class SelectQuery implements Cloneable {
                            if (typeIdRes != null)
                               typeId = (int) typeIdRes;
                         }
-                        val = colTypeDesc.lookupInstById(idVals, typeId, true, false);
+                        val = lookupRowInst(colTypeDesc, idVals, typeId, state.useCache || fi != 0 || rowValSet);
 
                         if (val != null) {
                            IDBObject valObj = (IDBObject) val;
@@ -872,23 +1107,23 @@ public class SelectQuery implements Cloneable {
                if (fi == 0 && !rowValSet) {
                   currentRowVal = (IDBObject) val;
                   rowValSet = true;
-                  if (resList == null) {
-                     resList = new DBList(10, dbObj, propDesc);
-                     listProp = propDesc; // the first time through, the main property for this list
+                  if (state.resList == null) {
+                     state.resList = new DBList(10, dbObj, propDesc);
+                     state.listProp = propDesc; // the first time through, the main property for this list
                   }
-                  resList.add(currentRowVal);
+                  state.resList.add(currentRowVal);
                   if (currentRowVal == null && refId != null)
-                     resList.setRefId(resList.size()-1, refId);
+                     state.resList.setRefId(state.resList.size()-1, refId);
                   if (logSB != null) {
                      logSB.append("[");
-                     logSB.append(rowCt);
+                     logSB.append(state.rowCt);
                      logSB.append("](");
                      logSB.append(currentRowVal == null ? (refId == null ? null : "refId:" + refId) : currentRowVal.getDBObject());
                   }
-                  rowCt++;
+                  state.rowCt++;
                }
                else {
-                  Object propInst = selectTable.refProp == null || listProp != null ? currentRowVal : selectTable.refProp.getPropertyMapper().getPropertyValue(currentRowVal, false, false);
+                  Object propInst = selectTable.refProp == null || state.listProp != null ? currentRowVal : selectTable.refProp.getPropertyMapper().getPropertyValue(currentRowVal, false, false);
                   if (currentRowVal == null)
                      throw new UnsupportedOperationException("Multi value select tables - not attached to reference");
 
@@ -961,7 +1196,7 @@ public class SelectQuery implements Cloneable {
                         }
                         if (refTypeIdProp != null && (rci == 0 || readProp.eagerJoinForTypeId(selectTable)))
                            typeId = (int) DBUtil.getResultSetByIndex(rs, rix++, refTypeIdProp);
-                        val = val == null ? null : refTypeDesc.lookupInstById(val, typeId, true, false);
+                        val = val == null ? null : lookupRowInst(refTypeDesc, val, typeId, state.useCache || fi != 0 || rci != 0);
 
                         if (val != null) {
                            IDBObject valObj = (IDBObject) val;
@@ -996,7 +1231,7 @@ public class SelectQuery implements Cloneable {
                            if (typeIdRes != null)
                               typeId = (int) typeIdRes;
                         }
-                        val = allNull ? null : refTypeDesc.lookupInstById(idVals, typeId, true, false);
+                        val = allNull ? null : lookupRowInst(refTypeDesc, idVals, typeId, state.useCache || fi != 0 || rci != 0);
 
                         if (val != null) {
                            IDBObject valObj = (IDBObject) val;
@@ -1015,19 +1250,19 @@ public class SelectQuery implements Cloneable {
                   }
                   if (rci == 0 && fi == 0) {
                      currentRowVal = (IDBObject) val;
-                     if (resList == null) {
-                        resList = new DBList(10, dbObj, revProp == null ? propDesc : revProp);
-                        listProp = revProp; // For reverse properties, it's always the reverse prop - waiting for the first element to set the list
+                     if (state.resList == null) {
+                        state.resList = new DBList(10, dbObj, revProp == null ? propDesc : revProp);
+                        state.listProp = revProp; // For reverse properties, it's always the reverse prop - waiting for the first element to set the list
                      }
-                     resList.add(currentRowVal);
+                     state.resList.add(currentRowVal);
                      if (logSB != null) {
                         logSB.append("[");
-                        logSB.append(rowCt);
+                        logSB.append(state.rowCt);
                         logSB.append("]:");
                         logSB.append(currentRowVal == null ? null : currentRowVal.getDBObject());
                         logSB.append("(");
                      }
-                     rowCt++;
+                     state.rowCt++;
                   }
                   else {
                      if (currentRowVal == null)
@@ -1064,24 +1299,6 @@ public class SelectQuery implements Cloneable {
                logSB.append(")");
          }
       }
-      if (resList == null) {
-         if (rowCt != 0)
-            System.err.println("*** Invalid case for processMultiResults");
-         SelectTableDesc mainTableDesc = selectTables.get(0);
-         if (mainTableDesc.revColumns != null) {
-            listProp = mainTableDesc.revProps.get(0);
-         }
-         else {
-            listProp = mainTableDesc.props.get(0);
-         }
-         resList = new DBList(10, dbObj, listProp);
-      }
-      if (listProp != null) {
-         // TODO: handle arrays, incremental update of existing destination list for incremental 'refresh' when the list is
-         //  bound to a UI, handle other concrete classes for the list type and IBeanIndexMapper.
-         listProp.getPropertyMapper().setPropertyValue(inst, resList);
-         resList.trackingChanges = true;
-      }
       return true;
    }
 
@@ -1103,7 +1320,43 @@ public class SelectQuery implements Cloneable {
       return qsb;
    }
 
+   /** Returns the batch fetch query for numIds ids - cached for each number of ids up to the batch size */
+   private String getBatchFetchQuery(IdPropertyDescriptor idCol, int numIds) {
+      String[] queryStrs = batchFetchQueryStrs;
+      if (queryStrs == null || queryStrs.length <= numIds) {
+         queryStrs = new String[Math.max(numIds, dbTypeDesc.batchFetchSize) + 1];
+         batchFetchQueryStrs = queryStrs;
+      }
+      String res = queryStrs[numIds];
+      if (res == null)
+         queryStrs[numIds] = res = buildTableBatchFetchQuery(idCol, numIds).toString();
+      return res;
+   }
+
+   /** Like buildTableFetchQuery but selects the id as the first column and fetches the rows for numIds ids with an 'IN' clause */
+   private StringBuilder buildTableBatchFetchQuery(IdPropertyDescriptor idCol, int numIds) {
+      SelectTableDesc mainTableDesc = selectTables.get(0);
+      TableDescriptor mainTable = mainTableDesc.table;
+      StringBuilder qsb = buildTableQueryBase(mainTableDesc, false, idCol);
+      qsb.append(" WHERE ");
+      DBUtil.appendIdent(qsb, null, mainTable.tableName);
+      qsb.append(".");
+      DBUtil.appendIdent(qsb, null, idCol.columnName);
+      qsb.append(" IN (");
+      for (int i = 0; i < numIds; i++) {
+         if (i != 0)
+            qsb.append(", ");
+         qsb.append("?");
+      }
+      qsb.append(")");
+      return qsb;
+   }
+
    private StringBuilder buildTableQueryBase(SelectTableDesc mainTableDesc, boolean countOnly) {
+      return buildTableQueryBase(mainTableDesc, countOnly, null);
+   }
+
+   private StringBuilder buildTableQueryBase(SelectTableDesc mainTableDesc, boolean countOnly, IdPropertyDescriptor keyCol) {
       List<SelectTableDesc> selectTables = this.selectTables;
       TableDescriptor mainTable = mainTableDesc.table;
       StringBuilder res = new StringBuilder();
@@ -1112,6 +1365,10 @@ public class SelectQuery implements Cloneable {
          res.append("COUNT(*)");
       }
       else {
+         if (keyCol != null) {
+            appendColumnSelect(res, mainTableDesc, keyCol.columnName);
+            res.append(", ");
+         }
          for (int i = 0; i < selectTables.size(); i++) {
             if (i != 0)
                res.append(", ");
@@ -1303,6 +1560,25 @@ public class SelectQuery implements Cloneable {
       return res;
    }
 
+   /**
+    * Returns a copy of this query with the same tables, order by and where clause but without the parameter values.  Used to run
+    * a cached QueryPlan.  This query is not changed so it can be copied again.
+    */
+   public SelectQuery clonePlan() {
+      SelectQuery res = cloneForSubType(null);
+      if (orderByProps != null) {
+         res.orderByProps = new ArrayList<DBPropertyDescriptor>(orderByProps);
+         res.orderByDirs = new ArrayList<Boolean>(orderByDirs);
+      }
+      if (whereSB != null) {
+         res.whereSB = new StringBuilder(whereSB);
+         res.numWhereColumns = numWhereColumns;
+         res.paramValues = new ArrayList<Object>(paramValues.size());
+         res.paramTypes = new ArrayList<DBColumnType>(paramTypes.size());
+      }
+      return res;
+   }
+
    public void appendWhereColumn(String parentProp, DBPropertyDescriptor prop) {
       initWhereQuery();
       numWhereColumns++;
@@ -1436,6 +1712,98 @@ public class SelectQuery implements Cloneable {
       }
    }
 
+   /**
+    * Restricts this query to the rows after the one with the given values for orderByProps - i.e. keyset pagination.  When the
+    * properties are all sorted in the same direction, this adds (col1, col2) &gt; (?, ?), or &lt; for descending order.  Otherwise it adds
+    * the expanded form: col1 &gt; ? OR (col1 = ? AND col2 &lt; ?).  Rows with null values in these columns are not handled.
+    */
+   public void appendKeysetClause(Object[] afterValues) {
+      int numProps = orderByProps == null ? 0 : orderByProps.size();
+      if (numProps == 0)
+         throw new IllegalArgumentException("Keyset query needs orderByProps");
+      if (afterValues.length != numProps)
+         throw new IllegalArgumentException("Keyset query with: " + afterValues.length + " values for: " + numProps + " orderByProps");
+      // A comparison with NULL matches no rows so the pages would just stop
+      for (int i = 0; i < numProps; i++) {
+         if (afterValues[i] == null)
+            throw new IllegalArgumentException("Keyset query with null value for orderBy property: " + orderByProps.get(i).propertyName);
+      }
+
+      initWhereQuery();
+      if (whereSB.length() > 0) {
+         // Keep the existing clause together since it might have an OR
+         whereSB.insert(0, '(');
+         whereSB.append(") AND ");
+         if (logSB != null) {
+            logSB.insert(0, '(');
+            logSB.append(") AND ");
+         }
+      }
+
+      boolean sameDir = true;
+      for (int i = 1; i < numProps; i++) {
+         if (!orderByDirs.get(i).equals(orderByDirs.get(0))) {
+            sameDir = false;
+            break;
+         }
+      }
+      if (sameDir) {
+         String op = orderByDirs.get(0) ? " < " : " > ";
+         if (numProps == 1) {
+            appendKeysetColumn(0, op, afterValues);
+         }
+         else {
+            DBUtil.append(whereSB, logSB, "(");
+            for (int i = 0; i < numProps; i++) {
+               if (i != 0)
+                  DBUtil.append(whereSB, logSB, ", ");
+               appendWhereColumn(null, orderByProps.get(i));
+               appendLogWhereColumn(logSB, null, orderByProps.get(i));
+            }
+            DBUtil.append(whereSB, logSB, ")" + op + "(");
+            for (int i = 0; i < numProps; i++) {
+               if (i != 0)
+                  DBUtil.append(whereSB, logSB, ", ");
+               appendKeysetParam(i, afterValues);
+            }
+            DBUtil.append(whereSB, logSB, ")");
+         }
+      }
+      else {
+         DBUtil.append(whereSB, logSB, "(");
+         for (int i = 0; i < numProps; i++) {
+            if (i != 0)
+               DBUtil.append(whereSB, logSB, " OR (");
+            for (int j = 0; j < i; j++) {
+               appendKeysetColumn(j, " = ", afterValues);
+               DBUtil.append(whereSB, logSB, " AND ");
+            }
+            appendKeysetColumn(i, orderByDirs.get(i) ? " < " : " > ", afterValues);
+            if (i != 0)
+               DBUtil.append(whereSB, logSB, ")");
+         }
+         DBUtil.append(whereSB, logSB, ")");
+      }
+   }
+
+   private void appendKeysetColumn(int ix, String op, Object[] afterValues) {
+      DBPropertyDescriptor prop = orderByProps.get(ix);
+      appendWhereColumn(null, prop);
+      appendLogWhereColumn(logSB, null, prop);
+      DBUtil.append(whereSB, logSB, op);
+      appendKeysetParam(ix, afterValues);
+   }
+
+   private void appendKeysetParam(int ix, Object[] afterValues) {
+      DBPropertyDescriptor prop = orderByProps.get(ix);
+      DBColumnType colType = prop.getDBColumnType();
+      whereSB.append('?');
+      if (logSB != null)
+         DBUtil.appendVal(logSB, afterValues[ix], colType, prop.refDBTypeDesc);
+      paramValues.add(afterValues[ix]);
+      paramTypes.add(colType);
+   }
+
    public void insertIdProperty() {
       SelectTableDesc mainTableFetch = selectTables.get(0);
       TableDescriptor mainTable = mainTableFetch.table;
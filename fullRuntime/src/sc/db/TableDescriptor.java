@@ -6,6 +6,7 @@ package sc.db;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Used to represent a table storing properties for items in a DBTypeDescriptor.
@@ -43,6 +44,54 @@ public class TableDescriptor {
      */
    public DBPropertyDescriptor reverseProperty;
 
+   // Statement kinds for getCachedSQL
+   static final int InsertSQL = 0, InsertReturningSQL = 1, UpdateSQL = 2, UpdateVersionedSQL = 3, DeleteSQL = 4, DeleteVersionedSQL = 5;
+   // Max number of statements to cache for each table - updates are generated for each combination of changed columns
+   private static final int MaxCachedSQL = 64;
+
+   // The generated insert, update and delete statements for this table, keyed by the statement kind and list of columns
+   private ConcurrentHashMap<SQLKey,String> sqlCache = null;
+
+   static class SQLKey {
+      final int kind;
+      final List<String> columnNames;
+
+      SQLKey(int kind, List<String> columnNames) {
+         this.kind = kind;
+         this.columnNames = columnNames;
+      }
+
+      public boolean equals(Object other) {
+         if (!(other instanceof SQLKey))
+            return false;
+         SQLKey otherKey = (SQLKey) other;
+         return kind == otherKey.kind && columnNames.equals(otherKey.columnNames);
+      }
+
+      public int hashCode() {
+         return kind * 31 + columnNames.hashCode();
+      }
+   }
+
+   /** Returns the cached SQL for a statement of this kind that uses these columns or null if it's not been generated */
+   String getCachedSQL(int kind, List<String> columnNames) {
+      ConcurrentHashMap<SQLKey,String> cache = sqlCache;
+      return cache == null ? null : cache.get(new SQLKey(kind, columnNames));
+   }
+
+   void putCachedSQL(int kind, List<String> columnNames, String sql) {
+      ConcurrentHashMap<SQLKey,String> cache = sqlCache;
+      if (cache == null) {
+         synchronized (this) {
+            if (sqlCache == null)
+               sqlCache = new ConcurrentHashMap<SQLKey,String>();
+            cache = sqlCache;
+         }
+      }
+      if (cache.size() < MaxCachedSQL)
+         cache.put(new SQLKey(kind, new ArrayList<String>(columnNames)), sql);
+   }
+
    public TableDescriptor(String tableName) {
       this.tableName = tableName;
       this.columns = new ArrayList<DBPropertyDescriptor>();
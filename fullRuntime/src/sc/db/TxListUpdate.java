@@ -5,6 +5,7 @@
 package sc.db;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 class TxListUpdate<E extends IDBObject> extends TxOperation {
@@ -32,6 +33,9 @@ class TxListUpdate<E extends IDBObject> extends TxOperation {
       return propUpdate;
    }
 
+   // Max number of rows to insert or delete with one statement
+   private static final int MaxRowsPerStatement = 1000;
+
    public int apply() {
       // figure out which rows to add/remove and generate the SQL
       //  cases - mapping table (fromId/toId)
@@ -39,39 +43,57 @@ class TxListUpdate<E extends IDBObject> extends TxOperation {
       ArrayList<IDBObject> toRemove = new ArrayList<IDBObject>();
       ArrayList<IDBObject> toInsert = new ArrayList<IDBObject>();
       DBPropertyDescriptor listProp = oldList.listProp;
-      if (oldList != null) {
-         for (int i = 0; i < oldList.size(); i++) {
-            IDBObject oldElem = oldList.get(i);
-            if (newList == null || !newList.contains(oldElem)) {
-               if (!((DBObject) oldElem.getDBObject()).isTransient() || !listProp.readOnly)
-                  toRemove.add(oldElem);
-               // else for a bi-directional one-to-many the item has been inserted if it's not transient
-            }
+      int oldSize = oldList == null ? 0 : oldList.size();
+      int newSize = newList == null ? 0 : newList.size();
+      // Identity sets of each list so the diff is linear in the size of the lists
+      IdentityHashMap<IDBObject,Boolean> oldElems = new IdentityHashMap<IDBObject,Boolean>(oldSize);
+      for (int i = 0; i < oldSize; i++)
+         oldElems.put(oldList.get(i), Boolean.TRUE);
+      IdentityHashMap<IDBObject,Boolean> newElems = new IdentityHashMap<IDBObject,Boolean>(newSize);
+      for (int i = 0; i < newSize; i++)
+         newElems.put(newList.get(i), Boolean.TRUE);
+
+      for (int i = 0; i < oldSize; i++) {
+         IDBObject oldElem = oldList.get(i);
+         if (!newElems.containsKey(oldElem)) {
+            if (!((DBObject) oldElem.getDBObject()).isTransient() || !listProp.readOnly)
+               toRemove.add(oldElem);
+            // else for a bi-directional one-to-many the item has been inserted if it's not transient
          }
       }
-      if (newList != null) {
-         for (int i = 0; i < newList.size(); i++) {
-            IDBObject newElem = newList.get(i);
-            if (oldList == null || !oldList.contains(newElem)) {
-               if (((DBObject) newElem.getDBObject()).isTransient() || !listProp.readOnly)
-                  toInsert.add(newElem);
-               // else - if we are adding to a multi-valued one-to-many list that's owned by another type
-               // we only do the insert if the element is transient. This way, we can do the batch inserts
-               // of only the new items
-            }
-
+      for (int i = 0; i < newSize; i++) {
+         IDBObject newElem = newList.get(i);
+         if (!oldElems.containsKey(newElem)) {
+            if (((DBObject) newElem.getDBObject()).isTransient() || !listProp.readOnly)
+               toInsert.add(newElem);
+            // else - if we are adding to a multi-valued one-to-many list that's owned by another type
+            // we only do the insert if the element is transient. This way, we can do the batch inserts
+            // of only the new items
          }
       }
+      // The rows don't store the position in the list, so when the same elements are just reordered there's nothing to update in the DB
+      if (toRemove.size() == 0 && toInsert.size() == 0) {
+         if (DBUtil.verbose && oldSize > 0)
+            DBUtil.verbose("List update for: " + listProp + " - no rows changed");
+         oldList.updateToList(newList);
+         return 0;
+      }
+
       int resCt = 0;
+      TableDescriptor listTable = listProp.getTable();
       if (toRemove.size() > 0) {
-         int ct = doMultiDelete(oldList.listProp.getTable(), toRemove, false, false);
+         int ct = 0;
+         for (int start = 0; start < toRemove.size(); start += MaxRowsPerStatement)
+            ct += doMultiDelete(listTable, toRemove.subList(start, Math.min(toRemove.size(), start + MaxRowsPerStatement)), false, false);
          if (ct != toRemove.size())
             DBUtil.error("Failed to remove all of the rows in a list update");
 
          resCt = ct;
       }
       if (toInsert.size() > 0) {
-         int ct = doMultiInsert(oldList.listProp.getTable(), toInsert, false, false);
+         int ct = 0;
+         for (int start = 0; start < toInsert.size(); start += MaxRowsPerStatement)
+            ct += doMultiInsert(listTable, toInsert.subList(start, Math.min(toInsert.size(), start + MaxRowsPerStatement)), false, false);
          if (ct != toInsert.size())
             DBUtil.error("Failed to insert all of the rows in a list update");
          resCt += ct;
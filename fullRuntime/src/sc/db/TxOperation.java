@@ -8,7 +8,6 @@ import sc.dyn.DynUtil;
 import sc.type.IBeanMapper;
 import sc.util.JSON;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -138,76 +137,84 @@ public abstract class TxOperation {
             columnValues.set(lmtIndex, lmtValue);
       }
 
-      StringBuilder sb = new StringBuilder();
-      sb.append("INSERT INTO ");
-      DBUtil.appendIdent(sb, null, insertTable.tableName);
+      int sqlKind = dbIdCols != null ? TableDescriptor.InsertReturningSQL : TableDescriptor.InsertSQL;
+      // Batch inserts and logged statements include the batch rows and values so are built each time
+      String statementStr = logSB != null || batchSz > 0 ? null : insertTable.getCachedSQL(sqlKind, columnNames);
+      if (statementStr == null) {
+         StringBuilder sb = new StringBuilder();
+         sb.append("INSERT INTO ");
+         DBUtil.appendIdent(sb, null, insertTable.tableName);
 
-      if (numCols == 0) {
-         sb.append(" DEFAULT VALUES");
-      }
-      else {
-         sb.append("(");
-         for (int i = 0; i < numCols; i++) {
-            if (i != 0) {
-               sb.append(", ");
-            }
-            DBUtil.appendIdent(sb, null, columnNames.get(i));
+         if (numCols == 0) {
+            sb.append(" DEFAULT VALUES");
          }
-         sb.append(") VALUES (");
+         else {
+            sb.append("(");
+            for (int i = 0; i < numCols; i++) {
+               if (i != 0) {
+                  sb.append(", ");
+               }
+               DBUtil.appendIdent(sb, null, columnNames.get(i));
+            }
+            sb.append(") VALUES (");
 
-         if (logSB != null)
-            logSB.append(sb);
+            if (logSB != null)
+               logSB.append(sb);
 
-         appendColumnValueList(sb, logSB, numCols, columnTypes, columnRefTypes, columnPTypes, columnValues);
+            appendColumnValueList(sb, logSB, numCols, columnTypes, columnRefTypes, columnPTypes, columnValues);
 
-         sb.append(")");
-         if (logSB != null)
-            logSB.append(")");
+            sb.append(")");
+            if (logSB != null)
+               logSB.append(")");
+
+            if (batchSz > 0) {
 
-         if (batchSz > 0) {
-
-            numExpected += batchSz;
-            for (int bi = 0; bi < batchSz; bi++) {
-               ArrayList<Object> batchValues = new ArrayList<Object>(numCols);
-               TxOperation batchOp = batch.get(bi);
-               Object batchInst = batchOp.dbObject.getInst();
-               for (int di = 0; di < idCols.size(); di++) {
-                  IdPropertyDescriptor idCol = idCols.get(di);
-                  if (!isPrimary || !idCol.definedByDB) {
-                     IBeanMapper mapper = idCol.getPropertyMapper();
-                     Object val = mapper.getPropertyValue(batchInst, false, false);
-                     batchValues.add(val);
+               numExpected += batchSz;
+               for (int bi = 0; bi < batchSz; bi++) {
+                  ArrayList<Object> batchValues = new ArrayList<Object>(numCols);
+                  TxOperation batchOp = batch.get(bi);
+                  Object batchInst = batchOp.dbObject.getInst();
+                  for (int di = 0; di < idCols.size(); di++) {
+                     IdPropertyDescriptor idCol = idCols.get(di);
+                     if (!isPrimary || !idCol.definedByDB) {
+                        IBeanMapper mapper = idCol.getPropertyMapper();
+                        Object val = mapper.getPropertyValue(batchInst, false, false);
+                        batchValues.add(val);
+                     }
                   }
+                  addInstValues(dbTypeDesc, batchInst, insertTable.columns, batchValues);
+                  sb.append(", (");
+                  if (logSB != null)
+                     logSB.append(", (");
+                  if (hasLmt) {
+                     if (batchValues.get(lmtIndex) == null)
+                        batchValues.set(lmtIndex, lmtValue);
+                  }
+                  appendColumnValueList(sb, logSB, numCols, columnTypes, columnRefTypes, columnPTypes, batchValues);
+                  sb.append(")");
+                  if (logSB != null)
+                     logSB.append(")");
+                  batchList.add(batchValues);
                }
-               addInstValues(dbTypeDesc, batchInst, insertTable.columns, batchValues);
-               sb.append(", (");
-               if (logSB != null)
-                  logSB.append(", (");
-               if (hasLmt) {
-                  if (batchValues.get(lmtIndex) == null)
-                     batchValues.set(lmtIndex, lmtValue);
-               }
-               appendColumnValueList(sb, logSB, numCols, columnTypes, columnRefTypes, columnPTypes, batchValues);
-               sb.append(")");
-               if (logSB != null)
-                  logSB.append(")");
-               batchList.add(batchValues);
             }
          }
-      }
 
-      if (dbIdCols != null) {
-         sb.append(" RETURNING ");
-         if (logSB != null)
-            logSB.append(" RETURNING ");
-         for (int i = 0; i < dbIdCols.size(); i++) {
-            if (i != 0) {
-               sb.append(", ");
-               if (logSB != null)
-                  logSB.append(", ");
+         if (dbIdCols != null) {
+            sb.append(" RETURNING ");
+            if (logSB != null)
+               logSB.append(" RETURNING ");
+            for (int i = 0; i < dbIdCols.size(); i++) {
+               if (i != 0) {
+                  sb.append(", ");
+                  if (logSB != null)
+                     logSB.append(", ");
+               }
+               DBUtil.appendIdent(sb, logSB, dbIdCols.get(i).columnName);
             }
-            DBUtil.appendIdent(sb, logSB, dbIdCols.get(i).columnName);
          }
+         statementStr = sb.toString();
+         if (batchSz == 0)
+            insertTable.putCachedSQL(sqlKind, columnNames, statementStr);
       }
 
       DBDataSource ds = dbTypeDesc.getDataSource();
@@ -217,9 +224,7 @@ public abstract class TxOperation {
       ResultSet rs = null;
       try {
          if (addToDB) { // If the db is read-only will store the objects in memory for easier testing, prototyping
-            Connection conn = transaction.getConnection(ds.jndiName);
-            String statementStr = sb.toString();
-            st = conn.prepareStatement(statementStr);
+            st = transaction.prepareStatement(ds.jndiName, statementStr);
 
             int stIx = 1;
             for (int i = 0; i < numCols; i++) {
@@ -330,7 +335,8 @@ public abstract class TxOperation {
          throw new IllegalArgumentException("*** Insert: " + dbTypeDesc + " with dbIdCols: " + dbIdCols + " returned failed: " + exc);
       }
       finally {
-         DBUtil.close(null, st, rs);
+         DBUtil.close(rs);
+         transaction.releaseStatement(ds.jndiName, statementStr, st);
       }
       return numExpected;
    }
@@ -467,11 +473,10 @@ public abstract class TxOperation {
       }
 
       PreparedStatement st = null;
+      String statementStr = sb.toString();
       try {
          if (!dbTypeDesc.dbReadOnly) {
-            Connection conn = transaction.getConnection(dbTypeDesc.dataSourceName);
-            String statementStr = sb.toString();
-            st = conn.prepareStatement(statementStr);
+            st = transaction.prepareStatement(dbTypeDesc.dataSourceName, statementStr);
 
             for (int i = 0; i < numCols; i++) {
                DBUtil.setStatementValue(st, i+1, columnTypes.get(i), columnValues.get(i), null);
@@ -519,7 +524,7 @@ public abstract class TxOperation {
          throw new IllegalArgumentException("*** Delete: " + dbObject + " failed with DB error: " + exc);
       }
       finally {
-         DBUtil.close(st);
+         transaction.releaseStatement(dbTypeDesc.dataSourceName, statementStr, st);
       }
       return 1;
    }
@@ -690,11 +695,10 @@ public abstract class TxOperation {
       boolean addToDB = !dbTypeDesc.dbReadOnly;
       PreparedStatement st = null;
       ResultSet rs = null;
+      String insertStr = sb.toString();
       try {
          if (addToDB) {
-            Connection conn = transaction.getConnection(dbTypeDesc.dataSourceName);
-            String insertStr = sb.toString();
-            st = conn.prepareStatement(insertStr);
+            st = transaction.prepareStatement(dbTypeDesc.dataSourceName, insertStr);
 
             for (int ci = 0; ci < columnValues.size(); ci++) {
                DBUtil.setStatementValue(st, ci+1, columnTypes.get(ci), columnValues.get(ci), columnPTypes.get(ci));
@@ -781,7 +785,7 @@ public abstract class TxOperation {
       }
       finally {
          DBUtil.close(rs);
-         DBUtil.close(st);
+         transaction.releaseStatement(dbTypeDesc.dataSourceName, insertStr, st);
       }
       return 1;
    }
@@ -1088,42 +1092,48 @@ public abstract class TxOperation {
 
       int numCols = columnNames.size();
 
-      StringBuilder sb = new StringBuilder();
-      sb.append("DELETE FROM ");
-      DBUtil.appendIdent(sb, null, deleteTable.tableName);
-      sb.append(" WHERE ");
+      int sqlKind = versProp != null ? TableDescriptor.DeleteVersionedSQL : TableDescriptor.DeleteSQL;
+      // The log message has the values inline so the statement is built again when logging
+      String statementStr = DBUtil.verbose ? null : deleteTable.getCachedSQL(sqlKind, columnNames);
+      StringBuilder logSB = null;
+      if (statementStr == null) {
+         StringBuilder sb = new StringBuilder();
+         sb.append("DELETE FROM ");
+         DBUtil.appendIdent(sb, null, deleteTable.tableName);
+         sb.append(" WHERE ");
 
-      StringBuilder logSB = DBUtil.verbose ? new StringBuilder(sb) : null;
+         logSB = DBUtil.verbose ? new StringBuilder(sb) : null;
 
-      for (int i = 0; i < numCols; i++) {
-         if (i != 0) {
-            DBUtil.append(sb, logSB, " AND ");
-         }
-         DBUtil.appendIdent(sb, logSB, columnNames.get(i));
-         sb.append(" = ?");
-         if (logSB != null) {
-            logSB.append(" = ");
-            logSB.append(DBUtil.formatValue(columnValues.get(i), columnTypes.get(i), dbTypeDesc, null));
+         for (int i = 0; i < numCols; i++) {
+            if (i != 0) {
+               DBUtil.append(sb, logSB, " AND ");
+            }
+            DBUtil.appendIdent(sb, logSB, columnNames.get(i));
+            sb.append(" = ?");
+            if (logSB != null) {
+               logSB.append(" = ");
+               logSB.append(DBUtil.formatValue(columnValues.get(i), columnTypes.get(i), dbTypeDesc, null));
+            }
          }
-      }
 
-      if (versProp != null) {
-         DBUtil.append(sb, logSB, " AND ");
-         DBUtil.appendIdent(sb, logSB, versProp.columnName);
-         sb.append(" = ?");
-         if (logSB != null) {
-            logSB.append(" = ");
-            logSB.append(DBUtil.formatValue(version, versProp.getDBColumnType(), null, null));
+         if (versProp != null) {
+            DBUtil.append(sb, logSB, " AND ");
+            DBUtil.appendIdent(sb, logSB, versProp.columnName);
+            sb.append(" = ?");
+            if (logSB != null) {
+               logSB.append(" = ");
+               logSB.append(DBUtil.formatValue(version, versProp.getDBColumnType(), null, null));
+            }
          }
+         statementStr = sb.toString();
+         deleteTable.putCachedSQL(sqlKind, columnNames, statementStr);
       }
 
       PreparedStatement st = null;
       int numDeleted = 0;
       try {
          if (!dbTypeDesc.dbReadOnly) {
-            Connection conn = transaction.getConnection(dbTypeDesc.dataSourceName);
-            String statementStr = sb.toString();
-            st = conn.prepareStatement(statementStr);
+            st = transaction.prepareStatement(dbTypeDesc.dataSourceName, statementStr);
 
             for (int i = 0; i < numCols; i++) {
                DBUtil.setStatementValue(st, i+1, columnTypes.get(i), columnValues.get(i), null);
@@ -1175,7 +1185,7 @@ public abstract class TxOperation {
          throw new IllegalArgumentException("*** Delete: " + dbObject + " failed with DB error: " + exc);
       }
       finally {
-         DBUtil.close(st);
+         transaction.releaseStatement(dbTypeDesc.dataSourceName, statementStr, st);
       }
       return numDeleted;
    }
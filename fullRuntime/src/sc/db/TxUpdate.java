@@ -6,7 +6,6 @@ package sc.db;
 
 import sc.type.IBeanMapper;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
@@ -127,52 +126,58 @@ public class TxUpdate extends VersionedOperation {
          columnPTypes.add(null);
       }
 
-      StringBuilder sb = new StringBuilder();
-      sb.append("UPDATE ");
-      DBUtil.appendIdent(sb, null, updateTable.tableName);
-      sb.append(" SET ");
       int numCols = columnNames.size();
-
-      StringBuilder logSB = DBUtil.verbose ? new StringBuilder(sb.toString()) : null;
-
-      for (int i = 0; i < numCols; i++) {
-         if (i != 0) {
-            DBUtil.append(sb, logSB, ", ");
+      int sqlKind = versProp != null ? TableDescriptor.UpdateVersionedSQL : TableDescriptor.UpdateSQL;
+      // The log message has the values inline so the statement is built again when logging
+      String updateStr = DBUtil.verbose ? null : updateTable.getCachedSQL(sqlKind, columnNames);
+      StringBuilder logSB = null;
+      if (updateStr == null) {
+         StringBuilder sb = new StringBuilder();
+         sb.append("UPDATE ");
+         DBUtil.appendIdent(sb, null, updateTable.tableName);
+         sb.append(" SET ");
+
+         logSB = DBUtil.verbose ? new StringBuilder(sb.toString()) : null;
+
+         for (int i = 0; i < numCols; i++) {
+            if (i != 0) {
+               DBUtil.append(sb, logSB, ", ");
+            }
+            DBUtil.appendIdent(sb, logSB, columnNames.get(i));
+            DBUtil.append(sb, logSB, " = ");
+            sb.append("?");
+            if (logSB != null)
+               logSB.append(DBUtil.formatValue(columnValues.get(i), columnTypes.get(i), columnRefTypes.get(i), columnPTypes.get(i)));
          }
-         DBUtil.appendIdent(sb, logSB, columnNames.get(i));
-         DBUtil.append(sb, logSB, " = ");
-         sb.append("?");
-         if (logSB != null)
-            logSB.append(DBUtil.formatValue(columnValues.get(i), columnTypes.get(i), columnRefTypes.get(i), columnPTypes.get(i)));
-      }
-      DBUtil.append(sb, logSB, " WHERE ");
+         DBUtil.append(sb, logSB, " WHERE ");
 
-      for (int i = 0; i < numIdCols; i++) {
-         if (i != 0) {
+         for (int i = 0; i < numIdCols; i++) {
+            if (i != 0) {
+               DBUtil.append(sb, logSB, " AND ");
+            }
+            DBUtil.appendIdent(sb, logSB, idCols.get(i).columnName);
+            DBUtil.append(sb, logSB, " = ");
+            sb.append("?");
+            if (logSB != null)
+               logSB.append(DBUtil.formatValue(idVals.get(i), DBColumnType.LongId, dbTypeDesc, null));
+         }
+         if (versProp != null) {
+            long opVersion = version;
             DBUtil.append(sb, logSB, " AND ");
+            DBUtil.appendIdent(sb, logSB, versProp.columnName);
+            DBUtil.append(sb, logSB, " = ");
+            sb.append("?");
+            if (logSB != null)
+               logSB.append(DBUtil.formatValue(opVersion, versProp.getDBColumnType(), null, null));
          }
-         DBUtil.appendIdent(sb, logSB, idCols.get(i).columnName);
-         DBUtil.append(sb, logSB, " = ");
-         sb.append("?");
-         if (logSB != null)
-            logSB.append(DBUtil.formatValue(idVals.get(i), DBColumnType.LongId, dbTypeDesc, null));
-      }
-      if (versProp != null) {
-         long opVersion = version;
-         DBUtil.append(sb, logSB, " AND ");
-         DBUtil.appendIdent(sb, logSB, versProp.columnName);
-         DBUtil.append(sb, logSB, " = ");
-         sb.append("?");
-         if (logSB != null)
-            logSB.append(DBUtil.formatValue(opVersion, versProp.getDBColumnType(), null, null));
+         updateStr = sb.toString();
+         updateTable.putCachedSQL(sqlKind, columnNames, updateStr);
       }
 
       PreparedStatement st = null;
       try {
          if (!dbTypeDesc.dbReadOnly) {
-            Connection conn = transaction.getConnection(dbTypeDesc.dataSourceName);
-            String updateStr = sb.toString();
-            st = conn.prepareStatement(updateStr);
+            st = transaction.prepareStatement(dbTypeDesc.dataSourceName, updateStr);
             int pos = 1;
             for (int i = 0; i < numCols; i++) {
                DBColumnType colType = columnTypes.get(i);
@@ -224,7 +229,7 @@ public class TxUpdate extends VersionedOperation {
          throw new IllegalArgumentException("*** Insert without ids sql error: " + exc);
       }
       finally {
-         DBUtil.close(st);
+         transaction.releaseStatement(dbTypeDesc.dataSourceName, updateStr, st);
       }
 
       return 1;
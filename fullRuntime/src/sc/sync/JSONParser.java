@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 2017. Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.sync;
+
+import sc.dyn.DynUtil;
+import sc.util.BArrayList;
+import sc.util.BHashMap;
+import sc.util.JSONResolver;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses JSON for the sync system and for JSON stored in the database.  This is the Java version which replaces the one in coreRuntime,
+ * which is converted to Javascript and so only uses the CharSequence methods supported there.  The input is copied once into a char array
+ * and strings are created straight from that array - no intermediate subSequence copies.  Names repeat in every sync so they are looked up
+ * in a shared cache of name strings instead of being allocated each time.  Strings are decoded with the JSON escape rules.  Values that
+ * won't be used can be passed over with skipJSONValue without creating anything.
+ */
+@sc.js.JSSettings(jsModuleFile="js/sync.js", prefixAlias="sc_")
+public class JSONParser {
+   char[] input;
+   int len;
+   int curPos;
+   /** Optional component to support resolving references with 'ref:' as used in the sync system */
+   JSONResolver resolver;
+
+   // Set by scanString to the range of the last string token, not including the quotes
+   private int strStart, strEnd;
+   // True if the last string token had a \ escape in it
+   private boolean strEscaped;
+
+   private final static int NameCacheSize = 1024; // Must be a power of 2
+   private final static int MaxCachedNameLen = 64;
+   // A direct mapped cache of property, command and object names.  Entries are only replaced, never modified, so it's ok for
+   // parsers in different threads to share it - a race just means a cache miss.
+   private final static String[] nameCache = new String[NameCacheSize];
+
+   static {
+      for (JSONFormat.Commands cmd:JSONFormat.Commands.values())
+         cacheName(cmd.cmd);
+      for (JSONFormat.MethodArgs arg:JSONFormat.MethodArgs.values())
+         cacheName(arg.name());
+      for (JSONSerializer.MethodReturnArgs arg:JSONSerializer.MethodReturnArgs.values())
+         cacheName(arg.name());
+      for (JSONFormat.DeltaArgs arg:JSONFormat.DeltaArgs.values())
+         cacheName(arg.name());
+      cacheName("newName");
+      cacheName(JSONSerializer.RootCommands.sync.name());
+   }
+
+   public JSONParser(CharSequence input, JSONResolver resolver) {
+      int inputLen = input.length();
+      char[] buf = new char[inputLen];
+      if (input instanceof String)
+         ((String) input).getChars(0, inputLen, buf, 0);
+      else if (input instanceof StringBuilder)
+         ((StringBuilder) input).getChars(0, inputLen, buf, 0);
+      else {
+         for (int i = 0; i < inputLen; i++)
+            buf[i] = input.charAt(i);
+      }
+      this.input = buf;
+      this.len = inputLen;
+      this.resolver = resolver;
+   }
+
+   /** Parses the chars from offset to offset+length in the buffer, which is used directly and must not be changed during the parse */
+   public JSONParser(char[] buf, int offset, int length, JSONResolver resolver) {
+      this.input = buf;
+      this.curPos = offset;
+      this.len = offset + length;
+      this.resolver = resolver;
+   }
+
+   public boolean parseCharToken(char token) {
+      char c;
+      do {
+         if (curPos >= len)
+            return false;
+         c = input[curPos++];
+         if (c == token)
+            return true;
+      } while (Character.isWhitespace(c));
+      curPos--;
+      return false;
+   }
+
+   public boolean peekCharToken(char token) {
+      int start = curPos;
+      boolean res = parseCharToken(token);
+      curPos = start;
+      return res;
+   }
+
+   /**
+    * Moves past the next "string" token, setting strStart, strEnd and strEscaped.  Returns false if it's 'null' and allowNull is set,
+    * at a '}' which is consumed, or at any other token which is not.
+    */
+   private boolean scanString(boolean allowNull) {
+      char c;
+      do {
+         if (curPos >= len)
+            return false;
+
+         c = input[curPos++];
+         if (c == '}')
+            return false;
+
+         if (c == '"') {
+            int start = curPos;
+            boolean escaped = false;
+            do {
+               if (curPos >= len)
+                  return false;
+               c = input[curPos++];
+               if (c == '\\') {
+                  escaped = true;
+                  curPos++;
+               }
+            } while (c != '"');
+            strStart = start;
+            strEnd = curPos - 1;
+            strEscaped = escaped;
+            return true;
+         }
+         else if (allowNull && c == 'n' && (len - curPos) >= 3 && input[curPos] == 'u' && input[curPos + 1] == 'l' && input[curPos + 2] == 'l') {
+            curPos += 3;
+            return false;
+         }
+      } while (Character.isWhitespace(c));
+      curPos--;
+      return false;
+   }
+
+   // Parses: "string" or null
+   public CharSequence parseString(boolean allowNull) {
+      if (!scanString(allowNull))
+         return null;
+      return strEscaped ? decodeString(strStart, strEnd) : new String(input, strStart, strEnd - strStart);
+   }
+
+   /** Returns the string for the given range, with the JSON escape sequences replaced */
+   private String decodeString(int start, int end) {
+      StringBuilder sb = new StringBuilder(end - start);
+      for (int i = start; i < end; i++) {
+         char c = input[i];
+         if (c != '\\' || i == end - 1) {
+            sb.append(c);
+            continue;
+         }
+         c = input[++i];
+         switch (c) {
+            case 'b':
+               sb.append('\b');
+               break;
+            case 't':
+               sb.append('\t');
+               break;
+            case 'n':
+               sb.append('\n');
+               break;
+            case 'f':
+               sb.append('\f');
+               break;
+            case 'r':
+               sb.append('\r');
+               break;
+            case 'u':
+               if (i + 4 >= end)
+                  throw new IllegalArgumentException("Invalid unicode escape in JSON string: " + this);
+               int code = 0;
+               for (int j = 1; j <= 4; j++) {
+                  int digit = Character.digit(input[i + j], 16);
+                  if (digit == -1)
+                     throw new IllegalArgumentException("Invalid unicode escape in JSON string: " + this);
+                  code = (code << 4) | digit;
+               }
+               sb.append((char) code);
+               i += 4;
+               break;
+            default: // \" \\ \/ and any other char stand for themselves
+               sb.append(c);
+               break;
+         }
+      }
+      return sb.toString();
+   }
+
+   /** The JSON format does not natively support references so when JSONDeserializer is present,
+    *  use a string with a special prefix 'ref:'.  This also allows null */
+   public Object parseRefOrString(Object resultType) {
+      if (!scanString(true))
+         return null;
+      int start = strStart;
+      int valLen = strEnd - start;
+      if (resolver != null && valLen > 4) {
+         if (isRefPrefix(input, start)) {
+            return resolveRefString(new String(input, start + 4, valLen - 4), resultType);
+         }
+         // When the string value starts with 'ref:' we insert a \ as the first char so just need to strip this off.
+         else if (input[start] == '\\' && valLen > 5 && isRefPrefix(input, start + 1))
+            start++;
+      }
+      if (!strEscaped)
+         return new String(input, start, strEnd - start);
+      String res = decodeString(start, strEnd);
+      // The \ we inserted before 'ref:' is escaped itself when the serializer escapes the string
+      if (resolver != null && res.length() > 5 && res.charAt(0) == '\\' && res.startsWith("ref:", 1))
+         res = res.substring(1);
+      return res;
+   }
+
+   Object resolveRefString(CharSequence val, int valLen, Object resultType) {
+      return resolveRefString(val.subSequence(4, valLen).toString(), resultType);
+   }
+
+   private Object resolveRefString(String objName, Object resultType) {
+      // For sync, this will be JSONDeserializer that resolves named object references in the sync stream
+      // For DB types it will resolve a reference to either DB object or a rooted object in the tree
+      Object obj = resolver.resolveRef(objName, resultType);
+      if (obj == null) {
+         System.err.println("No object: " + objName + " for reference in JSON: " + this);
+      }
+      return obj;
+   }
+
+   // Parses: "string":
+   public CharSequence parseName() {
+      if (!scanString(false) || !parseCharToken(':'))
+         return null;
+      return strEscaped ? decodeString(strStart, strEnd) : getCachedName(input, strStart, strEnd);
+   }
+
+   public CharSequence parseNextName() {
+      if (!parseCharToken(','))
+         throw new IllegalArgumentException("Missing comma in JSON: " + this);
+      return parseName();
+   }
+
+   // Must match JSONFormat.ExprPrefixes.isRefPrefix
+   private static boolean isRefPrefix(char[] val, int off) {
+      return val[off] == 'r' && val[1+off] == 'e' && val[2+off] == 'f' && val[3+off] == ':';
+   }
+
+   private static int hashName(char[] buf, int start, int end) {
+      int h = 0;
+      for (int i = start; i < end; i++)
+         h = 31 * h + buf[i];
+      return h;
+   }
+
+   private static int cacheSlot(int hash) {
+      return (hash ^ (hash >>> 16)) & (NameCacheSize - 1);
+   }
+
+   private static String getCachedName(char[] buf, int start, int end) {
+      int nameLen = end - start;
+      if (nameLen > MaxCachedNameLen)
+         return new String(buf, start, nameLen);
+      int slot = cacheSlot(hashName(buf, start, end));
+      String cached = nameCache[slot];
+      if (cached != null && cached.length() == nameLen) {
+         int i = 0;
+         while (i < nameLen && cached.charAt(i) == buf[start + i])
+            i++;
+         if (i == nameLen)
+            return cached;
+      }
+      String res = new String(buf, start, nameLen);
+      nameCache[slot] = res;
+      return res;
+   }
+
+   private static void cacheName(String name) {
+      nameCache[cacheSlot(name.hashCode())] = name;
+   }
+
+   private void skipWhitespace() {
+      while (curPos < len && Character.isWhitespace(input[curPos]))
+         curPos++;
+   }
+
+   public Map parseObject() {
+      if (parseCharToken('{')) {
+         BHashMap map = new BHashMap();
+         boolean first = true;
+         while (!parseCharToken('}')) {
+            CharSequence name = first ? parseName() : parseNextName();
+            if (name == null) {
+               throw new IllegalArgumentException("Expected string name value at: " + this);
+            }
+            Object val = parseJSONValue(null);
+
+            map.put(name, val);
+            first = false;
+         }
+         return map;
+      }
+      throw new IllegalArgumentException("Expected object definition at: " + this);
+   }
+
+   public List parseArray(Object resultType) {
+      if (parseCharToken('[')) {
+         BArrayList res = new BArrayList();
+
+         boolean first = true;
+         Object compType = resultType == null ? null : DynUtil.getComponentType(resultType);
+         while (!parseCharToken(']')) {
+            if (!first)
+               expect(",");
+            first = false;
+            Object val = parseJSONValue(compType);
+            res.add(val);
+         }
+         return res;
+      }
+      throw new IllegalArgumentException("Expected JSON array at: " + this);
+   }
+
+   public Object parseJSONValue(Object resultType) {
+      skipWhitespace();
+      if (curPos >= len)
+         throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
+      char nextChar = input[curPos];
+      switch (nextChar) {
+         case '{':
+            return parseObject();
+         case '[':
+            return parseArray(resultType);
+         case '"':
+            return parseRefOrString(resultType);
+         case 't':
+            expect("true");
+            return Boolean.TRUE;
+         case 'f':
+            expect("false");
+            return Boolean.FALSE;
+         case 'n':
+            expect("null");
+            return null;
+         case '-':
+            return parseNumber(true);
+      }
+      if ((nextChar >= '0' && nextChar <= '9') ) {
+         return parseNumber(false);
+      }
+      throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
+   }
+
+   /** Moves past the next value - string, number, object, array or literal - without creating it or resolving any references in it */
+   public void skipJSONValue() {
+      int depth = 0;
+      do {
+         skipWhitespace();
+         if (curPos >= len)
+            throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
+         char c = input[curPos];
+         switch (c) {
+            case '"':
+               if (!scanString(false))
+                  throw new IllegalArgumentException("Unterminated JSON string at: " + this);
+               break;
+            case '{':
+            case '[':
+               depth++;
+               curPos++;
+               break;
+            case '}':
+            case ']':
+               if (depth == 0)
+                  throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
+               depth--;
+               curPos++;
+               break;
+            case ',':
+            case ':':
+               if (depth == 0)
+                  throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
+               curPos++;
+               break;
+            default:
+               // A number or true, false, null
+               int start = curPos;
+               while (curPos < len && (c = input[curPos]) != ',' && c != '}' && c != ']' && c != ':' && !Character.isWhitespace(c))
+                  curPos++;
+               if (curPos == start)
+                  throw new IllegalArgumentException("Parse error - expected JSON value at: " + this);
+               break;
+         }
+      } while (depth > 0);
+   }
+
+   public Number parseNumber(boolean negative) {
+      int startNum = curPos;
+      if (negative)
+         parseCharToken('-');
+      int digitStart = curPos;
+      boolean isFloat = false;
+      long val = 0;
+      do {
+         if (curPos >= len)
+            break;
+         char nextChar = input[curPos++];
+         if (nextChar >= '0' && nextChar <= '9') {
+            val = val * 10 + (nextChar - '0');
+            continue;
+         }
+         else if (nextChar == 'e' || nextChar == 'E' || nextChar == '.' || nextChar == '+' || nextChar == '-') {
+            isFloat = true;
+            continue;
+         }
+         else {
+            curPos--;
+            break;
+         }
+      } while (true);
+
+      int numDigits = curPos - digitStart;
+      if (numDigits == 0)
+         throw new IllegalArgumentException("Expected number: " + this);
+      // Integers short enough not to overflow the long are converted as we go - others use the JDK parse methods
+      if (isFloat || numDigits > 18) {
+         String numStr = new String(input, startNum, curPos - startNum);
+         if (isFloat) {
+            return Double.parseDouble(numStr);
+         }
+         val = Long.parseLong(numStr);
+      }
+      else if (negative)
+         val = -val;
+      if (val <= Integer.MAX_VALUE && val >= Integer.MIN_VALUE)
+         return (int) val;
+      return val;
+   }
+
+   public void expect(String val) {
+      int len = val.length();
+      for (int i = 0; i < len; i++) {
+         if (curPos >= this.len || input[curPos] != val.charAt(i))
+            throw new IllegalArgumentException("Expected: " + val + " found: " + this);
+         curPos++;
+      }
+   }
+
+   public void expectNextName(String val) {
+      skipWhitespace();
+      expect(",");
+      skipWhitespace();
+      expect("\"");
+      expect(val);
+      expect("\"");
+      skipWhitespace();
+      expect(":");
+   }
+
+   public String toString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append("json - parsing: ");
+      if (atEOF())
+         sb.append("at eof");
+      else
+         sb.append(input, curPos, Math.min(curPos + 25, len) - curPos);
+      sb.append(" [");
+      sb.append(curPos);
+      sb.append(":");
+      sb.append(len);
+      return sb.toString();
+   }
+
+   public static boolean eqs(CharSequence s1, CharSequence s2) {
+      int len1 = s1.length();
+      int len2 = s2.length();
+      if (len1 != len2)
+         return false;
+      for (int i = 0; i < len1; i++) {
+         if (s1.charAt(i) != s2.charAt(i))
+            return false;
+      }
+      return true;
+   }
+
+   public boolean atEOF() {
+      return curPos >= len;
+   }
+}
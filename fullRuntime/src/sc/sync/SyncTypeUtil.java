@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.sync;
+
+import sc.dyn.DynUtil;
+import sc.obj.Sync;
+import sc.obj.SyncMode;
+import sc.type.IBeanMapper;
+
+import java.lang.reflect.ParameterizedType;
+
+/**
+ * Type utilities for the sync system which depend on the runtime.  This is the Java version which replaces the one in coreRuntime
+ * and uses the property's generic type.
+ */
+@sc.js.JSSettings(jsModuleFile="js/sync.js", prefixAlias="sc_")
+@Sync(syncMode=SyncMode.Disabled)
+public class SyncTypeUtil {
+   /** Returns the class of the ix'th type argument of the property's declared type - e.g. the value type of a Map for 1 - or null if it's not known */
+   public static Object getTypeArgument(Object objType, String propName, int ix) {
+      IBeanMapper mapper = DynUtil.getPropertyMapping(objType, propName);
+      Object genType = mapper == null ? null : mapper.getGenericType();
+      if (!(genType instanceof ParameterizedType))
+         return null;
+      java.lang.reflect.Type[] args = ((ParameterizedType) genType).getActualTypeArguments();
+      if (args == null || ix >= args.length || !(args[ix] instanceof Class))
+         return null;
+      return args[ix];
+   }
+}
@@ -31,6 +31,9 @@ public class BeanMapper extends AbstractBeanMapper {
    // the owner type.  In Java, you technically inherit static properties but each type does not get their own copy.
    public Object ownerType;
 
+   /** Created on first use when PropertyAccessorFactory.enabled is set.  PropertyAccessor.NONE when one can't be created. */
+   private transient volatile PropertyAccessor accessor;
+
    public BeanMapper() {
    }
 
@@ -49,9 +52,25 @@ public class BeanMapper extends AbstractBeanMapper {
    }
 
 
+   /**
+    * Runtime exceptions and errors thrown by the getter propagate, like they do for the setter.  A checked exception from the getter is
+    * logged and null is returned.  The generated accessor and the reflective path follow the same rules.
+    */
    public Object getPropertyValue(Object parent, boolean getField, boolean pendingChild) {
       if (parent == null && staticPosition == -1)
          throw new IllegalArgumentException("Attempt to get instance property: " + this + " without object");
+      if (PropertyAccessorFactory.enabled && !(getField && field != null)) {
+         PropertyAccessor acc = getAccessor();
+         if (acc != null && acc.getter != null) {
+            try {
+               return acc.getter.get(parent);
+            }
+            catch (Exception exc) {
+               accessorGetFailed(exc, parent);
+               return null;
+            }
+         }
+      }
       try {
          if (getField && field != null)
             return field.get(parent);
@@ -65,8 +84,13 @@ public class BeanMapper extends AbstractBeanMapper {
             return ((Method) getSelector).invoke(parent);
       }
       catch (InvocationTargetException ite) {
-         System.err.println("*** Error getting: " + getSelector + " on: " + parent + " threw: " + ite);
-         ite.printStackTrace();
+         Throwable cause = ite.getCause();
+         if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+         if (cause instanceof Error)
+            throw (Error) cause;
+         System.err.println("*** Error getting: " + getSelector + " on: " + parent + " threw: " + cause);
+         cause.printStackTrace();
       }
       catch (IllegalArgumentException exc) {
          System.err.println("*** Error getting: " + getSelector + " on: " + parent + " threw: " + exc);
@@ -92,6 +116,14 @@ public class BeanMapper extends AbstractBeanMapper {
       if (setSelector == null) {
          throw new IllegalArgumentException("Attempt to modify a read-only property: " + this);
       }
+      if (PropertyAccessorFactory.enabled) {
+         PropertyAccessor acc = getAccessor();
+         // Values that need converting, e.g. an Integer for a long property, are left to the reflective code below
+         if (acc != null && acc.setter != null && acc.canSet(parent, value)) {
+            acc.setter.set(parent, value);
+            return;
+         }
+      }
       try {
          if (setIsField)
             ((Field) setSelector).set(parent, value);
@@ -147,12 +179,65 @@ public class BeanMapper extends AbstractBeanMapper {
       return field;
    }
 
+   /** Returns the generated accessor for this property or null if there is none */
+   public PropertyAccessor getAccessor() {
+      PropertyAccessor acc = accessor;
+      if (acc == null) {
+         acc = PropertyAccessorFactory.createAccessor(getSelector, setSelector);
+         if (acc == null)
+            acc = PropertyAccessor.NONE;
+         accessor = acc;
+      }
+      return acc == PropertyAccessor.NONE ? null : acc;
+   }
+
+   /** Rethrows a runtime exception from a generated getter and logs a checked one, like the reflective path in getPropertyValue */
+   private void accessorGetFailed(Exception exc, Object parent) {
+      // The MethodHandle accessors wrap checked exceptions, the generated classes throw them unwrapped
+      Throwable cause = exc instanceof UndeclaredThrowableException ? exc.getCause() : exc;
+      if (cause instanceof RuntimeException)
+         throw (RuntimeException) cause;
+      System.err.println("*** Error getting: " + getSelector + " on: " + parent + " threw: " + cause);
+      cause.printStackTrace();
+   }
+
+   /** Returns the value of an int property without boxing when accessors are enabled */
+   public int getIntPropertyValue(Object parent) {
+      if (PropertyAccessorFactory.enabled) {
+         PropertyAccessor acc = getAccessor();
+         if (acc != null && acc.intGetter != null) {
+            try {
+               return acc.intGetter.get(parent);
+            }
+            catch (Exception exc) {
+               accessorGetFailed(exc, parent);
+               return 0;
+            }
+         }
+      }
+      Object val = getPropertyValue(parent, false, false);
+      return val == null ? 0 : ((Number) val).intValue();
+   }
+
+   /** Sets the value of an int property without boxing when accessors are enabled */
+   public void setIntPropertyValue(Object parent, int value) {
+      if (PropertyAccessorFactory.enabled) {
+         PropertyAccessor acc = getAccessor();
+         if (acc != null && acc.intSetter != null) {
+            acc.intSetter.set(parent, value);
+            return;
+         }
+      }
+      setPropertyValue(parent, value);
+   }
+
    public boolean hasAccessorMethod() {
       return getSelector instanceof Method;
    }
 
    public void setGetSelector(Object gs) {
       getSelector = gs;
+      accessor = null;
       getIsField = getSelector instanceof Field;
       if (getSelector != null && !getIsField && !(getSelector instanceof Method))
          System.err.println("*** Unknown getselector type!");
@@ -168,6 +253,7 @@ public class BeanMapper extends AbstractBeanMapper {
 
    public void setSetSelector(Object gs) {
       setSelector = gs;
+      accessor = null;
       setIsField = setSelector instanceof Field;
       if (setSelector != null && !setIsField && !(setSelector instanceof Method))
          System.err.println("*** Unknown setselector type!");
@@ -238,19 +324,42 @@ public class BeanMapper extends AbstractBeanMapper {
 
    public int getPropertyPosition(Object obj) {
       if (instPosition == DYNAMIC_LOOKUP_POSITION) {
+         boolean isDyn = obj instanceof IDynObject;
+         // Interface properties are resolved for each event so remember the last compiled class we saw.  Generated code
+         // keeps one mapper per property so this usually hits.
+         PositionCache cache = lastPosition;
+         if (!isDyn && cache != null && cache.cl == obj.getClass())
+            return cache.position;
          // We can have a compiled interface which is implemented by a dynamic type
-         IBeanMapper instMapper = obj instanceof IDynObject ? DynUtil.getPropertyMapping(((IDynObject) obj).getDynType(), getPropertyName()) :
+         IBeanMapper instMapper = isDyn ? DynUtil.getPropertyMapping(((IDynObject) obj).getDynType(), getPropertyName()) :
                                                               TypeUtil.getPropertyMapping(obj.getClass(), getPropertyName());
          if (instMapper == null) {
             System.err.println("*** Failed to find mapping in obj class for interface");
             return -1;
          }
-         else
-            return instMapper.getPropertyPosition();
+         else {
+            int pos = instMapper.getPropertyPosition();
+            if (!isDyn)
+               lastPosition = new PositionCache(obj.getClass(), pos);
+            return pos;
+         }
       }
       return instPosition;
    }
 
+   /** Immutable so it can be replaced without locking when more than one thread is using this mapper */
+   private static final class PositionCache {
+      final Class cl;
+      final int position;
+
+      PositionCache(Class cl, int position) {
+         this.cl = cl;
+         this.position = position;
+      }
+   }
+
+   private transient volatile PositionCache lastPosition;
+
    public int getStaticPropertyPosition() {
       return staticPosition;
    }
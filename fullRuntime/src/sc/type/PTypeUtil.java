@@ -9,7 +9,9 @@ import sc.dyn.DynRemoteMethod;
 import sc.dyn.IReverseMethodMapper;
 import sc.js.JSSettings;
 import sc.util.StringUtil;
-import sc.util.WeakIdentityHashMap;
+import sc.util.ConcurrentWeakIdentityHashMap;
+import sc.util.IJobScheduler;
+import sc.util.WheelJobScheduler;
 import sc.dyn.DynUtil;
 import sc.dyn.RDynUtil;
 
@@ -233,8 +235,9 @@ public class PTypeUtil {
       return new WeakHashMap();
    }
 
+   /** Used for the Bind registries, which are read during event dispatch and updated from many threads at once */
    public static Map getWeakIdentityHashMap() {
-      return new WeakIdentityHashMap();
+      return new ConcurrentWeakIdentityHashMap();
    }
 
    public static int getModifiers(Object def) {
@@ -1073,30 +1076,50 @@ public class PTypeUtil {
       }
    }
 
-   private static Timer timer;
-   private static final Object timerLock = new Object();
+   /** Runs the jobs for addScheduledJob.  Set this before the first job is added to use a different scheduler */
+   public static volatile IJobScheduler jobScheduler;
+   private static final Object schedulerLock = new Object();
 
-   public static Object addScheduledJob(final Runnable toRun, long delay, boolean repeat) {
-      if (timer == null) {
-         synchronized (timerLock) {
-            if (timer == null)
-               timer = new Timer("PTypeUtil.addScheduledJob");
+   public static IJobScheduler getJobScheduler() {
+      IJobScheduler sched = jobScheduler;
+      if (sched == null) {
+         synchronized (schedulerLock) {
+            sched = jobScheduler;
+            if (sched == null)
+               jobScheduler = sched = new WheelJobScheduler("PTypeUtil.addScheduledJob");
          }
       }
-      TimerTask task = new TimerTask() {
-         public void run() {
-            toRun.run();
-         }
-      };
-      if (repeat)
-         timer.schedule(task, delay, delay);
-      else
-         timer.schedule(task, delay);
-      return task;
+      return sched;
+   }
+
+   /** The handle returned by addScheduledJob - keeps the scheduler that added the job in case jobScheduler is changed later */
+   private static class ScheduledJob {
+      final IJobScheduler scheduler;
+      final Object handle;
+
+      ScheduledJob(IJobScheduler scheduler, Object handle) {
+         this.scheduler = scheduler;
+         this.handle = handle;
+      }
+   }
+
+   public static Object addScheduledJob(final Runnable toRun, long delay, boolean repeat) {
+      return addScheduledJob(toRun, null, delay, repeat);
+   }
+
+   /** Like addScheduledJob but with a name used to group the scheduler's statistics for the job */
+   public static Object addScheduledJob(final Runnable toRun, String jobName, long delay, boolean repeat) {
+      IJobScheduler sched = getJobScheduler();
+      return new ScheduledJob(sched, sched.addScheduledJob(toRun, jobName, delay, repeat));
    }
 
    public static void cancelScheduledJob(Object handle, boolean repeat) {
-      ((TimerTask) handle).cancel();
+      if (!(handle instanceof ScheduledJob)) {
+         System.err.println("*** cancelScheduledJob - not a handle from addScheduledJob: " + handle);
+         return;
+      }
+      ScheduledJob job = (ScheduledJob) handle;
+      job.scheduler.cancelScheduledJob(job.handle);
    }
 
    /** On the server, do nothing.  On the client, run the job after the initial page has loaded and been refreshed.  */
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.type;
+
+/**
+ * Reads and writes one property without reflection.  Built by PropertyAccessorFactory, either from classes spun with LambdaMetafactory
+ * or from MethodHandles for members that are not public.  Any of the fields may be null when that operation is not available for the
+ * property - e.g. a read-only property has no setter and only an int property has an intGetter and intSetter.
+ */
+public class PropertyAccessor {
+   /** Marks a BeanMapper where we tried and failed to create an accessor so we don't try again */
+   final static PropertyAccessor NONE = new PropertyAccessor();
+
+   public IGetter getter;
+   public ISetter setter;
+
+   // Primitive variants - set only when the property has that primitive type so the value is never boxed
+   public IIntGetter intGetter;
+   public IIntSetter intSetter;
+   public ILongGetter longGetter;
+   public ILongSetter longSetter;
+   public IDoubleGetter doubleGetter;
+   public IDoubleSetter doubleSetter;
+   public IBooleanGetter booleanGetter;
+   public IBooleanSetter booleanSetter;
+
+   /** The boxed type of the setter's value and the class which declares it - null for a static setter - used by canSet */
+   Class setterValueClass;
+   Class setterOwnerClass;
+
+   public interface IGetter {
+      Object get(Object obj);
+   }
+
+   public interface ISetter {
+      void set(Object obj, Object value);
+   }
+
+   public interface IIntGetter {
+      int get(Object obj);
+   }
+
+   public interface IIntSetter {
+      void set(Object obj, int value);
+   }
+
+   public interface ILongGetter {
+      long get(Object obj);
+   }
+
+   public interface ILongSetter {
+      void set(Object obj, long value);
+   }
+
+   public interface IDoubleGetter {
+      double get(Object obj);
+   }
+
+   public interface IDoubleSetter {
+      void set(Object obj, double value);
+   }
+
+   public interface IBooleanGetter {
+      boolean get(Object obj);
+   }
+
+   public interface IBooleanSetter {
+      void set(Object obj, boolean value);
+   }
+
+   /**
+    * Returns true if setter accepts these arguments.  The accessor casts them where reflection would convert the value (e.g. Integer to
+    * a long property) so check first rather than catching the ClassCastException, which might come from the setter itself.
+    */
+   public boolean canSet(Object obj, Object value) {
+      return (value == null || setterValueClass.isInstance(value)) && (setterOwnerClass == null || setterOwnerClass.isInstance(obj));
+   }
+
+   public int getIntValue(Object obj) {
+      if (intGetter != null)
+         return intGetter.get(obj);
+      return ((Number) getter.get(obj)).intValue();
+   }
+
+   public void setIntValue(Object obj, int value) {
+      if (intSetter != null)
+         intSetter.set(obj, value);
+      else
+         setter.set(obj, value);
+   }
+
+   public long getLongValue(Object obj) {
+      if (longGetter != null)
+         return longGetter.get(obj);
+      return ((Number) getter.get(obj)).longValue();
+   }
+
+   public void setLongValue(Object obj, long value) {
+      if (longSetter != null)
+         longSetter.set(obj, value);
+      else
+         setter.set(obj, value);
+   }
+
+   public double getDoubleValue(Object obj) {
+      if (doubleGetter != null)
+         return doubleGetter.get(obj);
+      return ((Number) getter.get(obj)).doubleValue();
+   }
+
+   public void setDoubleValue(Object obj, double value) {
+      if (doubleSetter != null)
+         doubleSetter.set(obj, value);
+      else
+         setter.set(obj, value);
+   }
+
+   public boolean getBooleanValue(Object obj) {
+      if (booleanGetter != null)
+         return booleanGetter.get(obj);
+      return (Boolean) getter.get(obj);
+   }
+
+   public void setBooleanValue(Object obj, boolean value) {
+      if (booleanSetter != null)
+         booleanSetter.set(obj, value);
+      else
+         setter.set(obj, value);
+   }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.type;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Creates PropertyAccessors used by BeanMapper in place of Field.get/Method.invoke.  Turn this on with the 'enabled' flag.
+ * <p>
+ * For public getters and setters of classes visible from this class's loader, we spin a small class for each operation with
+ * LambdaMetafactory so the call is a plain interface call the JIT can inline.  For fields, static properties, non-public members and
+ * classes in child class loaders (e.g. those loaded by the layered system) we fall back to a MethodHandle adapted to Object parameters.
+ * If neither works, the BeanMapper keeps using reflection.
+ * </p>
+ */
+public class PropertyAccessorFactory {
+   /** When true, BeanMapper creates an accessor for each property the first time it's used and uses it for get/set */
+   public static boolean enabled = false;
+
+   public static boolean trace = false;
+
+   private final static MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+   private final static MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+   private final static MethodType OBJECT_SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+   /** Returns the accessor for the property's selectors or null if one can't be built. */
+   public static PropertyAccessor createAccessor(Object getSelector, Object setSelector) {
+      PropertyAccessor res = new PropertyAccessor();
+      try {
+         if (getSelector instanceof Field || getSelector instanceof Method)
+            initGetter(res, (Member) getSelector);
+         if (setSelector instanceof Field || setSelector instanceof Method)
+            initSetter(res, (Member) setSelector);
+      }
+      catch (Throwable exc) {
+         if (trace)
+            System.err.println("*** Unable to create property accessor for: " + (getSelector != null ? getSelector : setSelector) + ": " + exc);
+         return null;
+      }
+      if (res.getter == null && res.setter == null)
+         return null;
+      return res;
+   }
+
+   private static void initGetter(PropertyAccessor res, Member getSelector) throws Throwable {
+      Class propType = getSelector instanceof Field ? ((Field) getSelector).getType() : ((Method) getSelector).getReturnType();
+      Class declClass = getSelector.getDeclaringClass();
+      if (getSelector instanceof Method && canSpinClass((Method) getSelector)) {
+         MethodHandle impl = lookup.unreflect((Method) getSelector);
+         res.getter = (PropertyAccessor.IGetter) spin(PropertyAccessor.IGetter.class, "get", OBJECT_GETTER,
+                 MethodType.methodType(MethodType.methodType(propType).wrap().returnType(), declClass), impl);
+         if (propType == int.class)
+            res.intGetter = (PropertyAccessor.IIntGetter) spin(PropertyAccessor.IIntGetter.class, "get", MethodType.methodType(int.class, Object.class),
+                    MethodType.methodType(int.class, declClass), impl);
+         else if (propType == long.class)
+            res.longGetter = (PropertyAccessor.ILongGetter) spin(PropertyAccessor.ILongGetter.class, "get", MethodType.methodType(long.class, Object.class),
+                    MethodType.methodType(long.class, declClass), impl);
+         else if (propType == double.class)
+            res.doubleGetter = (PropertyAccessor.IDoubleGetter) spin(PropertyAccessor.IDoubleGetter.class, "get", MethodType.methodType(double.class, Object.class),
+                    MethodType.methodType(double.class, declClass), impl);
+         else if (propType == boolean.class)
+            res.booleanGetter = (PropertyAccessor.IBooleanGetter) spin(PropertyAccessor.IBooleanGetter.class, "get", MethodType.methodType(boolean.class, Object.class),
+                    MethodType.methodType(boolean.class, declClass), impl);
+         return;
+      }
+
+      MethodHandle handle = getSelector instanceof Field ? lookup.unreflectGetter((Field) getSelector) : lookup.unreflect((Method) getSelector);
+      // Static properties ignore the object passed in
+      if (Modifier.isStatic(getSelector.getModifiers()))
+         handle = MethodHandles.dropArguments(handle, 0, Object.class);
+
+      final MethodHandle objHandle = handle.asType(OBJECT_GETTER);
+      res.getter = new PropertyAccessor.IGetter() {
+         public Object get(Object obj) {
+            try {
+               return (Object) objHandle.invokeExact(obj);
+            }
+            catch (Throwable exc) {
+               throw wrapException(exc);
+            }
+         }
+      };
+      if (propType == int.class) {
+         final MethodHandle intHandle = handle.asType(MethodType.methodType(int.class, Object.class));
+         res.intGetter = new PropertyAccessor.IIntGetter() {
+            public int get(Object obj) {
+               try {
+                  return (int) intHandle.invokeExact(obj);
+               }
+               catch (Throwable exc) {
+                  throw wrapException(exc);
+               }
+            }
+         };
+      }
+      else if (propType == long.class) {
+         final MethodHandle longHandle = handle.asType(MethodType.methodType(long.class, Object.class));
+         res.longGetter = new PropertyAccessor.ILongGetter() {
+            public long get(Object obj) {
+               try {
+                  return (long) longHandle.invokeExact(obj);
+               }
+               catch (Throwable exc) {
+                  throw wrapException(exc);
+               }
+            }
+         };
+      }
+      else if (propType == double.class) {
+         final MethodHandle doubleHandle = handle.asType(MethodType.methodType(double.class, Object.class));
+         res.doubleGetter = new PropertyAccessor.IDoubleGetter() {
+            public double get(Object obj) {
+               try {
+                  return (double) doubleHandle.invokeExact(obj);
+               }
+               catch (Throwable exc) {
+                  throw wrapException(exc);
+               }
+            }
+         };
+      }
+      else if (propType == boolean.class) {
+         final MethodHandle booleanHandle = handle.asType(MethodType.methodType(boolean.class, Object.class));
+         res.booleanGetter = new PropertyAccessor.IBooleanGetter() {
+            public boolean get(Object obj) {
+               try {
+                  return (boolean) booleanHandle.invokeExact(obj);
+               }
+               catch (Throwable exc) {
+                  throw wrapException(exc);
+               }
+            }
+         };
+      }
+   }
+
+   private static void initSetter(PropertyAccessor res, Member setSelector) throws Throwable {
+      if (setSelector instanceof Field && Modifier.isFinal(setSelector.getModifiers()))
+         return;
+      Class propType = setSelector instanceof Field ? ((Field) setSelector).getType() : ((Method) setSelector).getParameterTypes()[0];
+      Class declClass = setSelector.getDeclaringClass();
+      res.setterValueClass = MethodType.methodType(propType).wrap().returnType();
+      res.setterOwnerClass = Modifier.isStatic(setSelector.getModifiers()) ? null : declClass;
+      if (setSelector instanceof Method && canSpinClass((Method) setSelector)) {
+         MethodHandle impl = lookup.unreflect((Method) setSelector);
+         res.setter = (PropertyAccessor.ISetter) spin(PropertyAccessor.ISetter.class, "set", OBJECT_SETTER,
+                 MethodType.methodType(void.class, declClass, MethodType.methodType(propType).wrap().returnType()), impl);
+         if (propType == int.class)
+            res.intSetter = (PropertyAccessor.IIntSetter) spin(PropertyAccessor.IIntSetter.class, "set", MethodType.methodType(void.class, Object.class, int.class),
+                    MethodType.methodType(void.class, declClass, int.class), impl);
+         else if (propType == long.class)
+            res.longSetter = (PropertyAccessor.ILongSetter) spin(PropertyAccessor.ILongSetter.class, "set", MethodType.methodType(void.class, Object.class, long.class),
+                    MethodType.methodType(void.class, declClass, long.class), impl);
+         else if (propType == double.class)
+            res.doubleSetter = (PropertyAccessor.IDoubleSetter) spin(PropertyAccessor.IDoubleSetter.class, "set", MethodType.methodType(void.class, Object.class, double.class),
+                    MethodType.methodType(void.class, declClass, double.class), impl);
+         else if (propType == boolean.class)
+            res.booleanSetter = (PropertyAccessor.IBooleanSetter) spin(PropertyAccessor.IBooleanSetter.class, "set", MethodType.methodType(void.class, Object.class, boolean.class),
+                    MethodType.methodType(void.class, declClass, boolean.class), impl);
+         return;
+      }
+
+      MethodHandle handle = setSelector instanceof Field ? lookup.unreflectSetter((Field) setSelector) : lookup.unreflect((Method) setSelector);
+      if (Modifier.isStatic(setSelector.getModifiers()))
+         handle = MethodHandles.dropArguments(handle, 0, Object.class);
+
+      final MethodHandle objHandle = handle.asType(OBJECT_SETTER);
+      res.setter = new PropertyAccessor.ISetter() {
+         public void set(Object obj, Object value) {
+            try {
+               objHandle.invokeExact(obj, value);
+            }
+            catch (Throwable exc) {
+               throw wrapException(exc);
+            }
+         }
+      };
+      if (propType == int.class) {
+         final MethodHandle intHandle = handle.asType(MethodType.methodType(void.class, Object.class, int.class));
+         res.intSetter = new PropertyAccessor.IIntSetter() {
+            public void set(Object obj, int value) {
+               try {
+                  intHandle.invokeExact(obj, value);
+               }
+               catch (Throwable exc) {
+                  throw wrapException(exc);
+               }
+            }
+         };
+      }
+      else if (propType == long.class) {
+         final MethodHandle longHandle = handle.asType(MethodType.methodType(void.class, Object.class, long.class));
+         res.longSetter = new PropertyAccessor.ILongSetter() {
+            public void set(Object obj, long value) {
+               try {
+                  longHandle.invokeExact(obj, value);
+               }
+               catch (Throwable exc) {
+                  throw wrapException(exc);
+               }
+            }
+         };
+      }
+      else if (propType == double.class) {
+         final MethodHandle doubleHandle = handle.asType(MethodType.methodType(void.class, Object.class, double.class));
+         res.doubleSetter = new PropertyAccessor.IDoubleSetter() {
+            public void set(Object obj, double value) {
+               try {
+                  doubleHandle.invokeExact(obj, value);
+               }
+               catch (Throwable exc) {
+                  throw wrapException(exc);
+               }
+            }
+         };
+      }
+      else if (propType == boolean.class) {
+         final MethodHandle booleanHandle = handle.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+         res.booleanSetter = new PropertyAccessor.IBooleanSetter() {
+            public void set(Object obj, boolean value) {
+               try {
+                  booleanHandle.invokeExact(obj, value);
+               }
+               catch (Throwable exc) {
+                  throw wrapException(exc);
+               }
+            }
+         };
+      }
+   }
+
+   /**
+    * The spun class is defined in this class's loader and calls the method directly so the method and class must be public, the method
+    * an instance method, and the class must resolve to the same class from our loader.
+    */
+   private static boolean canSpinClass(Method meth) {
+      Class declClass = meth.getDeclaringClass();
+      if (!Modifier.isPublic(meth.getModifiers()) || !Modifier.isPublic(declClass.getModifiers()) || Modifier.isStatic(meth.getModifiers()))
+         return false;
+      for (Class outer = declClass.getEnclosingClass(); outer != null; outer = outer.getEnclosingClass())
+         if (!Modifier.isPublic(outer.getModifiers()))
+            return false;
+      try {
+         return Class.forName(declClass.getName(), false, PropertyAccessorFactory.class.getClassLoader()) == declClass;
+      }
+      catch (ClassNotFoundException exc) {
+         return false;
+      }
+   }
+
+   private static Object spin(Class intf, String methName, MethodType samType, MethodType instType, MethodHandle impl) throws Throwable {
+      CallSite site = LambdaMetafactory.metafactory(lookup, methName, MethodType.methodType(intf), samType, impl, instType);
+      return site.getTarget().invoke();
+   }
+
+   static RuntimeException wrapException(Throwable exc) {
+      if (exc instanceof RuntimeException)
+         return (RuntimeException) exc;
+      if (exc instanceof Error)
+         throw (Error) exc;
+      return new UndeclaredThrowableException(exc);
+   }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A weak hash map that uses object identity, not equals/hashCode, and that can be read and modified by
+ * many threads at once. Unlike WeakIdentityHashMap, it does not preserve insertion order and does not use
+ * a global lock. Lookups run against the underlying ConcurrentHashMap without locking and without allocating a
+ * WeakReference. Stale entries are purged as part of put and remove.
+ *
+ * Used for the data binding registries where each request thread adds and removes listeners on its own objects
+ * and event dispatch needs to read the registry without blocking.
+ */
+public class ConcurrentWeakIdentityHashMap<K, V> implements Map<K, V> {
+   private final ReferenceQueue<K> queue = new ReferenceQueue<K>();
+
+   private final ConcurrentHashMap<Object, V> map;
+
+   public ConcurrentWeakIdentityHashMap(int initialCapacity, int concurrencyLevel) {
+      map = new ConcurrentHashMap<Object, V>(initialCapacity, 0.75f, concurrencyLevel);
+   }
+
+   public ConcurrentWeakIdentityHashMap() {
+      this(256, 32);
+   }
+
+   public V get(Object key) {
+      if (key == null)
+         return null;
+      return map.get(new LookupKey(key));
+   }
+
+   public V put(K key, V value) {
+      cleanup();
+      return map.put(new IdentityWeakRef(key), value);
+   }
+
+   public void clear() {
+      map.clear();
+      cleanup();
+   }
+
+   public Set<Map.Entry<K, V>> entrySet() {
+      Set<Map.Entry<K, V>> ret = new LinkedHashSet<Map.Entry<K, V>>();
+      for (Map.Entry<Object, V> ref : map.entrySet()) {
+         final K key = ((IdentityWeakRef) ref.getKey()).get();
+         if (key == null)
+            continue;
+         final V value = ref.getValue();
+         Map.Entry<K, V> entry = new Map.Entry<K, V>() {
+            public K getKey() {
+               return key;
+            }
+            public V getValue() {
+               return value;
+            }
+            public V setValue(V value) {
+               throw new UnsupportedOperationException();
+            }
+         };
+         ret.add(entry);
+      }
+      return Collections.unmodifiableSet(ret);
+   }
+
+   public Set<K> keySet() {
+      Set<K> ret = new LinkedHashSet<K>();
+      for (Object ref : map.keySet()) {
+         K key = ((IdentityWeakRef) ref).get();
+         if (key != null)
+            ret.add(key);
+      }
+      return Collections.unmodifiableSet(ret);
+   }
+
+   public boolean equals(Object o) {
+      return o instanceof ConcurrentWeakIdentityHashMap && map.equals(((ConcurrentWeakIdentityHashMap) o).map);
+   }
+
+   public int hashCode() {
+      return map.hashCode();
+   }
+
+   public boolean isEmpty() {
+      return map.isEmpty();
+   }
+
+   public boolean containsKey(Object key) {
+      return key != null && map.containsKey(new LookupKey(key));
+   }
+
+   public boolean containsValue(Object value) {
+      return map.containsValue(value);
+   }
+
+   public void putAll(Map<? extends K, ? extends V> t) {
+      for (Map.Entry<? extends K, ? extends V> ent : t.entrySet()) {
+         put(ent.getKey(), ent.getValue());
+      }
+   }
+
+   public V remove(Object key) {
+      cleanup();
+      if (key == null)
+         return null;
+      return map.remove(new LookupKey(key));
+   }
+
+   public int size() {
+      return map.size();
+   }
+
+   public Collection<V> values() {
+      return map.values();
+   }
+
+   private void cleanup() {
+      // poll() returns without locking when the queue is empty, the common case
+      Object zombie = queue.poll();
+
+      while (zombie != null) {
+         map.remove(zombie);
+         zombie = queue.poll();
+      }
+   }
+
+   /** A short-lived key used for get/remove so we don't have to register a WeakReference for each lookup */
+   private static final class LookupKey {
+      final Object referent;
+      final int hash;
+
+      LookupKey(Object referent) {
+         this.referent = referent;
+         this.hash = System.identityHashCode(referent);
+      }
+
+      public int hashCode() {
+         return hash;
+      }
+
+      public boolean equals(Object o) {
+         if (o instanceof ConcurrentWeakIdentityHashMap.IdentityWeakRef)
+            return ((ConcurrentWeakIdentityHashMap.IdentityWeakRef) o).get() == referent;
+         if (o instanceof LookupKey)
+            return ((LookupKey) o).referent == referent;
+         return false;
+      }
+   }
+
+   class IdentityWeakRef extends WeakReference<K> {
+      final int hash;
+
+      @SuppressWarnings("unchecked")
+      IdentityWeakRef(Object obj) {
+         super((K) obj, queue);
+         hash = System.identityHashCode(obj);
+      }
+
+      public int hashCode() {
+         return hash;
+      }
+
+      public boolean equals(Object o) {
+         if (this == o)
+            return true;
+         if (o instanceof LookupKey)
+            return ((LookupKey) o).referent == get();
+         if (o instanceof ConcurrentWeakIdentityHashMap.IdentityWeakRef) {
+            Object referent = get();
+            // Once collected, a ref only equals itself so the queue can remove the right entry
+            return referent != null && ((IdentityWeakRef) o).get() == referent;
+         }
+         return false;
+      }
+   }
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.util;
+
+/**
+ * Runs delayed and repeating jobs for PTypeUtil.addScheduledJob.  Set PTypeUtil.jobScheduler to plug in a different implementation -
+ * the default is WheelJobScheduler.  Unlike sc.dyn.IScheduler, which runs invokeLater jobs on the thread that calls execLaterJobs,
+ * jobs here run on threads owned by the scheduler.
+ */
+public interface IJobScheduler {
+   /**
+    * Runs toRun after delay millis - and every delay millis after that if repeat is true.  The jobName groups the job's statistics
+    * and may be null.  Returns a handle for cancelScheduledJob.
+    */
+   Object addScheduledJob(Runnable toRun, String jobName, long delay, boolean repeat);
+
+   /** Stops the job from running, or from running again if it's repeating.  Returns false if it had already run or been cancelled */
+   boolean cancelScheduledJob(Object handle);
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.util;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The default IJobScheduler.  One thread keeps track of when jobs are due with a hashed timing wheel - an array of buckets, one per tick,
+ * where a job goes in the bucket for the tick it's due, with a count of the number of times around the wheel to wait for longer delays.
+ * Adding, cancelling and expiring a job are constant time no matter how many are scheduled, and a cancelled job is unlinked on the next
+ * tick.  When a job is due, it's handed to an executor.  By default that's a single thread so, like java.util.Timer, jobs run one at a
+ * time in the order they are due - bindings queue one job per value change and rely on that order.  Pass a pool from createExecutor to
+ * run independent jobs concurrently.  When nothing is scheduled, the thread waits without ticking.
+ * <p>
+ * Statistics are kept for each job name (the class of the Runnable when no name is given) - number of runs, errors, run time and
+ * how late each run started.
+ * </p>
+ */
+public class WheelJobScheduler implements IJobScheduler {
+   public final static long DefaultTickMillis = 10;
+   public final static int DefaultWheelSize = 512;
+
+   private final static int WAITING = 0, QUEUED = 1, RUNNING = 2, CANCELLED = 3, DONE = 4;
+
+   public final String name;
+   private final long tickNanos;
+   private final int mask;
+   private final Bucket[] wheel;
+   private final ExecutorService executor;
+
+   private final ConcurrentLinkedQueue<Job> toAdd = new ConcurrentLinkedQueue<Job>();
+   private final ConcurrentLinkedQueue<Job> toCancel = new ConcurrentLinkedQueue<Job>();
+   // Jobs that are waiting for their time - in the wheel or in toAdd
+   private final AtomicInteger numWaiting = new AtomicInteger();
+   // Jobs handed to the executor that have not finished
+   private final AtomicInteger numQueued = new AtomicInteger();
+   private final ConcurrentHashMap<String,JobStats> jobStats = new ConcurrentHashMap<String,JobStats>();
+
+   private final Object tickLock = new Object();
+   private Thread tickThread;
+   private boolean idle = false;
+   private volatile boolean shutdown = false;
+   private final long startNanos = System.nanoTime();
+   // Only used by the tick thread - the next tick to expire
+   private long curTick = 0;
+
+   public WheelJobScheduler(String name) {
+      this(name, DefaultTickMillis, DefaultWheelSize, null);
+   }
+
+   /** The wheelSize is rounded up to a power of 2.  If executor is null, jobs run one at a time on a single thread */
+   public WheelJobScheduler(String name, long tickMillis, int wheelSize, ExecutorService executor) {
+      if (tickMillis <= 0 || wheelSize <= 0)
+         throw new IllegalArgumentException("Invalid tickMillis: " + tickMillis + " or wheelSize: " + wheelSize + " for WheelJobScheduler");
+      this.name = name;
+      this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+      int size = 1;
+      while (size < wheelSize)
+         size <<= 1;
+      this.mask = size - 1;
+      this.wheel = new Bucket[size];
+      for (int i = 0; i < size; i++)
+         wheel[i] = new Bucket();
+      this.executor = executor == null ? createExecutor(name, 1, false) : executor;
+   }
+
+   /**
+    * Returns a pool of up to numThreads threads which exit when they are idle.  If useVirtualThreads is set and the JVM supports them,
+    * it returns an executor that starts a virtual thread for each job instead.
+    */
+   public static ExecutorService createExecutor(final String name, int numThreads, boolean useVirtualThreads) {
+      if (useVirtualThreads) {
+         try {
+            Method meth = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) meth.invoke(null);
+         }
+         catch (Exception exc) {
+            System.err.println("*** Virtual threads not available for scheduler: " + name + " - using a thread pool");
+         }
+      }
+      ThreadFactory factory = new ThreadFactory() {
+         final AtomicInteger threadNum = new AtomicInteger();
+         public Thread newThread(Runnable r) {
+            return new Thread(r, name + "-" + threadNum.incrementAndGet());
+         }
+      };
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), factory);
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+   }
+
+   public Object addScheduledJob(Runnable toRun, String jobName, long delay, boolean repeat) {
+      if (shutdown)
+         throw new IllegalStateException("Scheduler: " + name + " has been shut down");
+      if (repeat && delay <= 0)
+         throw new IllegalArgumentException("Repeating job needs a delay > 0");
+      if (delay < 0)
+         delay = 0;
+      if (jobName == null)
+         jobName = toRun.getClass().getName();
+      long delayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+      Job job = new Job(toRun, getStats(jobName), repeat ? delayNanos : 0);
+      job.deadline = System.nanoTime() - startNanos + delayNanos;
+      schedule(job);
+      return job;
+   }
+
+   public boolean cancelScheduledJob(Object handle) {
+      if (!(handle instanceof Job))
+         return false;
+      Job job = (Job) handle;
+      if (job.getScheduler() != this)
+         return job.getScheduler().cancelScheduledJob(job);
+      while (true) {
+         int state = job.state.get();
+         switch (state) {
+            case WAITING:
+               if (job.state.compareAndSet(WAITING, CANCELLED)) {
+                  numWaiting.decrementAndGet();
+                  toCancel.add(job);
+                  return true;
+               }
+               break;
+            case QUEUED:
+               if (job.state.compareAndSet(QUEUED, CANCELLED))
+                  return true;
+               break;
+            case RUNNING:
+               // Can't stop the current run but a repeating job won't be scheduled again
+               if (job.periodNanos == 0)
+                  return false;
+               if (job.state.compareAndSet(RUNNING, CANCELLED))
+                  return true;
+               break;
+            default:
+               return false;
+         }
+      }
+   }
+
+   private void schedule(Job job) {
+      numWaiting.incrementAndGet();
+      toAdd.add(job);
+      synchronized (tickLock) {
+         if (tickThread == null) {
+            tickThread = new Thread(new Runnable() {
+               public void run() {
+                  runTicks();
+               }
+            }, name);
+            tickThread.start();
+         }
+         else if (idle)
+            tickLock.notify();
+      }
+   }
+
+   private void runTicks() {
+      try {
+         while (!shutdown) {
+            long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+            // Normally this is one tick but if the thread fell behind, catch up on each one
+            while (curTick <= nowTick) {
+               processCancels();
+               processAdds();
+               expireBucket(wheel[(int) (curTick & mask)]);
+               curTick++;
+            }
+            synchronized (tickLock) {
+               if (shutdown)
+                  break;
+               if (numWaiting.get() == 0 && toAdd.isEmpty()) {
+                  processCancels();
+                  idle = true;
+                  tickLock.wait();
+                  idle = false;
+                  // Nothing was in the wheel so there are no ticks to catch up on
+                  curTick = (System.nanoTime() - startNanos) / tickNanos;
+               }
+               else {
+                  long sleepNanos = curTick * tickNanos - (System.nanoTime() - startNanos);
+                  if (sleepNanos > 0)
+                     tickLock.wait(sleepNanos / 1000000, (int) (sleepNanos % 1000000));
+               }
+            }
+         }
+      }
+      catch (InterruptedException exc) {
+         if (!shutdown)
+            System.err.println("*** Scheduler: " + name + " interrupted - scheduled jobs will not run");
+      }
+   }
+
+   private void processCancels() {
+      Job job;
+      while ((job = toCancel.poll()) != null) {
+         if (job.bucket != null)
+            job.bucket.remove(job);
+      }
+   }
+
+   private void processAdds() {
+      Job job;
+      while ((job = toAdd.poll()) != null) {
+         if (job.state.get() != WAITING)
+            continue;
+         // Round up so a job never runs before its deadline
+         long jobTick = (job.deadline + tickNanos - 1) / tickNanos;
+         if (jobTick < curTick)
+            jobTick = curTick;
+         job.remainingRounds = (jobTick - curTick) / wheel.length;
+         wheel[(int) (jobTick & mask)].add(job);
+      }
+   }
+
+   private void expireBucket(Bucket bucket) {
+      Job job = bucket.head;
+      while (job != null) {
+         Job next = job.next;
+         if (job.state.get() != WAITING)
+            bucket.remove(job);
+         else if (job.remainingRounds <= 0) {
+            bucket.remove(job);
+            if (job.state.compareAndSet(WAITING, QUEUED)) {
+               numWaiting.decrementAndGet();
+               numQueued.incrementAndGet();
+               try {
+                  executor.execute(job);
+               }
+               catch (RejectedExecutionException exc) {
+                  numQueued.decrementAndGet();
+                  job.state.set(DONE);
+                  if (!shutdown)
+                     System.err.println("*** Scheduler: " + name + " unable to run job: " + job + ": " + exc);
+               }
+            }
+         }
+         else
+            job.remainingRounds--;
+         job = next;
+      }
+   }
+
+   /** Stops the scheduler thread and the executor.  Jobs that have not started will not run */
+   public void shutdown() {
+      synchronized (tickLock) {
+         shutdown = true;
+         tickLock.notify();
+      }
+      executor.shutdown();
+   }
+
+   private JobStats getStats(String jobName) {
+      JobStats stats = jobStats.get(jobName);
+      if (stats == null) {
+         stats = new JobStats(jobName);
+         JobStats old = jobStats.putIfAbsent(jobName, stats);
+         if (old != null)
+            stats = old;
+      }
+      return stats;
+   }
+
+   /** The number of jobs waiting for their scheduled time */
+   public int getNumWaiting() {
+      return numWaiting.get();
+   }
+
+   /** The number of jobs that are due and waiting for a thread, or running */
+   public int getNumQueued() {
+      return numQueued.get();
+   }
+
+   public JobStats getJobStats(String jobName) {
+      return jobStats.get(jobName);
+   }
+
+   public List<JobStats> getAllJobStats() {
+      return new ArrayList<JobStats>(jobStats.values());
+   }
+
+   public String toString() {
+      return "WheelJobScheduler(" + name + ": waiting=" + getNumWaiting() + " queued=" + getNumQueued() + ")";
+   }
+
+   public static class JobStats {
+      public final String jobName;
+      private long numRuns;
+      private long numErrors;
+      private long totalRunNanos;
+      private long maxRunNanos;
+      private long totalLateNanos;
+      private long maxLateNanos;
+
+      JobStats(String jobName) {
+         this.jobName = jobName;
+      }
+
+      synchronized void addRun(long lateNanos, long runNanos, boolean error) {
+         numRuns++;
+         if (error)
+            numErrors++;
+         totalRunNanos += runNanos;
+         if (runNanos > maxRunNanos)
+            maxRunNanos = runNanos;
+         if (lateNanos > 0) {
+            totalLateNanos += lateNanos;
+            if (lateNanos > maxLateNanos)
+               maxLateNanos = lateNanos;
+         }
+      }
+
+      public synchronized long getNumRuns() {
+         return numRuns;
+      }
+
+      public synchronized long getNumErrors() {
+         return numErrors;
+      }
+
+      public synchronized double getAverageRunMillis() {
+         return numRuns == 0 ? 0 : totalRunNanos / 1e6 / numRuns;
+      }
+
+      public synchronized double getMaxRunMillis() {
+         return maxRunNanos / 1e6;
+      }
+
+      /** The average time between when a job was due and when it started */
+      public synchronized double getAverageLateMillis() {
+         return numRuns == 0 ? 0 : totalLateNanos / 1e6 / numRuns;
+      }
+
+      public synchronized double getMaxLateMillis() {
+         return maxLateNanos / 1e6;
+      }
+
+      public synchronized String toString() {
+         return jobName + ": runs=" + numRuns + " errors=" + numErrors + " avgRun=" + getAverageRunMillis() + "ms maxRun=" + getMaxRunMillis() +
+                "ms avgLate=" + getAverageLateMillis() + "ms maxLate=" + getMaxLateMillis() + "ms";
+      }
+   }
+
+   class Job implements Runnable {
+      final Runnable toRun;
+      final JobStats stats;
+      // 0 for a job that runs once
+      final long periodNanos;
+      final AtomicInteger state = new AtomicInteger(WAITING);
+      // Nanos relative to startNanos
+      volatile long deadline;
+
+      // Only used by the tick thread
+      long remainingRounds;
+      Bucket bucket;
+      Job prev, next;
+
+      Job(Runnable toRun, JobStats stats, long periodNanos) {
+         this.toRun = toRun;
+         this.stats = stats;
+         this.periodNanos = periodNanos;
+      }
+
+      public void run() {
+         try {
+            if (!state.compareAndSet(QUEUED, RUNNING))
+               return; // Cancelled while queued
+            long start = System.nanoTime() - startNanos;
+            boolean error = true;
+            try {
+               toRun.run();
+               error = false;
+            }
+            catch (Throwable exc) {
+               System.err.println("*** Scheduled job: " + stats.jobName + " threw: " + exc);
+               exc.printStackTrace();
+            }
+            finally {
+               stats.addRun(start - deadline, System.nanoTime() - startNanos - start, error);
+            }
+            if (periodNanos != 0 && !shutdown) {
+               // Like Timer.schedule, the next run is relative to when this one started
+               deadline = start + periodNanos;
+               if (state.compareAndSet(RUNNING, WAITING))
+                  schedule(this);
+            }
+            else
+               state.compareAndSet(RUNNING, DONE);
+         }
+         finally {
+            numQueued.decrementAndGet();
+         }
+      }
+
+      WheelJobScheduler getScheduler() {
+         return WheelJobScheduler.this;
+      }
+
+      public String toString() {
+         return stats.jobName + (periodNanos != 0 ? " (repeating)" : "");
+      }
+   }
+
+   static class Bucket {
+      Job head, tail;
+
+      void add(Job job) {
+         job.bucket = this;
+         job.prev = tail;
+         job.next = null;
+         if (tail == null)
+            head = job;
+         else
+            tail.next = job;
+         tail = job;
+      }
+
+      void remove(Job job) {
+         if (job.bucket != this)
+            return;
+         if (job.prev == null)
+            head = job.next;
+         else
+            job.prev.next = job.next;
+         if (job.next == null)
+            tail = job.prev;
+         else
+            job.next.prev = job.prev;
+         job.prev = job.next = null;
+         job.bucket = null;
+      }
+   }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.binf;
+
+import sc.util.FileUtil;
+
+import java.io.*;
+import java.util.ArrayList;
+
+/**
+ * Reads files written with BuildDataOutStream.  Use open to read the header, then check it with isValid before reading the data.
+ */
+public class BuildDataInStream extends BinfInStream implements Closeable {
+   public int formatVersion;
+   public String dataName;
+   public int dataVersion;
+
+   private ArrayList<String> strings = new ArrayList<String>();
+
+   public BuildDataInStream(DataInputStream in) {
+      super(in);
+   }
+
+   /**
+    * Opens the file and reads the header.  Returns null if the file was not written by BuildDataOutStream - e.g. it's in the older
+    * serialized format - so the caller can fall back to reading it the old way.  The caller must call close.
+    */
+   public static BuildDataInStream open(File file) throws IOException {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+         if (file.length() < 4 || in.readInt() != BuildDataOutStream.MAGIC) {
+            FileUtil.safeClose(in);
+            return null;
+         }
+         BuildDataInStream res = new BuildDataInStream(in);
+         res.formatVersion = res.readUInt();
+         if (res.formatVersion == BuildDataOutStream.FORMAT_VERSION) {
+            res.dataName = in.readUTF();
+            res.dataVersion = res.readUInt();
+         }
+         return res;
+      }
+      catch (IOException exc) {
+         FileUtil.safeClose(in);
+         throw exc;
+      }
+      catch (UncheckedIOException exc) {
+         FileUtil.safeClose(in);
+         throw exc.getCause();
+      }
+   }
+
+   /** Returns true if this file contains the data and version we expect.  If not, the caller should discard the file. */
+   public boolean isValid(String expectedName, int expectedVersion) {
+      return formatVersion == BuildDataOutStream.FORMAT_VERSION && expectedName.equals(dataName) && expectedVersion == dataVersion;
+   }
+
+   public String readStringRef() {
+      int code = readUInt();
+      if (code == 0)
+         return null;
+      if (code == 1) {
+         try {
+            String str = in.readUTF();
+            strings.add(str);
+            return str;
+         }
+         catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+         }
+      }
+      return strings.get(code - 2);
+   }
+
+   public ArrayList<String> readStringList() {
+      int size = readUInt();
+      if (size == 0)
+         return null;
+      size--;
+      ArrayList<String> res = new ArrayList<String>(size);
+      for (int i = 0; i < size; i++)
+         res.add(readStringRef());
+      return res;
+   }
+
+   public String[] readStringArray() {
+      int size = readUInt();
+      if (size == 0)
+         return null;
+      String[] res = new String[size - 1];
+      for (int i = 0; i < res.length; i++)
+         res[i] = readStringRef();
+      return res;
+   }
+
+   public <E extends Enum<E>> E readEnum(Class<E> enumClass) {
+      String name = readStringRef();
+      if (name == null)
+         return null;
+      try {
+         return Enum.valueOf(enumClass, name);
+      }
+      catch (IllegalArgumentException exc) {
+         System.err.println("*** Unrecognized value: " + name + " for: " + enumClass.getName() + " in build data: " + dataName);
+         return null;
+      }
+   }
+
+   public int readSInt() {
+      int v = readUInt();
+      return (v >>> 1) ^ -(v & 1);
+   }
+
+   public boolean readBool() {
+      return readUInt() != 0;
+   }
+
+   public long readRawLong() {
+      try {
+         return in.readLong();
+      }
+      catch (IOException exc) {
+         throw new UncheckedIOException(exc);
+      }
+   }
+
+   public byte[] readBytes(int len) {
+      byte[] res = new byte[len];
+      try {
+         in.readFully(res);
+      }
+      catch (IOException exc) {
+         throw new UncheckedIOException(exc);
+      }
+      return res;
+   }
+
+   /** Starts reading a section written by BuildDataOutStream.startSection, returning its length in bytes. */
+   public int startSection() {
+      strings = new ArrayList<String>();
+      return readUInt();
+   }
+
+   public void endSection() {
+      strings = new ArrayList<String>();
+   }
+
+   /** Skips the rest of a section - pass the length returned by startSection when nothing in the section has been read */
+   public void skipSection(int len) {
+      try {
+         while (len > 0) {
+            int skipped = in.skipBytes(len);
+            if (skipped <= 0)
+               throw new EOFException("Truncated build data section in: " + dataName);
+            len -= skipped;
+         }
+      }
+      catch (IOException exc) {
+         throw new UncheckedIOException(exc);
+      }
+      endSection();
+   }
+
+   public void close() throws IOException {
+      in.close();
+   }
+}
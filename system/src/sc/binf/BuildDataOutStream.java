@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.binf;
+
+import sc.util.FileUtil;
+
+import java.io.*;
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * Writes the build metadata files - the layer type index, reverse dependencies, etc. - in a compact binary format that's faster to
+ * read than Java serialization and does not depend on the class definitions of the objects.  Each file starts with a header: a magic
+ * number, the format version, the name of the data stored and the version of that data's layout.  Readers use BuildDataInStream and
+ * fall back to the old serialized format when the magic number is not there.
+ * <p>
+ * Ints use the varint encoding from BinfOutStream.writeUInt.  Strings are interned - the first occurrence is written in full and
+ * later ones as an index.  Data can be grouped into sections with startSection/endSection.  A section is prefixed with its length
+ * so a reader can skip it and it has its own string table.
+ * </p>
+ */
+public class BuildDataOutStream extends BinfOutStream implements Closeable {
+   public final static int MAGIC = 0x53434244; // SCBD
+   public final static int FORMAT_VERSION = 1;
+
+   private HashMap<String,Integer> stringIds = new HashMap<String,Integer>();
+
+   private DataOutputStream sectionParent;
+   private ByteArrayOutputStream sectionBuf;
+
+   public BuildDataOutStream(DataOutputStream out) {
+      super(out);
+   }
+
+   /** Opens the file and writes the header.  The caller must call close. */
+   public static BuildDataOutStream create(File file, String dataName, int dataVersion) throws IOException {
+      BuildDataOutStream res = new BuildDataOutStream(new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))));
+      try {
+         res.out.writeInt(MAGIC);
+         res.writeUInt(FORMAT_VERSION);
+         res.out.writeUTF(dataName);
+         res.writeUInt(dataVersion);
+      }
+      catch (IOException exc) {
+         FileUtil.safeClose(res);
+         throw exc;
+      }
+      return res;
+   }
+
+   public void writeStringRef(String str) {
+      if (str == null) {
+         writeUInt(0);
+         return;
+      }
+      Integer id = stringIds.get(str);
+      if (id != null) {
+         writeUInt(id + 2);
+         return;
+      }
+      stringIds.put(str, stringIds.size());
+      writeUInt(1);
+      try {
+         out.writeUTF(str);
+      }
+      catch (IOException exc) {
+         throw new UncheckedIOException(exc);
+      }
+   }
+
+   /** Writes a collection of strings with its size - null is written as a size of 0, empty as 1 */
+   public void writeStringList(Collection<String> strs) {
+      if (strs == null) {
+         writeUInt(0);
+         return;
+      }
+      writeUInt(strs.size() + 1);
+      for (String str:strs)
+         writeStringRef(str);
+   }
+
+   public void writeStringArray(String[] strs) {
+      if (strs == null) {
+         writeUInt(0);
+         return;
+      }
+      writeUInt(strs.length + 1);
+      for (String str:strs)
+         writeStringRef(str);
+   }
+
+   /** Writes an enum by name so the ordinal can change without breaking saved files */
+   public void writeEnum(Enum e) {
+      writeStringRef(e == null ? null : e.name());
+   }
+
+   /** For ints that might be negative - uses zig-zag encoding so small negative numbers are still small */
+   public void writeSInt(int v) {
+      writeUInt((v << 1) ^ (v >> 31));
+   }
+
+   public void writeBool(boolean v) {
+      writeUInt(v ? 1 : 0);
+   }
+
+   /** Writes the long without the type id used by writeLong */
+   public void writeRawLong(long v) {
+      try {
+         out.writeLong(v);
+      }
+      catch (IOException exc) {
+         throw new UncheckedIOException(exc);
+      }
+   }
+
+   public void startSection() {
+      if (sectionBuf != null)
+         throw new IllegalStateException("Nested build data sections are not supported");
+      sectionParent = out;
+      sectionBuf = new ByteArrayOutputStream();
+      out = new DataOutputStream(sectionBuf);
+      stringIds = new HashMap<String,Integer>();
+   }
+
+   public void endSection() {
+      out = sectionParent;
+      sectionParent = null;
+      byte[] data = sectionBuf.toByteArray();
+      sectionBuf = null;
+      stringIds = new HashMap<String,Integer>();
+      writeUInt(data.length);
+      try {
+         out.write(data);
+      }
+      catch (IOException exc) {
+         throw new UncheckedIOException(exc);
+      }
+   }
+
+   /** Writes a section of bytes in some other format, prefixed with its length so it can be read with startSection and BuildDataInStream.readBytes */
+   public void writeRawSection(byte[] data) {
+      if (sectionBuf != null)
+         throw new IllegalStateException("Nested build data sections are not supported");
+      writeUInt(data.length);
+      try {
+         out.write(data);
+      }
+      catch (IOException exc) {
+         throw new UncheckedIOException(exc);
+      }
+   }
+
+   public void close() throws IOException {
+      out.close();
+   }
+}
@@ -37,6 +37,8 @@ import sc.util.IdentityHashSet;
 import sc.util.StringUtil;
 import sc.util.URLUtil;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 
 /**
@@ -113,6 +115,8 @@ public class Element<RE> extends Node implements IChildInit, IStatefulPage, IObj
 
    /** A separate flag to handle the state where we know repeat has changed but don't know if the bodyTxt of the list has changed or just an element */
    public transient boolean repeatTagsValid = false;
+   /** The one change to the repeat list since the repeat tags were valid, or null if they need to be compared against the whole list */
+   private transient ListChange pendingRepeatChange = null;
 
    // Have we scheduled a 'refreshTags' call yet for this element.  We'll set properties, and invalidate DOM elements, then run a refreshTags to
    // walk down the tree and fire changed events to notify listeners of what needs to be sync'd to the remote client
@@ -1951,12 +1955,24 @@ public class Element<RE> extends Node implements IChildInit, IStatefulPage, IObj
    }
 
    public void invalidateRepeatTags() {
+      pendingRepeatChange = null;
       if (repeatTagsValid) {
          repeatTagsValid = false;
          invalidateParent();
       }
    }
 
+   /**
+    * Called when the repeat list or property changes.  If the list sent a ListChange and it's the only change since the repeat tags
+    * were last synchronized, it's kept so syncRepeatTags only has to update the tags in that range.
+    */
+   public void invalidateRepeatTags(Object src, Object eventDetail) {
+      boolean incremental = repeatTagsValid && repeatTags != null && src == repeat && eventDetail instanceof ListChange;
+      invalidateRepeatTags();
+      if (incremental)
+         pendingRepeatChange = (ListChange) eventDetail;
+   }
+
    public Element getDerivedElement() {
       if (modifyType != null && modifyType instanceof TypeDeclaration) {
          TypeDeclaration modifyTD = (TypeDeclaration) modifyType;
@@ -4216,6 +4232,32 @@ public class Element<RE> extends Node implements IChildInit, IStatefulPage, IObj
       return sb;
    }
 
+   /**
+    * Renders this tag to the sink in the ctx, writing the output at tag boundaries once it's over the ctx's flushThreshold so the start of
+    * the page is sent before the rest is rendered, and the whole page is not held in memory.
+    */
+   public void outputTo(OutputCtx ctx) throws IOException {
+      if (ctx.sink == null)
+         throw new IllegalArgumentException("No sink set in OutputCtx for outputTo");
+      StringBuilder sb = new StringBuilder(Math.max(ctx.flushThreshold, 256) + 256);
+      StringBuilder oldBuffer = ctx.sinkBuffer;
+      ctx.sinkBuffer = sb;
+      try {
+         outputTag(sb, ctx);
+         ctx.flushBuffer(sb);
+      }
+      finally {
+         ctx.sinkBuffer = oldBuffer;
+      }
+      if (ctx.sinkError != null)
+         throw ctx.sinkError;
+      ctx.sink.flush();
+   }
+
+   public void outputTo(Writer writer) throws IOException {
+      outputTo(new OutputCtx(OutputSink.forWriter(writer)));
+   }
+
    /** Just like output but when invoked on the server, evaluates the output on the client as a remote method call */
    @HTMLSettings(returnsHTML=true)
    @sc.obj.Exec(clientOnly=true)
@@ -4223,24 +4265,46 @@ public class Element<RE> extends Node implements IChildInit, IStatefulPage, IObj
       return output();
    }
 
-   private int repeatTagIndexOf(int startIx, Object repeatVar) {
-      int sz = repeatTags.size();
-      for (int i = startIx; i < sz; i++) {
-         Element arrayVal = repeatTags.get(i);
-         Object arrRepeatVar = arrayVal.repeatVar;
-         if (arrRepeatVar == repeatVar || (arrRepeatVar != null && arrRepeatVar.equals(repeatVar)))
-            return i;
+   private static boolean sameRepeatVar(Object oldVar, Object newVar) {
+      return oldVar == newVar || (oldVar != null && oldVar.equals(newVar));
+   }
+
+   /**
+    * Returns a mask of the entries in oldIxs which are part of the longest increasing subsequence - i.e. the largest set of
+    * elements which keep their order in the new list and so do not need to be moved.  Entries of -1 are new elements and are skipped.
+    */
+   private static boolean[] getStableRepeatIndexes(int[] oldIxs) {
+      int n = oldIxs.length;
+      boolean[] res = new boolean[n];
+      int[] tails = new int[n]; // index into oldIxs of the last entry of the best sequence of each length
+      int[] prev = new int[n];
+      int len = 0;
+      for (int i = 0; i < n; i++) {
+         int val = oldIxs[i];
+         if (val == -1)
+            continue;
+         int lo = 0, hi = len;
+         while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (oldIxs[tails[mid]] < val)
+               lo = mid + 1;
+            else
+               hi = mid;
+         }
+         prev[i] = lo > 0 ? tails[lo - 1] : -1;
+         tails[lo] = i;
+         if (lo == len)
+            len++;
       }
-      return -1;
+      for (int i = len == 0 ? -1 : tails[len - 1]; i != -1; i = prev[i])
+         res[i] = true;
+      return res;
    }
 
-   private int repeatElementIndexOf(Object repeat, int startIx, Object repeatVar) {
-      int sz = PTypeUtil.getArrayLength(repeat);
-      for (int i = startIx; i < sz; i++) {
-         Object arrayVal = DynUtil.getArrayElement(repeat, i);
-         if (arrayVal == repeatVar || (arrayVal != null && arrayVal.equals(repeatVar)))
+   private static int identityIndexOf(ArrayList<Element> tags, Element tag, int from, int to) {
+      for (int i = from; i < to; i++)
+         if (tags.get(i) == tag)
             return i;
-      }
       return -1;
    }
 
@@ -4268,13 +4332,123 @@ public class Element<RE> extends Node implements IChildInit, IStatefulPage, IObj
       return false;
    }
 
+   /**
+    * Updates the repeat tags for a single insert, remove or replace in the repeat list.  Returns null if the change does not
+    * match the current tags, so the caller falls back to comparing the whole list.
+    */
+   private Boolean applyRepeatChange(ListChange change, Object repeatVal) {
+      ArrayList<Element> tags = repeatTags;
+      int oldSz = tags.size();
+      int sz = DynUtil.getArrayLength(repeatVal);
+      int ix = change.index;
+      int ct = change.count;
+      int expectedSz = change.op == ListChange.Op.Insert ? oldSz + ct : change.op == ListChange.Op.Remove ? oldSz - ct : oldSz;
+      if (sz != expectedSz || ix < 0 || ct < 0 || ix + ct > Math.max(sz, oldSz))
+         return null;
+      if (change.op != ListChange.Op.Remove) {
+         for (int i = ix; i < ix + ct; i++) {
+            if (DynUtil.getArrayElement(repeatVal, i) == null)
+               return null;
+         }
+      }
+      // Check the ends of the changed range against the list in case the change was not the only one.  This is done before any
+      // tags are changed so the full compare in syncRepeatTags starts from the original tags.
+      if ((ix < sz && !repeatTagMatchesAfter(change.op, ix, ct, ix, repeatVal)) ||
+          (sz > 0 && !repeatTagMatchesAfter(change.op, ix, ct, sz - 1, repeatVal)))
+         return null;
+      boolean childChanges = false;
+      int renumberIx;
+      switch (change.op) {
+         case Insert:
+            for (int i = ix; i < ix + ct; i++) {
+               Element newElem = createRepeatElement(DynUtil.getArrayElement(repeatVal, i), i, null);
+               tags.add(i, newElem);
+               if (i == tags.size() - 1)
+                  appendElement(newElem);
+               else
+                  insertElement(newElem, i);
+            }
+            childChanges = ct > 0;
+            renumberIx = ix + ct;
+            break;
+         case Remove:
+            for (int i = ix + ct - 1; i >= ix; i--) {
+               Element toRem = tags.remove(i);
+               removeElement(toRem, i);
+            }
+            childChanges = ct > 0;
+            renumberIx = ix;
+            break;
+         case Replace:
+            for (int i = ix; i < ix + ct; i++) {
+               Object arrayVal = DynUtil.getArrayElement(repeatVal, i);
+               Element oldElem = tags.get(i);
+               if (sameRepeatVar(oldElem.repeatVar, arrayVal))
+                  continue;
+               Element newElem = createRepeatElement(arrayVal, i, oldElem);
+               if (oldElem == newElem) {
+                  oldElem.setRepeatIndex(i);
+                  oldElem.setRepeatVar(arrayVal);
+               }
+               else {
+                  tags.remove(i);
+                  removeElement(oldElem, i);
+                  tags.add(i, newElem);
+                  insertElement(newElem, i);
+                  childChanges = true;
+               }
+            }
+            renumberIx = -1;
+            break;
+         default:
+            return null;
+      }
+      if (renumberIx != -1 && renumberIx < sz) {
+         for (int r = renumberIx; r < sz; r++) {
+            Element tagElem = tags.get(r);
+            if (tagElem.getRepeatIndex() != r)
+               tagElem.setRepeatIndex(r);
+         }
+         if (this instanceof IRepeatWrapper)
+            ((IRepeatWrapper) this).updateElementIndexes(renumberIx);
+      }
+      repeatTagsChanged();
+      return childChanges;
+   }
+
+   /**
+    * Returns true if the repeat tag at newIx, once the change is applied, matches that element of repeatVal.  Tags inside an inserted
+    * or replaced range are created from repeatVal so they match.  Others are the existing tags, shifted by the insert or remove.
+    */
+   private boolean repeatTagMatchesAfter(ListChange.Op op, int ix, int ct, int newIx, Object repeatVal) {
+      int oldIx = newIx;
+      if (newIx >= ix) {
+         if (op == ListChange.Op.Remove)
+            oldIx = newIx + ct;
+         else if (newIx < ix + ct)
+            return true;
+         else if (op == ListChange.Op.Insert)
+            oldIx = newIx - ct;
+      }
+      return sameRepeatVar(repeatTags.get(oldIx).repeatVar, DynUtil.getArrayElement(repeatVal, newIx));
+   }
+
    public boolean syncRepeatTags(Object repeatVal) {
       int sz = repeatVal == null ? 0 : DynUtil.getArrayLength(repeatVal);
       boolean anyChanges = false;
       boolean childChanges = false;
 
+      ListChange change = pendingRepeatChange;
+      pendingRepeatChange = null;
       repeatTagsValid = true;
 
+      if (change != null && repeatTags != null && repeatVal != null && repeatVal == repeat) {
+         Boolean res = applyRepeatChange(change, repeatVal);
+         if (res != null)
+            return res;
+         // Otherwise the tags are compared against the whole list below
+      }
+
       // TODO: remove this?  We can't disable sync entirely.  We need to turn it on before we call "output" since there can be side-effect changes
       // in there which need to be synchronized.  Now that we do not sync the page objects, this should not be needed anyway.
       // Since these changes are derived from other properties, disable the recording of syn changes here.
@@ -4297,126 +4471,136 @@ public class Element<RE> extends Node implements IChildInit, IStatefulPage, IObj
             }
          }
          else {
-            int renumberIx = -1;
+            ArrayList<Object> newVals = new ArrayList<Object>(sz);
             for (int i = 0; i < sz; i++) {
                Object arrayVal = DynUtil.getArrayElement(repeatVal, i);
                if (arrayVal == null) {
                   System.err.println("Null value for repeat element: " + i + " for: " + this);
                   continue;
                }
-               int curIx = repeatTagIndexOf(0, arrayVal);
+               newVals.add(arrayVal);
+            }
+            int newSz = newVals.size();
+            int oldSz = tags.size();
+
+            // Skip the unchanged elements at the start and end
+            int start = 0;
+            while (start < oldSz && start < newSz && sameRepeatVar(tags.get(start).repeatVar, newVals.get(start)))
+               start++;
+            int oldEnd = oldSz, newEnd = newSz;
+            while (oldEnd > start && newEnd > start && sameRepeatVar(tags.get(oldEnd - 1).repeatVar, newVals.get(newEnd - 1))) {
+               oldEnd--;
+               newEnd--;
+            }
+
+            if (start < oldEnd || start < newEnd) {
+               anyChanges = true;
+               int numOld = oldEnd - start;
+               int numNew = newEnd - start;
+               Element[] oldTags = tags.subList(start, oldEnd).toArray(new Element[numOld]);
+
+               // Index the remaining old tags by repeatVar.  nextOld chains the tags with equal values in order.
+               HashMap<Object,Integer> oldIndex = new HashMap<Object,Integer>();
+               int[] nextOld = new int[numOld];
+               for (int k = numOld - 1; k >= 0; k--) {
+                  Integer last = oldIndex.put(oldTags[k].repeatVar, k);
+                  nextOld[k] = last == null ? -1 : last;
+               }
 
-               if (curIx == i) // It's at the right spot in repeatTags for the new value of repeat.
-                  continue;
+               // For each new value, the old tag it matches or -1 if it needs a new tag
+               int[] newToOld = new int[numNew];
+               boolean[] oldUsed = new boolean[numOld];
+               for (int j = 0; j < numNew; j++) {
+                  Object arrayVal = newVals.get(start + j);
+                  Integer k = oldIndex.get(arrayVal);
+                  if (k == null)
+                     newToOld[j] = -1;
+                  else {
+                     newToOld[j] = k;
+                     oldUsed[k] = true;
+                     if (nextOld[k] == -1)
+                        oldIndex.remove(arrayVal);
+                     else
+                        oldIndex.put(arrayVal, nextOld[k]);
+                  }
+               }
+               // A new value in the same spot as an old value that was removed reuses that tag if createRepeatElement allows it,
+               // so this turns into an incremental refresh.
+               boolean[] replaced = new boolean[numNew];
+               for (int j = 0; j < numNew && j < numOld; j++) {
+                  if (newToOld[j] == -1 && !oldUsed[j]) {
+                     newToOld[j] = j;
+                     oldUsed[j] = true;
+                     replaced[j] = true;
+                  }
+               }
 
-               if (i < repeatTags.size()) {
-                  if (i >= tags.size())
-                     System.out.println("*** Internal error in sync repeat tags!");
-                  Element oldElem = tags.get(i);
-                  Object oldArrayVal = oldElem.repeatVar;
-                  // The arrayVal in this spot is not the arrayVal for the current tag.
-                  if (oldArrayVal != arrayVal && (oldArrayVal == null || !oldArrayVal.equals(arrayVal))) {
-                     anyChanges = true;
-                     // The current array val is new to the list
-                     if (curIx == -1) {
-                        // Either replace or insert a row
-                        int curNewIx = repeatElementIndexOf(repeatVal, i, oldArrayVal);
-                        if (curNewIx == -1) {
-                           Element newElem = createRepeatElement(arrayVal, i, oldElem);
-                           if (oldElem == newElem) {
-                              // The createRepeatElement method returned the same object.
-                              // Reuse the existing object so this turns into an incremental refresh
-                              oldElem.setRepeatIndex(i);
-                              oldElem.setRepeatVar(arrayVal);
-                           }
-                           else {
-                              // The createRepeatElement method returned a different object
-                              // In this case, the newElem tag may not be the same so we need to replace the element.
-                              tags.remove(i);
-                              removeElement(oldElem, i);
-                              tags.add(i, newElem);
-                              insertElement(newElem, i);
-                              childChanges = true;
-                           }
-                        }
-                        else {
-                           // Assert curNewIx > i - if it is less, we should have already moved it when we processed the old guy
-                           Element newElem = createRepeatElement(arrayVal, i, null);
-                           tags.add(i, newElem);
-                           insertElement(newElem, i);
-                           childChanges = true;
-                        }
-                     }
-                     // The current guy is in the list but later on
-                     else {
-                        Element elemToMove = tags.get(curIx);
-                        // Try to delete our way to the old guy so this stays incremental.  But at this point we also delete all the way to the old guy so the move is as short as possible (and to batch the removes in case this ever is used with transitions)
-                        int delIx;
-                        boolean needsMove = false;
-                        int numRemoved = 0;
-                        for (delIx = i; delIx < curIx; delIx++) {
-                           Element delElem = tags.get(i);
-                           Object delArrayVal = delElem.repeatVar;
-                           int curNewIx = repeatElementIndexOf(repeatVal, i, delArrayVal);
-                           if (curNewIx == -1) {
-                              Element toRem = tags.remove(i);
-                              removeElement(toRem, i);
-                              numRemoved++;
-                              if (renumberIx == -1)
-                                 renumberIx = delIx;
-                           }
-                           else
-                              needsMove = true;
-                        }
-                        // If we deleted up to the current, we are done.  Otherwise, we need to re-order
-                        if (needsMove) {
-                           renumberIx = i;
-                           elemToMove.setRepeatIndex(i);
-                           int newIx = curIx - numRemoved;
-                           tags.remove(newIx);
-                           tags.add(i, elemToMove);
-                           moveElement(elemToMove, newIx, i);
-                        }
-                        childChanges = true;
-                     }
+               for (int k = numOld - 1; k >= 0; k--) {
+                  if (!oldUsed[k]) {
+                     Element toRem = tags.remove(start + k);
+                     removeElement(toRem, start + k);
+                     childChanges = true;
                   }
                }
-               else {
-                  childChanges = anyChanges = true;
-                  if (curIx == -1) {
-                     Element arrayElem = createRepeatElement(arrayVal, i, null);
-                     tags.add(arrayElem);
-                     appendElement(arrayElem);
+
+               // The tags in the longest increasing run of old indexes stay in place.  Working back from the end, every other
+               // tag is moved or inserted just before the tag that follows it in the new list.
+               boolean[] stable = getStableRepeatIndexes(newToOld);
+               int anchorIx = tags.size() - (oldSz - oldEnd);
+               for (int j = numNew - 1; j >= 0; j--) {
+                  int newIx = start + j;
+                  Object arrayVal = newVals.get(newIx);
+                  int k = newToOld[j];
+                  if (k == -1) {
+                     Element newElem = createRepeatElement(arrayVal, newIx, null);
+                     tags.add(anchorIx, newElem);
+                     insertElement(newElem, anchorIx);
+                     childChanges = true;
+                     continue;
+                  }
+                  Element oldElem = oldTags[k];
+                  if (stable[j]) {
+                     // Any tags between this one and the anchor are moved later on
+                     int ix = anchorIx - 1;
+                     while (tags.get(ix) != oldElem)
+                        ix--;
+                     anchorIx = ix;
                   }
-                  // Otherwise need to move it into its new location.
                   else {
-                     Element toMove = tags.get(curIx);
-                     if (i >= tags.size()) // Just put it at the end - we'll insert elements to put it into its correct position
-                        tags.add(toMove);
-                     else
-                        tags.add(i, toMove);
-                     toMove.setRepeatIndex(i);
-                     moveElement(toMove, curIx, i);
+                     int curIx = identityIndexOf(tags, oldElem, start, tags.size());
+                     tags.remove(curIx);
+                     if (curIx < anchorIx)
+                        anchorIx--;
+                     tags.add(anchorIx, oldElem);
+                     moveElement(oldElem, curIx, anchorIx);
+                     childChanges = true;
+                  }
+                  if (replaced[j]) {
+                     Element newElem = createRepeatElement(arrayVal, newIx, oldElem);
+                     if (oldElem == newElem) {
+                        oldElem.setRepeatIndex(newIx);
+                        oldElem.setRepeatVar(arrayVal);
+                     }
+                     else {
+                        // The createRepeatElement method returned a different object so replace the element.
+                        tags.remove(anchorIx);
+                        removeElement(oldElem, anchorIx);
+                        tags.add(anchorIx, newElem);
+                        insertElement(newElem, anchorIx);
+                        childChanges = true;
+                     }
                   }
                }
-            }
 
-            while (tags.size() > sz) {
-               int ix = tags.size() - 1;
-               Element toRem = tags.remove(ix);
-               removeElement(toRem, ix);
-               childChanges = anyChanges = true;
-            }
-            // We removed one or more elements so make sure the repeatIndex is correct now
-            if (renumberIx != -1) {
+               // Elements were added, removed or moved so make sure the repeatIndex is correct now
                int tagSz = tags.size();
-               for (int r = renumberIx; r < tagSz; r++) {
+               for (int r = start; r < tagSz; r++) {
                   Element tagElem = tags.get(r);
                   if (tagElem.getRepeatIndex() != r)
                      tagElem.setRepeatIndex(r);
                }
                if (this instanceof IRepeatWrapper)
-                  ((IRepeatWrapper) this).updateElementIndexes(renumberIx);
+                  ((IRepeatWrapper) this).updateElementIndexes(start);
             }
          }
       }
@@ -4526,16 +4710,24 @@ public class Element<RE> extends Node implements IChildInit, IStatefulPage, IObj
             outputRepeatBody(repeatVal, sb, ctx);
          }
          else {
-            // Even with caching disabled, still need to store the startTagCache and bodyCache because they are used
-            // for finding diffs for server tags
-            StringBuilder startSB = new StringBuilder();
-            callOutputStartTag(startSB, ctx);
-            startTagCache = startSB.toString();
-            sb.append(startTagCache);
-            StringBuilder bodySB = new StringBuilder();
-            callOutputBody(bodySB, ctx);
-            bodyCache = bodySB.toString();
-            sb.append(bodyCache);
+            if (ctx != null && ctx.isStreaming() && !isServerTag()) {
+               // Render the body in place so the child tags can be flushed as they go.  The caches are not filled here but the
+               // previous values are kept in case this tag becomes a server tag later.
+               callOutputStartTag(sb, ctx);
+               callOutputBody(sb, ctx);
+            }
+            else {
+               // Even with caching disabled, still need to store the startTagCache and bodyCache because they are used
+               // for finding diffs for server tags
+               StringBuilder startSB = new StringBuilder();
+               callOutputStartTag(startSB, ctx);
+               startTagCache = startSB.toString();
+               sb.append(startTagCache);
+               StringBuilder bodySB = new StringBuilder();
+               callOutputBody(bodySB, ctx);
+               bodyCache = bodySB.toString();
+               sb.append(bodyCache);
+            }
             callOutputEndTag(sb, ctx);
          }
       }
@@ -4594,6 +4786,8 @@ public class Element<RE> extends Node implements IChildInit, IStatefulPage, IObj
             callOutputEndTag(sb, ctx);
          }
       }
+      if (ctx != null)
+         ctx.tagBoundary(sb);
    }
 
    private void outputRepeatTagMarker(StringBuilder sb, boolean end) {
@@ -4,11 +4,66 @@
 
 package sc.lang.html;
 
+import java.io.IOException;
+
 /** An optional context argument that specifies state passed to the outputTag, outputBody, outputStartTag methods as the second argument
  * after the 'sb'.  If it's null, the default output is used. */
 public class OutputCtx {
+   public final static int DefaultFlushThreshold = 8192;
+
    public boolean validateCache;
+
+   /**
+    * When set, the output is streamed to this sink by Element.outputTo.  The StringBuilder passed to the output methods is written to the
+    * sink and cleared at a tag boundary once it holds more than flushThreshold chars.
+    */
+   public OutputSink sink;
+   public int flushThreshold = DefaultFlushThreshold;
+
+   /** The top-level buffer for the sink - tags render their start tag and body into separate buffers, which are never flushed */
+   StringBuilder sinkBuffer;
+   /** Set if a write to the sink failed - the rest of the output is discarded and the error is thrown from Element.outputTo */
+   IOException sinkError;
+   long numFlushed;
+
+   public OutputCtx() {
+   }
+
+   public OutputCtx(OutputSink sink) {
+      this.sink = sink;
+   }
+
+   public boolean isStreaming() {
+      return sink != null;
+   }
+
+   /** Called after a tag is appended to sb - writes the sb to the sink if it's the top-level buffer and it's over the threshold */
+   public void tagBoundary(StringBuilder sb) {
+      if (sb == sinkBuffer && sb.length() >= flushThreshold)
+         flushBuffer(sb);
+   }
+
+   void flushBuffer(StringBuilder sb) {
+      if (sb.length() == 0)
+         return;
+      if (sinkError == null) {
+         try {
+            sink.write(sb);
+            numFlushed += sb.length();
+         }
+         catch (IOException exc) {
+            sinkError = exc;
+         }
+      }
+      sb.setLength(0);
+   }
+
+   /** The number of chars written to the sink so far */
+   public long getNumFlushed() {
+      return numFlushed;
+   }
+
    public String toString() {
-      return "ctx:validateCache=" + validateCache;
+      return "ctx:validateCache=" + validateCache + (sink != null ? " streaming" : "");
    }
 }
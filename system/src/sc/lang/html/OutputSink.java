@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.lang.html;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * The destination for streamed tag output - set on the OutputCtx to have the page written out in chunks as it's rendered instead of
+ * being held in one StringBuilder.  Use forWriter when there's already a Writer, or forStream/forChannel to encode the output to UTF-8
+ * through one reused byte buffer.
+ */
+public abstract class OutputSink {
+   public abstract void write(CharSequence cs) throws IOException;
+
+   public abstract void flush() throws IOException;
+
+   public static OutputSink forWriter(Writer writer) {
+      return new WriterSink(writer);
+   }
+
+   public static OutputSink forStream(OutputStream out) {
+      return new UTF8Sink(out, null);
+   }
+
+   public static OutputSink forChannel(WritableByteChannel channel) {
+      return new UTF8Sink(null, channel);
+   }
+
+   static class WriterSink extends OutputSink {
+      Writer writer;
+
+      WriterSink(Writer writer) {
+         this.writer = writer;
+      }
+
+      public void write(CharSequence cs) throws IOException {
+         writer.append(cs);
+      }
+
+      public void flush() throws IOException {
+         writer.flush();
+      }
+   }
+
+   static class UTF8Sink extends OutputSink {
+      final static Charset UTF8 = Charset.forName("UTF-8");
+      final static int BufferSize = 8192;
+
+      OutputStream out;
+      WritableByteChannel channel;
+      CharsetEncoder encoder = UTF8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+      ByteBuffer buf;
+
+      UTF8Sink(OutputStream out, WritableByteChannel channel) {
+         this.out = out;
+         this.channel = channel;
+         // A stream is written from the backing array - a channel can use a direct buffer
+         buf = out != null ? ByteBuffer.allocate(BufferSize) : ByteBuffer.allocateDirect(BufferSize);
+      }
+
+      public void write(CharSequence cs) throws IOException {
+         CharBuffer in = CharBuffer.wrap(cs);
+         // Each chunk is split at a tag boundary so there's no partial surrogate pair to carry over to the next one
+         encoder.reset();
+         while (true) {
+            CoderResult res = encoder.encode(in, buf, true);
+            if (res.isOverflow())
+               drain();
+            else if (res.isUnderflow())
+               break;
+            else
+               res.throwException();
+         }
+         while (encoder.flush(buf).isOverflow())
+            drain();
+         drain();
+      }
+
+      private void drain() throws IOException {
+         buf.flip();
+         if (out != null) {
+            out.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+         }
+         else {
+            while (buf.hasRemaining())
+               channel.write(buf);
+         }
+         buf.clear();
+      }
+
+      public void flush() throws IOException {
+         if (out != null)
+            out.flush();
+      }
+   }
+}
@@ -19,7 +19,9 @@ public class RepeatListener extends AbstractListener {
    public boolean valueInvalidated(Object obj, Object prop, Object eventDetail, boolean apply) {
       // We used to check if repeat tags were changed here but that's not cheap and the value may not have been
       // updated yet since we are in valueInvalidated and the change might be queued.
-      tag.invalidateRepeatTags();
+      // For a queued event, this is first called with apply=false to check for a change, then again when it's delivered
+      if (apply)
+         tag.invalidateRepeatTags(obj, eventDetail);
       return true;
    }
 }
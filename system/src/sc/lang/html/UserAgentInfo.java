@@ -4,15 +4,13 @@
 
 package sc.lang.html;
 
-import sc.lang.pattern.Pattern;
 import sc.lang.pattern.URLPatternLanguage;
-import sc.parser.Parselet;
-import sc.type.PTypeUtil;
+import sc.parser.ParseError;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides information about a particular http user-agent - obtained by parsing the user-agent header.
@@ -35,60 +33,95 @@ public class UserAgentInfo implements Cloneable {
    public String browserVersion;
    public String osName;
 
+   /** The max number of user-agents to cache.  When it's reached, a quarter of the entries are dropped to make room */
    public static int CacheSizeLimit = 10000;
 
+   public static boolean verbose = false;
+
    public static List<String> mobilePlatforms = new ArrayList<String>();
-   {
+   static {
       mobilePlatforms.add("iPhone");
       mobilePlatforms.add("Android");
       mobilePlatforms.add("Mobile");
    }
 
-   final static Map<String,UserAgentInfo> userAgentInfoCache = new HashMap<String,UserAgentInfo>();
+   // Lookups don't lock.  Two threads that miss on the same user-agent will both parse it and the last one is kept.
+   final static ConcurrentHashMap<String,UserAgentInfo> userAgentInfoCache = new ConcurrentHashMap<String,UserAgentInfo>();
+
+   private final static Object evictLock = new Object();
+   private static volatile boolean patternsStarted = false;
 
    public static UserAgentInfo getUserAgent(String userAgentStr) {
       if (userAgentStr == null)
          return null;
-      UserAgentInfo retInfo = null;
-      synchronized (userAgentInfoCache) {
-         UserAgentInfo cachedInfo = userAgentInfoCache.get(userAgentStr);
-         if (cachedInfo == null) {
-            URLPatternLanguage lang = URLPatternLanguage.getURLPatternLanguage();
-            int ix = 0;
-            for (UserAgentPattern curPattern:UserAgentPattern.userAgentPatterns) {
-               // TODO: this doesn't support some of the parselets we use in the user agent parsing but only
-               // happens on the server so it's ok to use the parselet: curInfo.patternImpl.matchString(userAgentStr)
-               if (lang.matchString(userAgentStr, curPattern.patternParselet)) {
-                  retInfo = curPattern.defaultInfo.clone();
-                  retInfo.userAgent = userAgentStr;
-                  lang.parseIntoInstance(userAgentStr, curPattern.patternParselet, retInfo);
-
-                  if (!PTypeUtil.testMode)
-                     System.out.println("UserAgent matched: " + userAgentStr + " pattern: " + curPattern.pattern + " isRobot: " + retInfo.isRobot + " platform: " + retInfo.platform);
-
-                  retInfo.initValues();
-                  break;
-               }
-               ix++;
-            }
+      UserAgentInfo retInfo = userAgentInfoCache.get(userAgentStr);
+      if (retInfo != null)
+         return retInfo;
+
+      retInfo = parseUserAgent(userAgentStr);
+      if (userAgentInfoCache.size() >= CacheSizeLimit)
+         evictEntries();
+      userAgentInfoCache.put(userAgentStr, retInfo);
+      return retInfo;
+   }
+
+   private static UserAgentInfo parseUserAgent(String userAgentStr) {
+      URLPatternLanguage lang = URLPatternLanguage.getURLPatternLanguage();
+      startPatterns(lang);
+      for (UserAgentPattern curPattern:UserAgentPattern.userAgentPatterns) {
+         if (!curPattern.canMatch(userAgentStr))
+            continue;
+         // TODO: this doesn't support some of the parselets we use in the user agent parsing but only
+         // happens on the server so it's ok to use the parselet: curInfo.patternImpl.matchString(userAgentStr)
+         // Parse straight into a copy of the defaults - if the pattern does not match, the partly populated copy is dropped
+         UserAgentInfo info = curPattern.defaultInfo.clone();
+         info.userAgent = userAgentStr;
+         Object res = lang.parseIntoInstance(userAgentStr, curPattern.patternParselet, info);
+         if (res != null && !(res instanceof ParseError)) {
+            if (verbose)
+               System.out.println("UserAgent matched: " + userAgentStr + " pattern: " + curPattern.pattern + " isRobot: " + info.isRobot + " platform: " + info.platform);
+
+            info.initValues();
+            return info;
          }
-         else
-            return cachedInfo;
       }
-      if (retInfo == null) {
-         retInfo = new UserAgentInfo();
-         retInfo.userAgent = userAgentStr;
-         retInfo.platform = userAgentStr;
+      UserAgentInfo retInfo = new UserAgentInfo();
+      retInfo.userAgent = userAgentStr;
+      retInfo.platform = userAgentStr;
+      if (verbose)
          System.err.println("*** Unrecognized format for user-agent string: " + userAgentStr);
-         retInfo.isRobot = true;
-      }
-      if (userAgentInfoCache.size() < CacheSizeLimit)
-         userAgentInfoCache.put(userAgentStr, retInfo);
-      else
-         System.err.println("*** User-agent cache exceeded limit: " + CacheSizeLimit + " not caching user-agent: " + userAgentStr);
+      retInfo.isRobot = true;
       return retInfo;
    }
 
+   /** The language and parselets are initialized the first time they are used - do that once before the parsers run in parallel */
+   private static void startPatterns(URLPatternLanguage lang) {
+      if (patternsStarted)
+         return;
+      synchronized (evictLock) {
+         if (!patternsStarted) {
+            for (UserAgentPattern curPattern:UserAgentPattern.userAgentPatterns)
+               lang.matchString("", curPattern.patternParselet);
+            patternsStarted = true;
+         }
+      }
+   }
+
+   private static void evictEntries() {
+      synchronized (evictLock) {
+         int numToRemove = userAgentInfoCache.size() - CacheSizeLimit * 3 / 4;
+         if (numToRemove <= 0) // Another thread just made room
+            return;
+         // The iteration order is by hash so this drops an effectively random set of entries
+         Iterator<String> it = userAgentInfoCache.keySet().iterator();
+         while (numToRemove > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+            numToRemove--;
+         }
+      }
+   }
+
    public UserAgentInfo clone() {
       try {
          return (UserAgentInfo) super.clone();
@@ -16,11 +16,35 @@ public class UserAgentPattern {
    Pattern patternImpl;
    Parselet patternParselet;
 
+   /** The text every match starts with - the part of the pattern before the first variable or optional part */
+   String literalPrefix;
+
+   /**
+    * When there's no literal prefix, the characters the first parselet can start with: letters and digits if startsWithAlphaNum is set,
+    * plus any in startChars.  These mirror the grammar in URLPatternLanguage so they need to change with it.  Null means any character.
+    */
+   String startChars;
+   boolean startsWithAlphaNum;
+
    UserAgentInfo defaultInfo = new UserAgentInfo();
 
    public void init() {
       patternImpl = Pattern.initURLPattern(UserAgentInfo.class, pattern);
       patternParselet = patternImpl.getParselet(URLPatternLanguage.getURLPatternLanguage(), UserAgentInfo.class);
+      int prefixEnd = 0;
+      while (prefixEnd < pattern.length() && pattern.charAt(prefixEnd) != '{' && pattern.charAt(prefixEnd) != '[')
+         prefixEnd++;
+      literalPrefix = pattern.substring(0, prefixEnd);
+   }
+
+   /** Quick check that rules out the pattern without running the parser */
+   boolean canMatch(String userAgentStr) {
+      if (literalPrefix.length() > 0 || startChars == null)
+         return userAgentStr.startsWith(literalPrefix);
+      if (userAgentStr.length() == 0)
+         return true;
+      char c = userAgentStr.charAt(0);
+      return (startsWithAlphaNum && Character.isLetterOrDigit(c)) || startChars.indexOf(c) != -1;
    }
 
    public static List<UserAgentPattern> userAgentPatterns = new ArrayList<UserAgentPattern>();
@@ -40,6 +64,9 @@ public class UserAgentPattern {
       UserAgentPattern robotPattern = new UserAgentPattern();
       robotPattern.pattern = "{platform=userAgentName}[/{whiteSpace}{versionString}]{whiteSpace}{extensions=userAgentExts}";
       robotPattern.init();
+      // userAgentName: alphaNumChar, digits, space or period
+      robotPattern.startsWithAlphaNum = true;
+      robotPattern.startChars = " .";
       robotPattern.defaultInfo.isRobot = true;
       userAgentPatterns.add(robotPattern);
 
@@ -47,6 +74,8 @@ public class UserAgentPattern {
       UserAgentPattern robotPattern2 = new UserAgentPattern();
       robotPattern2.pattern = "{platform=userAgentComment}";
       robotPattern2.init();
+      // openUserAgentComment
+      robotPattern2.startChars = "([";
       robotPattern2.defaultInfo.isRobot = true;
       userAgentPatterns.add(robotPattern2);
    }
@@ -9808,6 +9808,10 @@ public abstract class BodyTypeDeclaration extends Statement implements ITypeDecl
                   propResetState = resetStateDefaultObj != null && resetStateDefaultObj;
                   if (propResetState)
                      propFlags |= SyncPropOptions.SYNC_RESET_STATE;
+
+                  Boolean incrementalObj = (Boolean) ModelUtil.getAnnotationValue(propSyncAnnot, "incremental");
+                  if (incrementalObj != null && incrementalObj)
+                     propFlags |= SyncPropOptions.SYNC_INCREMENTAL;
                }
                else {
                   propSyncMode = null;
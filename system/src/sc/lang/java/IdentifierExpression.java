@@ -2424,6 +2424,25 @@ public class IdentifierExpression extends ArgumentsExpression {
       return isStaticTarget(0);
    }
 
+   /**
+    * Returns the field or get/is method when this expression is a single name referring to a property of the current object - e.g. a
+    * parameter used in a code-gen template.  Returns null for anything else.
+    */
+   public Object getThisPropertyMember() {
+      if (arguments != null || idTypes == null || idTypes.length != 1 || isStaticTarget(0))
+         return null;
+      JavaModel model = getJavaModel();
+      if (model != null && model.customResolver != null)
+         return null;
+      switch (idTypes[0]) {
+         case FieldName:
+         case GetVariable:
+         case IsVariable:
+            return boundTypes[0];
+      }
+      return null;
+   }
+
    private boolean valueIsType(int ix) {
       if (ix == -1)
          return isStaticTarget(0);
@@ -787,6 +787,33 @@ public class ObjectDefinitionParameters extends AbstractTemplateParameters {
 
       sb.append(");");
 
+      if (dbTypeDescriptor.cacheMaxSize != -1 || dbTypeDescriptor.cacheIdleTimeMillis != -1 || dbTypeDescriptor.cacheMode != DBCacheMode.Strong) {
+         sb.append("\n      dbTypeDesc.initCache(");
+         sb.append(dbTypeDescriptor.cacheMaxSize);
+         sb.append(", ");
+         sb.append(dbTypeDescriptor.cacheIdleTimeMillis);
+         sb.append("L, sc.db.DBCacheMode.");
+         sb.append(dbTypeDescriptor.cacheMode);
+         sb.append(");");
+      }
+
+      if (dbTypeDescriptor.batchFetchSize > 0) {
+         sb.append("\n      dbTypeDesc.initBatchFetch(");
+         sb.append(dbTypeDescriptor.batchFetchSize);
+         String groupNames = null;
+         if (dbTypeDescriptor.batchFetchGroups != null) {
+            StringBuilder gsb = new StringBuilder();
+            for (String groupName:dbTypeDescriptor.batchFetchGroups) {
+               if (gsb.length() > 0)
+                  gsb.append(",");
+               gsb.append(groupName);
+            }
+            groupNames = gsb.toString();
+         }
+         appendString(sb, groupNames, true);
+         sb.append(");");
+      }
+
       return sb.toString();
    }
 
@@ -9,6 +9,7 @@ import sc.db.DBPropertyDescriptor;
 import sc.dyn.IObjChildren;
 import sc.lang.sc.PropertyAssignment;
 import sc.lang.sql.DBProvider;
+import sc.lang.template.CompiledTemplate;
 import sc.lang.template.Template;
 import sc.layer.Layer;
 import sc.layer.LayeredSystem;
@@ -1359,9 +1360,13 @@ public class TransformUtil {
 
    public static String evalTemplate(Object paramObj, Template template) {
       PerfMon.start("evalTemplate");
-      ExecutionContext ctx = new ExecutionContext();
-      ctx.pushCurrentObject(paramObj);
       try {
+         CompiledTemplate compiled = paramObj == null ? null : template.getCompiledTemplate(paramObj.getClass());
+         if (compiled != null)
+            return compiled.eval(paramObj);
+
+         ExecutionContext ctx = new ExecutionContext();
+         ctx.pushCurrentObject(paramObj);
          return (String) template.eval(String.class, ctx);
       }
       catch (IllegalArgumentException exc) {
@@ -195,6 +195,11 @@ public class DBProvider {
          String tmpDataSourceName = null, tmpPrimaryTableName = null;
          Integer tmpTypeId = null;
 
+         Number cacheMaxSize = null, cacheExpireTime = null;
+         DBCacheMode cacheMode = null;
+         Number batchFetchSize = null;
+         String batchFetchGroups = null;
+
          for (Object annot:typeSettings) {
             if (tmpPersist == null) {
                tmpPersist  = (Boolean) ModelUtil.getAnnotationValue(annot, "persist");
@@ -217,6 +222,16 @@ public class DBProvider {
                if (tmpTypeId != null)
                   typeId = tmpTypeId;
             }
+            if (cacheMaxSize == null)
+               cacheMaxSize = (Number) ModelUtil.getAnnotationValue(annot, "cacheMaxSize");
+            if (cacheExpireTime == null)
+               cacheExpireTime = (Number) ModelUtil.getAnnotationValue(annot, "expireTimeMillis");
+            if (cacheMode == null)
+               cacheMode = (DBCacheMode) ModelUtil.getAnnotationValue(annot, "cacheMode");
+            if (batchFetchSize == null)
+               batchFetchSize = (Number) ModelUtil.getAnnotationValue(annot, "batchFetchSize");
+            if (batchFetchGroups == null)
+               batchFetchGroups = (String) ModelUtil.getAnnotationValue(annot, "batchFetchGroups");
          }
 
          // Look for this annotation only on this specific class - don't want inherit the sub-types value by putting in the loop above.
@@ -499,6 +514,14 @@ public class DBProvider {
             }
 
             dbTypeDesc = new DBTypeDescriptor(typeDecl, baseTD, typeId, dataSourceName, primaryTable, queries, schemaSQL);
+            if (cacheMaxSize != null)
+               dbTypeDesc.cacheMaxSize = cacheMaxSize.intValue();
+            if (cacheExpireTime != null)
+               dbTypeDesc.cacheIdleTimeMillis = cacheExpireTime.longValue();
+            if (cacheMode != null)
+               dbTypeDesc.cacheMode = cacheMode;
+            if (batchFetchSize != null)
+               dbTypeDesc.initBatchFetch(batchFetchSize.intValue(), batchFetchGroups);
 
             sys.addDBTypeDescriptor(fullTypeName, dbTypeDesc);
 
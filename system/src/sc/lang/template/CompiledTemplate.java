@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.lang.template;
+
+import sc.dyn.IDynObject;
+import sc.lang.html.Element;
+import sc.lang.html.OutputCtx;
+import sc.lang.java.*;
+import sc.parser.IString;
+import sc.type.IBeanMapper;
+import sc.type.PTypeUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A code-gen template converted once into a tree of nodes which append directly to a StringBuilder.  Used by TransformUtil.evalTemplate
+ * for the templates that generate getX/setX methods, object definitions, etc. so we don't walk the template's statements and resolve each
+ * parameter name every time one of them is evaluated.  Names which refer to properties of the compiled parameter class are read with
+ * the property mapper.  Other expressions and if conditions are evaluated with the interpreter.  Templates using anything else - loops,
+ * local variables, tags or an output method - return null from compile and are interpreted as before.
+ */
+public class CompiledTemplate {
+   final Class paramClass;
+   final Node[] nodes;
+
+   CompiledTemplate(Class paramClass, Node[] nodes) {
+      this.paramClass = paramClass;
+      this.nodes = nodes;
+   }
+
+   /** Returns the template's output for paramObj, whose class must be paramClass */
+   public String eval(Object paramObj) {
+      StringBuilder out = new StringBuilder();
+      EvalState state = new EvalState(paramObj, out);
+      try {
+         outputNodes(nodes, out, state);
+      }
+      finally {
+         state.close();
+      }
+      return out.toString();
+   }
+
+   /** Returns a compiled version of the template for parameters of the given class or null if the template can only be interpreted */
+   public static CompiledTemplate compile(Template template, Class paramClass) {
+      if (template.outputMethod != null || template.outputRuntimeMethod != null || template.createInstance || template.templateDeclarations == null ||
+          IDynObject.class.isAssignableFrom(paramClass))
+         return null;
+      List<Node> nodes = new ArrayList<Node>();
+      if (!compileDeclarations(template.templateDeclarations, paramClass, nodes))
+         return null;
+      return new CompiledTemplate(paramClass, nodes.toArray(new Node[nodes.size()]));
+   }
+
+   private static boolean compileDeclarations(List<Object> decls, Class paramClass, List<Node> res) {
+      for (Object decl:decls) {
+         if (decl instanceof IString)
+            res.add(new TextNode(decl.toString()));
+         else if (decl instanceof Element)
+            return false;
+         else if (decl instanceof Expression) {
+            Expression expr = (Expression) decl;
+            IBeanMapper mapper = getPropertyMapper(expr, paramClass);
+            res.add(mapper != null ? new PropertyNode(expr, mapper) : new ExpressionNode(expr));
+         }
+         else if (decl instanceof TemplateStatement) {
+            List<Statement> sts = ((TemplateStatement) decl).statements;
+            if (sts != null) {
+               for (Statement st:sts)
+                  if (!compileStatement(st, paramClass, res))
+                     return false;
+            }
+         }
+         else
+            return false;
+      }
+      return true;
+   }
+
+   private static boolean compileStatement(Statement st, Class paramClass, List<Node> res) {
+      if (st instanceof GlueStatement) {
+         List<Object> decls = ((GlueStatement) st).declarations;
+         return decls == null || compileDeclarations(decls, paramClass, res);
+      }
+      else if (st instanceof BlockStatement) {
+         List<Statement> sts = ((BlockStatement) st).statements;
+         if (sts != null) {
+            for (Statement child:sts)
+               if (!compileStatement(child, paramClass, res))
+                  return false;
+         }
+         return true;
+      }
+      else if (st instanceof IfStatement) {
+         IfStatement ifSt = (IfStatement) st;
+         List<Node> trueNodes = new ArrayList<Node>();
+         List<Node> falseNodes = new ArrayList<Node>();
+         if (ifSt.expression == null || !compileStatement(ifSt.trueStatement, paramClass, trueNodes) ||
+             (ifSt.falseStatement != null && !compileStatement(ifSt.falseStatement, paramClass, falseNodes)))
+            return false;
+         res.add(new IfNode(ifSt, compileCondition(ifSt.expression, paramClass), trueNodes.toArray(new Node[trueNodes.size()]),
+                            falseNodes.toArray(new Node[falseNodes.size()])));
+         return true;
+      }
+      return false;
+   }
+
+   private static Condition compileCondition(ParenExpression parenExpr, Class paramClass) {
+      Expression expr = parenExpr.expression;
+      boolean negate = false;
+      if (expr instanceof UnaryExpression && ((UnaryExpression) expr).operator.equals("!")) {
+         expr = ((UnaryExpression) expr).expression;
+         negate = true;
+      }
+      IBeanMapper mapper = getPropertyMapper(expr, paramClass);
+      if (mapper != null) {
+         Object propType = mapper.getPropertyType();
+         if (propType == Boolean.TYPE || propType == Boolean.class)
+            return new PropertyCondition(mapper, negate);
+      }
+      return new ExpressionCondition(parenExpr);
+   }
+
+   private static IBeanMapper getPropertyMapper(Expression expr, Class paramClass) {
+      if (!(expr instanceof IdentifierExpression) || expr instanceof NewExpression)
+         return null;
+      IdentifierExpression idExpr = (IdentifierExpression) expr;
+      Object member = idExpr.getThisPropertyMember();
+      if (member == null)
+         return null;
+      Object enclType = ModelUtil.getEnclosingType(member);
+      if (!(enclType instanceof Class) || !((Class) enclType).isAssignableFrom(paramClass))
+         return null;
+      return PTypeUtil.getPropertyMapping(paramClass, idExpr.identifiers.get(0).toString());
+   }
+
+   /** Like ModelUtil.execStatements, exceptions are wrapped with the statement being run so they include its location */
+   static void outputNodes(Node[] nodes, StringBuilder out, EvalState state) {
+      for (Node node:nodes) {
+         try {
+            node.output(out, state);
+         }
+         catch (RuntimeException exc) {
+            if (node.statement == null)
+               throw exc;
+            throw (RuntimeException) ModelUtil.wrapRuntimeException(node.statement, exc);
+         }
+         catch (Error exc) {
+            if (node.statement == null)
+               throw exc;
+            throw (Error) ModelUtil.wrapRuntimeException(node.statement, exc);
+         }
+      }
+   }
+
+   /** Appends a value the way ModelUtil.execTemplateDeclarations does - a value which is itself a template or expression is evaluated */
+   static void appendValue(Object val, StringBuilder out, EvalState state) {
+      while (val instanceof IValueNode)
+         val = ((IValueNode) val).eval(null, state.getContext());
+      if (val != null)
+         out.append(val.toString());
+   }
+
+   /** Holds the parameter object and the interpreter's context, which is only created when some node needs it */
+   static class EvalState {
+      final Object paramObj;
+      final StringBuilder out;
+      ExecutionContext ctx;
+
+      EvalState(Object paramObj, StringBuilder out) {
+         this.paramObj = paramObj;
+         this.out = out;
+      }
+
+      ExecutionContext getContext() {
+         if (ctx == null) {
+            // Set up the same context as Template.eval so these expressions see the same names
+            ctx = new ExecutionContext();
+            ctx.pushCurrentObject(paramObj);
+            ctx.pushFrame(true, 1);
+            ctx.defineVariable("out", out);
+            ctx.defineVariable("ctx", new OutputCtx());
+         }
+         return ctx;
+      }
+
+      void close() {
+         if (ctx != null)
+            ctx.popFrame();
+      }
+   }
+
+   static abstract class Node {
+      /** The template statement this node outputs, or null for text */
+      final Statement statement;
+      Node(Statement statement) {
+         this.statement = statement;
+      }
+      abstract void output(StringBuilder out, EvalState state);
+   }
+
+   static class TextNode extends Node {
+      final String text;
+      TextNode(String text) {
+         super(null);
+         this.text = text;
+      }
+      void output(StringBuilder out, EvalState state) {
+         out.append(text);
+      }
+   }
+
+   static class PropertyNode extends Node {
+      final IBeanMapper mapper;
+      PropertyNode(Expression expr, IBeanMapper mapper) {
+         super(expr);
+         this.mapper = mapper;
+      }
+      void output(StringBuilder out, EvalState state) {
+         appendValue(mapper.getPropertyValue(state.paramObj, false, false), out, state);
+      }
+   }
+
+   static class ExpressionNode extends Node {
+      final Expression expr;
+      ExpressionNode(Expression expr) {
+         super(expr);
+         this.expr = expr;
+      }
+      void output(StringBuilder out, EvalState state) {
+         appendValue(expr.eval(null, state.getContext()), out, state);
+      }
+   }
+
+   static class IfNode extends Node {
+      final Condition cond;
+      final Node[] trueNodes, falseNodes;
+      IfNode(IfStatement ifSt, Condition cond, Node[] trueNodes, Node[] falseNodes) {
+         super(ifSt);
+         this.cond = cond;
+         this.trueNodes = trueNodes;
+         this.falseNodes = falseNodes;
+      }
+      void output(StringBuilder out, EvalState state) {
+         outputNodes(cond.test(state) ? trueNodes : falseNodes, out, state);
+      }
+   }
+
+   static abstract class Condition {
+      abstract boolean test(EvalState state);
+   }
+
+   static class PropertyCondition extends Condition {
+      final IBeanMapper mapper;
+      final boolean negate;
+      PropertyCondition(IBeanMapper mapper, boolean negate) {
+         this.mapper = mapper;
+         this.negate = negate;
+      }
+      boolean test(EvalState state) {
+         return ((Boolean) mapper.getPropertyValue(state.paramObj, false, false)) != negate;
+      }
+   }
+
+   static class ExpressionCondition extends Condition {
+      final ParenExpression expr;
+      ExpressionCondition(ParenExpression expr) {
+         this.expr = expr;
+      }
+      boolean test(EvalState state) {
+         return (Boolean) expr.eval(Boolean.TYPE, state.getContext());
+      }
+   }
+}
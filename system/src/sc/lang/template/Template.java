@@ -45,6 +45,10 @@ public class Template extends SCModel implements IValueNode, ITypeDeclaration, I
    public transient boolean createInstance = false;
    public transient MethodDefinition outputMethod = null;
    public transient Object outputRuntimeMethod = null; // Used for cases where we do not generate the output method but instead look it up from the rootType
+   /** When true, code-gen templates run through TransformUtil.evalTemplate are converted to a CompiledTemplate the first time they are used */
+   public static boolean compileCodeTemplates = true;
+   /** The compiled template for each parameter class - null for a class the template can't be compiled for */
+   private transient Map<Class,CompiledTemplate> compiledTemplates = null;
    /** The template may define an optional extends type */
    public transient String defaultExtendsTypeName;
    public transient Object defaultExtendsType;
@@ -685,6 +689,8 @@ public class Template extends SCModel implements IValueNode, ITypeDeclaration, I
       preTagContent = null;
       outputMethod = null;
       outputRuntimeMethod = null;
+      // An edited template is stopped and restarted so it's compiled again the next time it's used
+      compiledTemplates = null;
       singleElementType = false;
       createInstance = false;
       beingInitialized = false;
@@ -1516,6 +1522,23 @@ public class Template extends SCModel implements IValueNode, ITypeDeclaration, I
       return sb == null ? null : sb.toString();
    }
 
+   /** Returns the compiled form of this template for parameters of the given class, or null when it has to be interpreted */
+   public CompiledTemplate getCompiledTemplate(Class paramClass) {
+      if (!compileCodeTemplates || !isStarted())
+         return null;
+      synchronized (this) {
+         if (compiledTemplates != null && compiledTemplates.containsKey(paramClass))
+            return compiledTemplates.get(paramClass);
+      }
+      CompiledTemplate res = CompiledTemplate.compile(this, paramClass);
+      synchronized (this) {
+         if (compiledTemplates == null)
+            compiledTemplates = new HashMap<Class,CompiledTemplate>();
+         compiledTemplates.put(paramClass, res);
+      }
+      return res;
+   }
+
    /** Probably not needed now that Template implements ITypeDeclaration */
    public TypeDeclaration getImplicitTypeDeclaration() {
       if (implicitRoot && rootType instanceof TypeDeclaration)
@@ -9,7 +9,11 @@ class BuildStepFlags {
    boolean inited;
    boolean started;
 
+   // Elapsed millis for each step - displayed in verbose mode.  parseTime is the part of initTime spent in the parallel parse.
+   long preInitTime, parseTime, initTime, startTime;
+
    void reset() {
       preInited = inited = started = false;
+      preInitTime = parseTime = initTime = startTime = 0;
    }
 }
@@ -4,6 +4,7 @@
 
 package sc.layer;
 
+import sc.binf.BuildDataOutStream;
 import sc.classfile.CFClass;
 import sc.db.DBDataSource;
 import sc.dyn.DynUtil;
@@ -859,10 +860,10 @@ public class Layer implements ILifecycle, LayerConstants, IDynObject {
          }
          boolean entryChanged = false;
          boolean invalidateTypeNames = false;
-         TypeIndexEntry oldTypeEnt = layerTypeIndex.layerTypeIndex.put(typeName, typeIndexEntry);
+         TypeIndexEntry oldTypeEnt = layerTypeIndex.putTypeEntry(typeName, typeIndexEntry);
          // We can only have one type per file name so don't also register inner types here
          if (!typeIndexEntry.isInnerType)
-            layerTypeIndex.fileIndex.put(typeIndexEntry.fileName, typeIndexEntry);
+            layerTypeIndex.putFileEntry(typeIndexEntry.fileName, typeIndexEntry);
          if (typeIndexRestored) {
             if (oldTypeEnt == null || !oldTypeEnt.equals(typeIndexEntry)) {
                entryChanged = true;
@@ -886,7 +887,7 @@ public class Layer implements ILifecycle, LayerConstants, IDynObject {
 
    public TypeIndexEntry getTypeIndexEntry(String typeName) {
       if (layerTypeIndex != null)
-         return layerTypeIndex.layerTypeIndex.get(typeName);
+         return layerTypeIndex.getTypeEntry(typeName);
       return null;
    }
 
@@ -1847,7 +1848,7 @@ public class Layer implements ILifecycle, LayerConstants, IDynObject {
 
             // If the file is excluded but is a source file, we'll need to mark it as excluded in the type index so we do not think it's a new file.
             if (layerTypeIndex != null && excludedFile(fn, prefix)) {
-               layerTypeIndex.fileIndex.put(FileUtil.concat(rootPath, srcPath), TypeIndexEntry.EXCLUDED_SENTINEL);
+               layerTypeIndex.putFileEntry(FileUtil.concat(rootPath, srcPath), TypeIndexEntry.EXCLUDED_SENTINEL);
             }
          }
          else if (!excludedFile(fn, prefix)) {
@@ -2610,23 +2611,42 @@ public class Layer implements ILifecycle, LayerConstants, IDynObject {
             System.out.println("*** Invalid layer path index name");
          File typeIndexFile = new File(getTypeIndexFileName());
          File typeIndexDir = typeIndexFile.getParentFile();
-         ObjectOutputStream os = null;
+         // Type index files are memory mapped when read, possibly by another process, so the old file is never rewritten in place.
+         // Write a new file and rename it over the old one so existing mappings keep the old contents.
+         File tmpFile = new File(typeIndexFile.getPath() + ".tmp");
+         BuildDataOutStream os = null;
+         boolean written = false;
          try {
             typeIndexDir.mkdirs();
-            os = new ObjectOutputStream(new FileOutputStream(typeIndexFile));
-            os.writeObject(layerTypeIndex);
-            typeIndexNeedsSave = false;
-            typeIndexFileLastModified = System.currentTimeMillis();
-
-            if (layeredSystem.options.verbose)
-               verbose("Saved type index for layer: " + layerDirName + " in runtime: " + layeredSystem.getProcessIdent() + " saved with: " + layerTypeIndex.layerTypeIndex.size() + " entries");
+            os = BuildDataOutStream.create(tmpFile, LayerTypeIndex.BUILD_DATA_NAME, LayerTypeIndex.BUILD_DATA_VERSION);
+            layerTypeIndex.writeBuildData(os);
+            os.close();
+            os = null;
+            written = true;
          }
          catch (IOException exc) {
             System.err.println("*** Unable to write typeIndexFile: " + exc);
          }
+         catch (UncheckedIOException exc) {
+            System.err.println("*** Unable to write typeIndexFile: " + exc);
+         }
          finally {
             FileUtil.safeClose(os);
          }
+         // On Windows, rename won't replace an existing file - and delete fails while the file is mapped
+         if (written && !tmpFile.renameTo(typeIndexFile) && (!typeIndexFile.delete() || !tmpFile.renameTo(typeIndexFile))) {
+            System.err.println("*** Unable to replace typeIndexFile: " + typeIndexFile);
+            written = false;
+         }
+         if (!written) {
+            tmpFile.delete();
+            return;
+         }
+         typeIndexNeedsSave = false;
+         typeIndexFileLastModified = System.currentTimeMillis();
+
+         if (layeredSystem.options.verbose)
+            verbose("Saved type index for layer: " + layerDirName + " in runtime: " + layeredSystem.getProcessIdent() + " saved with: " + layerTypeIndex.getNumTypes() + " entries");
       }
    }
 
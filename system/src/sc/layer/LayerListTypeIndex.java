@@ -96,82 +96,89 @@ public class LayerListTypeIndex {
          System.err.println("*** Missing layer type index for layer: " + layerName);
          return;
       }
-      HashMap<String,TypeIndexEntry> layerTypeIndexMap = lti.layerTypeIndex;
-
-      for (Map.Entry<String,TypeIndexEntry> typeEnt:layerTypeIndexMap.entrySet()) {
-         TypeIndexEntry entry = typeEnt.getValue();
-         String typeName = typeEnt.getKey();
-         // Build the reverse list - for each
-         if (entry.baseTypes != null) {
-            for (String baseType: entry.baseTypes) {
-               LinkedHashMap<String,TypeIndexEntry> subTypes = subTypeIndex.get(baseType);
-               if (subTypes == null) {
-                  subTypes = new LinkedHashMap<String,TypeIndexEntry>();
-                  subTypeIndex.put(baseType, subTypes);
-               }
+      // Mapped indexes are iterated directly so we don't build the hash maps just to walk them
+      TypeIndexTable table = lti.table;
+      if (table != null) {
+         for (int i = 0; i < table.numTypes; i++)
+            addReverseEntry(table.getTypeName(i), table.getTypeEntry(i));
+      }
+      else {
+         for (Map.Entry<String,TypeIndexEntry> typeEnt:lti.layerTypeIndex.entrySet())
+            addReverseEntry(typeEnt.getKey(), typeEnt.getValue());
+      }
+   }
 
-               subTypes.put(typeName, entry);
+   private void addReverseEntry(String typeName, TypeIndexEntry entry) {
+      // Build the reverse list - for each
+      if (entry.baseTypes != null) {
+         for (String baseType: entry.baseTypes) {
+            LinkedHashMap<String,TypeIndexEntry> subTypes = subTypeIndex.get(baseType);
+            if (subTypes == null) {
+               subTypes = new LinkedHashMap<String,TypeIndexEntry>();
+               subTypeIndex.put(baseType, subTypes);
             }
+
+            subTypes.put(typeName, entry);
          }
-         ArrayList<TypeIndexEntry> modifyTypes = modifyTypeIndex.get(typeName);
-         if (modifyTypes == null) {
-            modifyTypes = new ArrayList<TypeIndexEntry>();
-            modifyTypeIndex.put(typeName, modifyTypes);
+      }
+      ArrayList<TypeIndexEntry> modifyTypes = modifyTypeIndex.get(typeName);
+      if (modifyTypes == null) {
+         modifyTypes = new ArrayList<TypeIndexEntry>();
+         modifyTypeIndex.put(typeName, modifyTypes);
+      }
+      int ix;
+      int insertIx = -1;
+      int curPos = -1;
+      for (ix = 0; ix < modifyTypes.size(); ix++) {
+         TypeIndexEntry tind = modifyTypes.get(ix);
+         if (tind == null || tind.layerName == null || entry == null || tind.typeName == null) {
+            System.err.println("*** Invalid type index entry!");
+            continue;
          }
-         int ix;
-         int insertIx = -1;
-         int curPos = -1;
-         for (ix = 0; ix < modifyTypes.size(); ix++) {
-            TypeIndexEntry tind = modifyTypes.get(ix);
-            if (tind == null || tind.layerName == null || entry == null || tind.typeName == null) {
-               System.err.println("*** Invalid type index entry!");
-               continue;
-            }
-            if (tind.layerName.equals(entry.layerName) && tind.typeName.equals(entry.typeName))
-               break;
-
-            // Update the layer positions if we've created the layered system.  If not, we'll use the order defined from when this type index was generated
-            /*
-            if (sys != null) {
-               Layer layer = sys.getInactiveLayer(tind.layerName, false, false, true, true);
-               if (layer != null) {
-                  if (layer.layerPosition != tind.layerPosition)
-                     System.out.println("***");
-                  tind.layerPosition = layer.layerPosition;
-               }
-               else
-                  System.out.println("***");
-               layer = sys.getInactiveLayer(entry.layerName, false, false, true, true);
-               if (layer != null) {
-                  if (layer.layerPosition != entry.layerPosition)
-                     System.out.println("***");
-                  entry.layerPosition = layer.layerPosition;
-               }
-               else
+         if (tind.layerName.equals(entry.layerName) && tind.typeName.equals(entry.typeName))
+            break;
+
+         // Update the layer positions if we've created the layered system.  If not, we'll use the order defined from when this type index was generated
+         /*
+         if (sys != null) {
+            Layer layer = sys.getInactiveLayer(tind.layerName, false, false, true, true);
+            if (layer != null) {
+               if (layer.layerPosition != tind.layerPosition)
                   System.out.println("***");
+               tind.layerPosition = layer.layerPosition;
             }
-            */
-            int tindPos = orderIndex.getLayerPosition(tind.layerName);
-            int entPos = orderIndex.getLayerPosition(entry.layerName);
-            if (tindPos == -1)
-               System.out.println("*** Missing layer index position for: " + tind.layerName);
-            if (entPos == -1)
-               System.out.println("*** Missing layer index position for: " + entry.layerName);
-
-            if (tindPos > entPos && (curPos == -1 || tindPos < curPos)) {
-               curPos = tindPos;
-               insertIx = ix;
+            else
+               System.out.println("***");
+            layer = sys.getInactiveLayer(entry.layerName, false, false, true, true);
+            if (layer != null) {
+               if (layer.layerPosition != entry.layerPosition)
+                  System.out.println("***");
+               entry.layerPosition = layer.layerPosition;
             }
-         }
-         if (ix == modifyTypes.size()) {
-            if (insertIx == -1)
-               modifyTypes.add(entry);
             else
-               modifyTypes.add(insertIx, entry);
+               System.out.println("***");
          }
+         */
+         int tindPos = orderIndex.getLayerPosition(tind.layerName);
+         int entPos = orderIndex.getLayerPosition(entry.layerName);
+         if (tindPos == -1)
+            System.out.println("*** Missing layer index position for: " + tind.layerName);
+         if (entPos == -1)
+            System.out.println("*** Missing layer index position for: " + entry.layerName);
+
+         if (tindPos > entPos && (curPos == -1 || tindPos < curPos)) {
+            curPos = tindPos;
+            insertIx = ix;
+         }
+      }
+      if (ix == modifyTypes.size()) {
+         if (insertIx == -1)
+            modifyTypes.add(entry);
          else
-            modifyTypes.set(ix, entry);
+            modifyTypes.add(insertIx, entry);
       }
+      else
+         modifyTypes.set(ix, entry);
    }
 
    public void refreshReverseTypeIndex(LayeredSystem sys) {
@@ -4,6 +4,8 @@
 
 package sc.layer;
 
+import sc.binf.BuildDataInStream;
+import sc.binf.BuildDataOutStream;
 import sc.util.FileUtil;
 import sc.util.IMessageHandler;
 import sc.util.MessageType;
@@ -20,6 +22,8 @@ import java.util.List;
  * types in the modify type index when we restore the type index, before we've created the inactiveLayers instance.
  */
 public class LayerOrderIndex implements Serializable {
+   private static final long serialVersionUID = 4302997461323206467L;
+
    ArrayList<String> inactiveLayerNames = new ArrayList<String>();
 
    HashSet<String> disabledLayers = new HashSet<String>();
@@ -27,6 +31,9 @@ public class LayerOrderIndex implements Serializable {
 
    transient HashMap<String,Integer> layerPositions;
 
+   final static String BUILD_DATA_NAME = "LayerOrderIndex";
+   final static int BUILD_DATA_VERSION = 1;
+
    public int getLayerPosition(String layerName) {
       if (layerPositions == null)
          refreshOrder();
@@ -97,19 +104,36 @@ public class LayerOrderIndex implements Serializable {
 
    public void saveToDir(String dirName) {
       File orderIndexFile = getOrderIndexFile(dirName);
-      ObjectOutputStream os = null;
+      BuildDataOutStream os = null;
       try {
-         os = new ObjectOutputStream(new FileOutputStream(orderIndexFile));
-         os.writeObject(this);
+         os = BuildDataOutStream.create(orderIndexFile, BUILD_DATA_NAME, BUILD_DATA_VERSION);
+         os.writeStringList(inactiveLayerNames);
+         os.writeStringList(disabledLayers);
+         os.writeStringList(excludedLayers);
       }
       catch (IOException exc) {
          System.err.println("*** Unable to write layer order index file: " + exc);
       }
+      catch (UncheckedIOException exc) {
+         System.err.println("*** Unable to write layer order index file: " + exc);
+      }
       finally {
          FileUtil.safeClose(os);
       }
    }
 
+   private static LayerOrderIndex readBuildData(BuildDataInStream in) {
+      LayerOrderIndex res = new LayerOrderIndex();
+      res.inactiveLayerNames = in.readStringList();
+      List<String> disabled = in.readStringList();
+      if (disabled != null)
+         res.disabledLayers.addAll(disabled);
+      List<String> excluded = in.readStringList();
+      if (excluded != null)
+         res.excludedLayers.addAll(excluded);
+      return res;
+   }
+
    private static File getOrderIndexFile(String dirName) {
       return new File(dirName, "LayerOrderIndex.ser");
    }
@@ -118,15 +142,24 @@ public class LayerOrderIndex implements Serializable {
       File orderIndexFile = getOrderIndexFile(dirName);
       ObjectInputStream ois = null;
       FileInputStream fis = null;
+      BuildDataInStream bis = null;
       try {
-         ois = new ObjectInputStream(fis = new FileInputStream(orderIndexFile));
-         Object res = ois.readObject();
+         Object res;
+         bis = BuildDataInStream.open(orderIndexFile);
+         if (bis != null)
+            res = bis.isValid(BUILD_DATA_NAME, BUILD_DATA_VERSION) ? readBuildData(bis) : null;
+         else {
+            // Old serialized format - it's rewritten in the new format the next time the index is saved
+            ois = new ObjectInputStream(fis = new FileInputStream(orderIndexFile));
+            res = ois.readObject();
+         }
          if (res instanceof LayerOrderIndex) {
             LayerOrderIndex orderIndex = (LayerOrderIndex) res;
             orderIndex.refreshOrder();
             return orderIndex;
          }
          else {
+            FileUtil.safeClose(bis);
             orderIndexFile.delete();
             if (msg != null)
                msg.reportMessage("Failed to read layer order index file: ", null, -1, -1, MessageType.Error);
@@ -143,7 +176,12 @@ public class LayerOrderIndex implements Serializable {
       catch (ClassNotFoundException exc) {
          System.out.println("*** can't read orderIndex file: " + exc);
       }
+      catch (RuntimeException exc) {
+         System.out.println("*** Invalid orderIndex file: " + exc);
+         orderIndexFile.delete();
+      }
       finally {
+         FileUtil.safeClose(bis);
          FileUtil.safeClose(ois);
          FileUtil.safeClose(fis);
       }
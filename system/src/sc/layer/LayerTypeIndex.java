@@ -4,20 +4,30 @@
 
 package sc.layer;
 
+import sc.binf.BuildDataInStream;
+import sc.binf.BuildDataOutStream;
 import sc.lang.java.BodyTypeDeclaration;
 import sc.lang.java.DeclarationType;
 import sc.obj.SyncMode;
 import sc.type.CTypeUtil;
+import sc.util.FileUtil;
 import sc.util.StringUtil;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 
 /**
  * Stores the information we persist in the type-index for a given layer.
 */
 public class LayerTypeIndex implements Serializable {
+   // Fixed at the pre-binary-format value so old index files can still be read by the ObjectInputStream fallback
+   private static final long serialVersionUID = 42925316691783392L;
+
    String layerPathName; // Path to layer directory
    String layerDirName; // the layer name
    String layerBaseName; // base name of layer definition file
@@ -35,6 +45,11 @@ public class LayerTypeIndex implements Serializable {
    HashMap<String,TypeIndexEntry> layerTypeIndex = new HashMap<String,TypeIndexEntry>();
    /** File name to the type index info we store for that file */
    HashMap<String,TypeIndexEntry> fileIndex = new HashMap<String,TypeIndexEntry>();
+   /**
+    * When read from a saved index, the entries stay in this table - usually mapped from the file - until they are first changed.  While
+    * it's set layerTypeIndex and fileIndex are null so use the getTypeEntry/getFileEntry methods.
+    */
+   transient TypeIndexTable table;
    String[] langExtensions; // Any languages registered by this layer - need to know these are source
 
    public List<String> excludeRuntimes = null;
@@ -49,11 +64,54 @@ public class LayerTypeIndex implements Serializable {
    public boolean hasDefinedProcess = false;
    String definedProcessName;
 
+   final static String BUILD_DATA_NAME = "LayerTypeIndex";
+   final static int BUILD_DATA_VERSION = 2;
+
    transient Layer indexLayer;
 
    transient List<BodyTypeDeclaration> toStartLaterTypes = null;
 
+   public TypeIndexEntry getTypeEntry(String typeName) {
+      TypeIndexTable tab = table;
+      if (tab != null)
+         return tab.findTypeEntry(typeName);
+      return layerTypeIndex.get(typeName);
+   }
+
+   public TypeIndexEntry getFileEntry(String fileName) {
+      TypeIndexTable tab = table;
+      if (tab != null)
+         return tab.findFileEntry(fileName);
+      return fileIndex.get(fileName);
+   }
+
+   public TypeIndexEntry putTypeEntry(String typeName, TypeIndexEntry ent) {
+      materialize();
+      return layerTypeIndex.put(typeName, ent);
+   }
+
+   public TypeIndexEntry putFileEntry(String fileName, TypeIndexEntry ent) {
+      materialize();
+      return fileIndex.put(fileName, ent);
+   }
+
+   public int getNumTypes() {
+      TypeIndexTable tab = table;
+      return tab != null ? tab.numTypes : layerTypeIndex.size();
+   }
+
+   /** Copies the entries from the table into the hash maps before the index is changed */
+   synchronized void materialize() {
+      TypeIndexTable tab = table;
+      if (tab != null) {
+         layerTypeIndex = tab.getAllTypes();
+         fileIndex = tab.getAllFiles();
+         table = null;
+      }
+   }
+
    public boolean updateTypeName(String oldTypeName, String newTypeName) {
+      materialize();
       TypeIndexEntry ent = layerTypeIndex.remove(oldTypeName);
       if (ent != null) {
          layerTypeIndex.put(newTypeName, ent);
@@ -64,10 +122,12 @@ public class LayerTypeIndex implements Serializable {
    }
 
    public boolean removeTypeName(String typeName) {
+      materialize();
       return layerTypeIndex.remove(typeName) != null;
    }
 
    public boolean updateFileName(String oldFileName, String newFileName) {
+      materialize();
       TypeIndexEntry ent = fileIndex.remove(oldFileName);
       if (ent != null) {
          ent.fileName = newFileName;
@@ -128,7 +188,7 @@ public class LayerTypeIndex implements Serializable {
       if (pathLen > layerPathLen + 1 && pathName.startsWith(layerPathName)) {
          String fileName = pathName.substring(layerPathName.length() + 1);
          if (fileName.length() > 0) {
-            return fileIndex.get(pathName);
+            return getFileEntry(pathName);
          }
       }
       return null;
@@ -215,7 +275,116 @@ public class LayerTypeIndex implements Serializable {
       return layerPathName == null ? 0 : layerPathName.hashCode();
    }
 
+   /**
+    * Writes the layer info followed by the type entries in the TypeIndexTable format.  The entries are last in the file so they can be
+    * mapped from the end of the file when it's read.
+    */
+   void writeBuildData(BuildDataOutStream out) {
+      materialize();
+      out.writeStringRef(layerPathName);
+      out.writeStringRef(layerDirName);
+      out.writeStringRef(layerBaseName);
+      out.writeStringRef(packagePrefix);
+      out.writeEnum(codeType);
+      out.writeEnum(syncMode);
+      out.writeBool(finalLayer);
+      out.writeBool(buildSeparate);
+      out.writeBool(buildLayer);
+      out.writeBool(annotationLayer);
+      out.writeStringRef(defaultModifier);
+      out.writeStringArray(baseLayerNames);
+      out.writeStringArray(topLevelSrcDirs);
+      out.writeStringArray(langExtensions);
+      out.writeStringList(excludeRuntimes);
+      out.writeStringList(includeRuntimes);
+      out.writeStringList(excludeProcesses);
+      out.writeStringList(includeProcesses);
+      out.writeBool(hasDefinedRuntime);
+      out.writeStringRef(definedRuntimeName);
+      out.writeBool(hasDefinedProcess);
+      out.writeStringRef(definedProcessName);
+
+      out.writeRawSection(TypeIndexTable.write(layerTypeIndex, fileIndex));
+   }
+
+   /**
+    * Reads the index written by writeBuildData.  If mapFile is not null, the entries are mapped from that file rather than read so
+    * we only decode the ones that are used.
+    */
+   static LayerTypeIndex readBuildData(BuildDataInStream in, File mapFile) {
+      LayerTypeIndex res = new LayerTypeIndex();
+      res.layerPathName = in.readStringRef();
+      res.layerDirName = in.readStringRef();
+      res.layerBaseName = in.readStringRef();
+      res.packagePrefix = in.readStringRef();
+      res.codeType = in.readEnum(CodeType.class);
+      res.syncMode = in.readEnum(SyncMode.class);
+      res.finalLayer = in.readBool();
+      res.buildSeparate = in.readBool();
+      res.buildLayer = in.readBool();
+      res.annotationLayer = in.readBool();
+      res.defaultModifier = in.readStringRef();
+      res.baseLayerNames = in.readStringArray();
+      res.topLevelSrcDirs = in.readStringArray();
+      res.langExtensions = in.readStringArray();
+      res.excludeRuntimes = in.readStringList();
+      res.includeRuntimes = in.readStringList();
+      res.excludeProcesses = in.readStringList();
+      res.includeProcesses = in.readStringList();
+      res.hasDefinedRuntime = in.readBool();
+      res.definedRuntimeName = in.readStringRef();
+      res.hasDefinedProcess = in.readBool();
+      res.definedProcessName = in.readStringRef();
+
+      int len = in.startSection();
+      ByteBuffer buf = null;
+      if (mapFile != null)
+         buf = mapTable(mapFile, len);
+      if (buf == null)
+         buf = ByteBuffer.wrap(in.readBytes(len));
+      in.endSection();
+      res.table = new TypeIndexTable(buf);
+      res.layerTypeIndex = null;
+      res.fileIndex = null;
+      return res;
+   }
+
+   private static ByteBuffer mapTable(File file, int len) {
+      RandomAccessFile raf = null;
+      try {
+         raf = new RandomAccessFile(file, "r");
+         long fileLen = raf.length();
+         // The mapping stays valid after the file is closed
+         return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, fileLen - len, len);
+      }
+      catch (IOException exc) {
+         System.err.println("*** Unable to map type index file: " + file + ": " + exc);
+         return null;
+      }
+      finally {
+         FileUtil.safeClose(raf);
+      }
+   }
+
    boolean addMatchingGlobalNames(String prefix, Set<String> candidates, boolean retFullTypeName, boolean annotTypes, int max) {
+      TypeIndexTable tab = table;
+      if (tab != null) {
+         for (int i = 0; i < tab.numTypes; i++) {
+            String typeName = tab.getTypeName(i);
+            String className = CTypeUtil.getClassName(typeName);
+            if (className.startsWith(prefix)) {
+               if (annotTypes != tab.isAnnotationType(i))
+                  continue;
+               if (retFullTypeName)
+                  candidates.add(typeName);
+               else
+                  candidates.add(className);
+               if (candidates.size() >= max)
+                  return false;
+            }
+         }
+         return true;
+      }
       HashMap<String,TypeIndexEntry> layerTypeMap = layerTypeIndex;
       for (Map.Entry<String,TypeIndexEntry> typeEnt:layerTypeMap.entrySet()) {
          String typeName = typeEnt.getKey();
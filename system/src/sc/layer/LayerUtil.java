@@ -138,15 +138,26 @@ public class LayerUtil implements LayerConstants {
       return FileUtil.concat(getModelCacheDir(sys), layer.getUnderscoreName(), srcEnt.getRelDir());
    }
 
+   private static String getModelCacheFileName(LayeredSystem sys, SrcEntry srcEnt) {
+      String cacheBaseDir = getModelCacheBaseDir(sys, srcEnt.layer, srcEnt);
+      String baseName = FileUtil.removeExtension(srcEnt.baseFileName);
+      String ext = FileUtil.getExtension(srcEnt.baseFileName);
+      baseName = baseName + "_" + ext;
+      return FileUtil.concat(cacheBaseDir, FileUtil.addExtension(baseName, BinfConstants.ModelStreamSuffix));
+   }
+
+   /** Returns true if restoreModel will likely find a model in the cache for this file, without reading it */
+   public static boolean isModelCacheValid(LayeredSystem sys, SrcEntry srcEnt, long srcFileModTime) {
+      if (srcEnt.layer == null)
+         return false;
+      return new File(getModelCacheFileName(sys, srcEnt)).lastModified() > srcFileModTime;
+   }
+
    public static Object restoreModel(LayeredSystem sys, Language lang, SrcEntry srcEnt, long srcFileModTime) {
       Layer layer = srcEnt.layer;
       if (layer == null)
          return null;
-      String cacheBaseDir = getModelCacheBaseDir(sys, layer, srcEnt);
-      String baseName = FileUtil.removeExtension(srcEnt.baseFileName);
-      String ext = FileUtil.getExtension(srcEnt.baseFileName);
-      baseName = baseName + "_" + ext;
-      String serFileName = FileUtil.concat(cacheBaseDir, FileUtil.addExtension(baseName, BinfConstants.ModelStreamSuffix));
+      String serFileName = getModelCacheFileName(sys, srcEnt);
 
       File serFile = new File(serFileName);
       long serLastModified = serFile.lastModified();
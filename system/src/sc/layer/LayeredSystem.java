@@ -4,6 +4,7 @@
 
 package sc.layer;
 
+import sc.binf.BuildDataInStream;
 import sc.bind.Bind;
 import sc.bind.Bindable;
 import sc.bind.BindingContext;
@@ -38,7 +39,9 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.zip.ZipEntry;
@@ -1240,6 +1243,10 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
    // Do not try to load objects that are already being loaded.  In some rare cases, the type system will try to skip back to the original type when looking for an inner type.  Just return null for these incomplete objects until they are ready to be resolved.
    HashMap<String,ILanguageModel> beingLoaded = new HashMap<String,ILanguageModel>();
 
+   // Results from the parallel parse phase, keyed by absFileName - consumed by parseSrcFile on the build thread.  The parse threads only
+   // call Language.parse and put their result here so the type caches above are still only used from the build thread.
+   private final ConcurrentHashMap<String,PreParsedResult> preParsedResults = new ConcurrentHashMap<String,PreParsedResult>();
+
    HashMap<String,ArrayList<BodyTypeDeclaration>> typesByRootName = new HashMap<String, ArrayList<BodyTypeDeclaration>>();
 
    /** The current buildDir - i.e. the build dir for the last layer in the list */
@@ -7466,7 +7473,7 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
             refreshLayerTypeIndexDir(subF, FileUtil.concat(relDir, subF.getName()), layerName, typeIndex, lastModified);
          }
          else {
-            TypeIndexEntry curTypeIndexEntry = typeIndex.fileIndex.get(path);
+            TypeIndexEntry curTypeIndexEntry = typeIndex.getFileEntry(path);
             if (curTypeIndexEntry == TypeIndexEntry.EXCLUDED_SENTINEL)
                continue;
             String ext = FileUtil.getExtension(path);
@@ -7762,7 +7769,18 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
       File typeIndexFile = new File(getTypeIndexFileName(typeIndexIdent, layerName));
       ObjectInputStream ois = null;
       FileInputStream fis = null;
+      BuildDataInStream bis = null;
       try {
+         bis = BuildDataInStream.open(typeIndexFile);
+         if (bis != null) {
+            if (bis.isValid(LayerTypeIndex.BUILD_DATA_NAME, LayerTypeIndex.BUILD_DATA_VERSION))
+               return LayerTypeIndex.readBuildData(bis, options.mappedTypeIndex ? typeIndexFile : null);
+            System.out.println("typeIndex - version changed: " + typeIndexFile);
+            FileUtil.safeClose(bis);
+            typeIndexFile.delete();
+            return null;
+         }
+         // Files in the old serialized format are read this way and saved in the new format the next time the index is saved
          ois = new ObjectInputStream(fis = new FileInputStream(typeIndexFile));
          Object res = ois.readObject();
          if (res instanceof LayerTypeIndex) {
@@ -7781,7 +7799,12 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
       catch (ClassNotFoundException exc) {
          System.out.println("*** can't read typeIndex file: " + exc);
       }
+      catch (RuntimeException exc) {
+         System.out.println("*** Invalid typeIndex file: " + typeIndexFile + ": " + exc);
+         typeIndexFile.delete();
+      }
       finally {
+         FileUtil.safeClose(bis);
          FileUtil.safeClose(ois);
          FileUtil.safeClose(fis);
       }
@@ -9059,6 +9082,112 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
       return true;
    }
 
+   private static class PreParsedResult {
+      Object result;
+      long modTime;
+   }
+
+   /**
+    * Runs Language.parse for the changed files in this build state in parallel, before initChangedModels initializes them one-at-a-time
+    * on this thread.  Parsing a file does not touch the type system so it's safe to do these in any order.  We skip files which already
+    * have a model, or will be restored from the model cache.  The results are picked up by parseSrcFile.
+    */
+   private void preParseChangedFiles(BuildState bd, List<String> includeFiles, BuildPhase phase) {
+      ArrayList<SrcEntry> toParse = new ArrayList<SrcEntry>();
+      // For each language, whether its files can be parsed here - see canPreParse
+      IdentityHashMap<Language,Boolean> langs = new IdentityHashMap<Language,Boolean>();
+      for (int i = 0; i < bd.srcEnts.size(); i++) {
+         ArrayList<SrcDirEntry> sdEnts = bd.srcDirsByPath.get(bd.srcEnts.get(i).absFileName);
+         if (sdEnts == null)
+            continue;
+         for (SrcDirEntry srcDirEnt:sdEnts) {
+            for (SrcEntry toGenEnt:srcDirEnt.toGenerate) {
+               if (includeFiles != null && !includeFiles.contains(toGenEnt.relFileName))
+                  continue;
+               if (toGenEnt.isZip() || new File(toGenEnt.absFileName).isDirectory())
+                  continue;
+               IFileProcessor proc = getFileProcessorForSrcEnt(toGenEnt, phase, false);
+               if (!(proc instanceof Language) || getCachedModel(toGenEnt, false) != null)
+                  continue;
+               Language lang = (Language) proc;
+               Boolean canParse = langs.get(lang);
+               if (canParse == null) {
+                  canParse = canPreParse(lang);
+                  langs.put(lang, canParse);
+               }
+               if (!canParse)
+                  continue;
+               if (options.modelCacheEnabled && LayerUtil.isModelCacheValid(this, toGenEnt, toGenEnt.getLastModified()))
+                  continue;
+               toParse.add(toGenEnt);
+            }
+         }
+      }
+      if (toParse.size() < 2)
+         return;
+
+      // Languages lazily initialize their grammar on the first parse - do that here before the threads share it
+      for (Map.Entry<Language,Boolean> langEnt:langs.entrySet())
+         if (langEnt.getValue())
+            langEnt.getKey().initialize();
+
+      ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>(toParse.size());
+      for (final SrcEntry srcEnt:toParse) {
+         final Language lang = (Language) getFileProcessorForSrcEnt(srcEnt, phase, false);
+         tasks.add(new Callable<Object>() {
+            public Object call() {
+               PreParsedResult res = new PreParsedResult();
+               res.modTime = srcEnt.getLastModified();
+               try {
+                  res.result = lang.parse(srcEnt.absFileName, false);
+               }
+               catch (RuntimeException exc) {
+                  // Leave it for parseSrcFile to parse again and report the error
+                  return null;
+               }
+               if (res.result != null)
+                  preParsedResults.put(srcEnt.absFileName, res);
+               return null;
+            }
+         });
+      }
+
+      PerfMon.start("parallelParse");
+      ForkJoinPool pool = new ForkJoinPool(Math.min(options.parseThreads, toParse.size()));
+      try {
+         pool.invokeAll(tasks);
+      }
+      finally {
+         pool.shutdown();
+         PerfMon.end("parallelParse");
+      }
+      if (options.verbose)
+         verbose("Parsed: " + preParsedResults.size() + " of " + toParse.size() + " files using " + pool.getParallelism() + " threads for runtime: " + getRuntimeName());
+   }
+
+   /**
+    * Language.process just parses the file.  Languages which override it do more - e.g. CommandSCLanguage records the most specific file
+    * in a HashMap - so their files are left for parseSrcFile to process on the build thread in order.
+    */
+   private static boolean canPreParse(Language lang) {
+      try {
+         return lang.getClass().getMethod("process", SrcEntry.class, Boolean.TYPE).getDeclaringClass() == Language.class;
+      }
+      catch (NoSuchMethodException exc) {
+         return false;
+      }
+   }
+
+   /** Returns the result of the parallel parse phase for this file if it's there and the file has not changed since */
+   private Object removePreParsedResult(SrcEntry srcEnt, long modTime) {
+      if (preParsedResults.size() == 0)
+         return null;
+      PreParsedResult res = preParsedResults.remove(srcEnt.absFileName);
+      if (res == null || res.modTime != modTime)
+         return null;
+      return res.result;
+   }
+
    public GenerateCodeStatus initChangedModels(Layer genLayer, List<String> includeFiles, BuildPhase phase, boolean separateOnly) {
       BuildState bd = genLayer.buildState;
 
@@ -9071,6 +9200,12 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
       if (initPeerChangedModels(genLayer, includeFiles, phase, separateOnly) == GenerateCodeStatus.Error)
          return GenerateCodeStatus.Error;
 
+      if (options.parseThreads > 1) {
+         long startTime = System.currentTimeMillis();
+         preParseChangedFiles(bd, includeFiles, phase);
+         flags.parseTime = System.currentTimeMillis() - startTime;
+      }
+
       // Now that all toGenerate models have been stopped, we iterate through them again and initialize the models.
       for (int i = 0; i < bd.srcEnts.size(); i++) {
          SrcEntry srcEnt = bd.srcEnts.get(i);
@@ -9161,6 +9296,9 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
          }
       }
 
+      // Any files parsed ahead of time but not used (e.g. loaded from another reference) are not kept around
+      preParsedResults.clear();
+
       // Print some info that's useful for diagnosing what gets recompiled and why on a rebuild.
       if (!genLayer.getBuildAllFiles() && options.verbose) {
          if (bd.modifiedFiles.size() == 0) {
@@ -9371,9 +9509,12 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
          alreadyPreInited = false;
       else
          alreadyPreInited = phase == BuildPhase.Prepare ? buildState.prepPhase.preInited : buildState.processPhase.preInited;
+      long preInitTime = 0;
       if (!alreadyPreInited) {
+         long startTime = System.currentTimeMillis();
          // Now go through and find which source files have changed, reload those changes and populate the modelsToTransform
          GenerateCodeStatus startResult = preInitChangedModels(genLayer, includeFiles, phase, separateOnly);
+         preInitTime = System.currentTimeMillis() - startTime;
          if (startResult != GenerateCodeStatus.NewCompiledFiles) {
             if (phase == BuildPhase.Process)
                genLayer.updateBuildInProgress(false);
@@ -9384,9 +9525,13 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
 
       BuildState bd = genLayer.buildState;
       BuildStepFlags flags = phase == BuildPhase.Prepare ? bd.prepPhase : bd.processPhase;
+      if (preInitTime != 0)
+         flags.preInitTime = preInitTime;
       if (!flags.inited) {
+         long startTime = System.currentTimeMillis();
          // Now go through and find which source files have changed, reload those changes and populate the modelsToTransform
          GenerateCodeStatus startResult = initChangedModels(genLayer, includeFiles, phase, separateOnly);
+         flags.initTime = System.currentTimeMillis() - startTime;
          if (startResult != GenerateCodeStatus.NewCompiledFiles) {
             markBuildCompleted(genLayer, phase);
             return startResult;
@@ -9394,13 +9539,20 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
       }
 
       if (!flags.started) {
+         long startTime = System.currentTimeMillis();
          GenerateCodeStatus startResult = startChangedModels(genLayer, includeFiles, phase, separateOnly);
+         flags.startTime = System.currentTimeMillis() - startTime;
          if (startResult != GenerateCodeStatus.NewCompiledFiles) {
             markBuildCompleted(genLayer, phase);
             return startResult;
          }
       }
 
+      if (options.verbose && !options.testVerifyMode)
+         verbose(phase + " phase times for layer: " + genLayer + " preInit: " + StringUtil.formatFloat(flags.preInitTime / 1000.0) +
+                 " init: " + StringUtil.formatFloat(flags.initTime / 1000.0) + " (parallel parse: " + StringUtil.formatFloat(flags.parseTime / 1000.0) + ")" +
+                 " start: " + StringUtil.formatFloat(flags.startTime / 1000.0));
+
       // All components will have been started and validated at this point.
       if (!bd.anyError) {
          // Clear out the build info for data for any models we know have changed.  Doing this only on the first build because we do not restart all of the models and so will just clean out everything that's not changed.
@@ -10141,7 +10293,7 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
       if (active) {
          // Need to clone here because we'll be adding new types to this map during the refreshBoundType process below - i.e.
          // remapping transformed types to their untransformed representations
-         Map<String, TypeDeclarationCacheEntry> oldTypesByName = (Map<String, TypeDeclarationCacheEntry>) typesByName.clone();
+         Map<String, TypeDeclarationCacheEntry> oldTypesByName = new HashMap<String, TypeDeclarationCacheEntry>(typesByName);
 
          // Now that we've purged the cache of transformed types, go through any remaining types and do the refreshBoundType
          // operation.  That will drag in new versions of any referenced transformed types.
@@ -10607,7 +10759,9 @@ public class LayeredSystem implements LayerConstants, INameContext, IRDynamicSys
 
          try {
             if (modelObj == null) {
-               result = processor.process(srcEnt, enablePartialValues);
+               result = enablePartialValues ? null : removePreParsedResult(srcEnt, modTimeStart);
+               if (result == null)
+                  result = processor.process(srcEnt, enablePartialValues);
                if (result instanceof ParseError) {
                   if (reportErrors) {
                      error("File: " + srcEnt.absFileName + ": " + ((ParseError) result).errorStringWithLineNumbers(new File(srcEnt.absFileName)));
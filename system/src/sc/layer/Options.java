@@ -129,6 +129,18 @@ public class Options {
    @Constant /** An internal option to enable use of the clone operation to re-parse the same file in a separate peer system */
    public boolean clonedParseModel = true;
 
+   /**
+    * When greater than 1, the changed files for a build layer are parsed in parallel using this many threads before the models are
+    * initialized and started on the build thread.  Set with -pt <numThreads>.  Only the Language.parse step runs in parallel.
+    */
+   @Constant public int parseThreads = 0;
+
+   /**
+    * When true, the type entries of saved layer type index files are mapped into memory and only decoded as they are used.  Set to
+    * false to read them into the heap instead.
+    */
+   @Constant public boolean mappedTypeIndex = true;
+
    @Constant /** Additional system diagnostic information in verbose mode */
    public boolean sysDetails = false;
 
@@ -317,6 +329,7 @@ public class Options {
                          "   [ -ndbg ]: Do not compile Java files with debug enabled\n" +
                          "   [ -dt ]: Enable the liveDynamicTypes option - so that you can modify types at runtime.  This is turned when the editor is enabled by default but you can turn it on with this option.\n" +
                          "   [ -nd ]: Disable the liveDynamicTypes option - so that you cannot modify types at runtime.  This is turned when the editor is enabled by default but you can turn it on with this option.\n" +
+                         "   [ -pt <numThreads> ]: Parse changed files in parallel using this many threads.\n" +
                          "   [ -ee ]: Edit the editor itself - when including the program editor, do not exclude it's source from editing.\n" +
                          "   [ -cd <ApplicationTypeName>]: Start the command-interpreter in the context of the given ApplicationTypeName.\n" +
                          "   [ -schema:update, -schema:accept ]: update the schema database, or accept the current schema without updating. Default is to run the SchemaUpdateWizard to apply the changes interactively\n" +
@@ -508,6 +521,22 @@ public class Options {
                         System.err.println("*** Unrecognized option: " + opt);
                   }
                   break;
+               case 'p':
+                  if (opt.equals("pt")) {
+                     if (args.length < i + 1)
+                        Options.usage("Missing arg to -pt (parseThreads) option: ", args);
+                     else {
+                        try {
+                           parseThreads = Integer.parseInt(args[++i]);
+                        }
+                        catch (NumberFormatException exc) {
+                           Options.usage("Invalid integer arg to -pt (parseThreads) option: " + exc.toString(), args);
+                        }
+                     }
+                  }
+                  else
+                     Options.usage("Unrecognized option: " + opt, args);
+                  break;
                case 'P':
                   processLayerProperty(opt, args);
                   break;
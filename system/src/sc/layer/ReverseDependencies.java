@@ -4,6 +4,8 @@
 
 package sc.layer;
 
+import sc.binf.BuildDataInStream;
+import sc.binf.BuildDataOutStream;
 import sc.util.FileUtil;
 
 import java.io.*;
@@ -11,6 +13,8 @@ import java.util.*;
 
 /** For a given type, stores the references to the set of types which require bindable or dynamic behavior from this type for a given build layer */
 public class ReverseDependencies implements Serializable {
+   private static final long serialVersionUID = 5286181980373417200L;
+
    public static final String REVERSE_DEPENDENCIES_EXTENSION = "rdps";
    int typeCount = 0;
    /** Stores the type names as the key, the type count id as the value.  Designed so multiple references from the same types are efficiently stored. */
@@ -30,6 +34,10 @@ public class ReverseDependencies implements Serializable {
    public HashMap<String, ArrayList<String>> typeGroupDeps;
 
    private static final int NEW_ENTRY = 1;
+
+   final static String BUILD_DATA_NAME = "ReverseDependencies";
+   final static int BUILD_DATA_VERSION = 1;
+
    transient HashMap<String,Boolean> changedState = new HashMap<String, Boolean>();
    /** Has this set of dependencies been modified since being read? */
    transient boolean changed = false;
@@ -238,27 +246,139 @@ public class ReverseDependencies implements Serializable {
          return;
       }
 
-      ObjectOutputStream os = null;
+      BuildDataOutStream os = null;
       try {
-         os = new ObjectOutputStream(new FileOutputStream(revFile));
-         os.writeObject(reverseDeps);
+         os = BuildDataOutStream.create(revFile, BUILD_DATA_NAME, BUILD_DATA_VERSION);
+         reverseDeps.writeBuildData(os);
       }
       catch (IOException exc) {
          System.out.println("*** can't save reverse deps: " + exc);
       }
+      catch (UncheckedIOException exc) {
+         System.out.println("*** can't save reverse deps: " + exc);
+      }
       finally {
          FileUtil.safeClose(os);
       }
    }
 
+   void writeBuildData(BuildDataOutStream out) {
+      out.writeUInt(typeCount);
+      out.writeUInt(typeIndex.size());
+      for (Map.Entry<Integer,String> ent:typeIndex.entrySet()) {
+         out.writeUInt(ent.getKey());
+         out.writeStringRef(ent.getValue());
+      }
+
+      out.writeUInt(bindableDeps.size());
+      for (Map.Entry<String,PropertyDep[]> ent:bindableDeps.entrySet()) {
+         out.writeStringRef(ent.getKey());
+         PropertyDep[] pdeps = ent.getValue();
+         out.writeUInt(pdeps.length);
+         for (PropertyDep pdep:pdeps) {
+            // Pack refOnly into the low bit of the type index
+            out.writeUInt((pdep.typeIndex << 1) | (pdep.refOnly ? 1 : 0));
+         }
+      }
+
+      if (dynMethods == null)
+         out.writeUInt(0);
+      else {
+         out.writeUInt(dynMethods.size() + 1);
+         for (Map.Entry<MethodKey,int[]> ent:dynMethods.entrySet()) {
+            MethodKey key = ent.getKey();
+            out.writeStringRef(key.methodName);
+            out.writeStringRef(key.paramSig);
+            int[] vals = ent.getValue();
+            out.writeUInt(vals.length);
+            for (int val:vals)
+               out.writeUInt(val);
+         }
+      }
+
+      if (typeGroupDeps == null)
+         out.writeUInt(0);
+      else {
+         out.writeUInt(typeGroupDeps.size() + 1);
+         for (Map.Entry<String,ArrayList<String>> ent:typeGroupDeps.entrySet()) {
+            out.writeStringRef(ent.getKey());
+            out.writeStringList(ent.getValue());
+         }
+      }
+   }
+
+   static ReverseDependencies readBuildData(BuildDataInStream in) {
+      ReverseDependencies res = new ReverseDependencies();
+      res.typeCount = in.readUInt();
+      int numTypes = in.readUInt();
+      for (int i = 0; i < numTypes; i++) {
+         Integer id = in.readUInt();
+         String typeName = in.readStringRef();
+         res.typeIndex.put(id, typeName);
+         res.typeRegistry.put(typeName, id);
+      }
+
+      int numProps = in.readUInt();
+      for (int i = 0; i < numProps; i++) {
+         String propName = in.readStringRef();
+         PropertyDep[] pdeps = new PropertyDep[in.readUInt()];
+         for (int j = 0; j < pdeps.length; j++) {
+            int code = in.readUInt();
+            PropertyDep pdep = new PropertyDep();
+            pdep.typeIndex = code >>> 1;
+            pdep.refOnly = (code & 1) != 0;
+            pdeps[j] = pdep;
+         }
+         res.bindableDeps.put(propName, pdeps);
+      }
+
+      int numMethods = in.readUInt();
+      if (numMethods == 0)
+         res.dynMethods = null;
+      else {
+         for (int i = 0; i < numMethods - 1; i++) {
+            MethodKey key = new MethodKey(in.readStringRef(), in.readStringRef());
+            int[] vals = new int[in.readUInt()];
+            for (int j = 0; j < vals.length; j++)
+               vals[j] = in.readUInt();
+            res.dynMethods.put(key, vals);
+         }
+      }
+
+      int numGroups = in.readUInt();
+      if (numGroups != 0) {
+         res.typeGroupDeps = new HashMap<String,ArrayList<String>>();
+         for (int i = 0; i < numGroups - 1; i++) {
+            String groupName = in.readStringRef();
+            res.typeGroupDeps.put(groupName, in.readStringList());
+         }
+      }
+      return res;
+   }
+
    public static ReverseDependencies readReverseDeps(String revDepsFileName, ReverseDependencies reverseDeps) {
       File revDepsFile = new File(revDepsFileName);
       if (revDepsFile.canRead()) {
          ObjectInputStream ois = null;
          FileInputStream fis = null;
+         BuildDataInStream bis = null;
          try {
-            ois = new ObjectInputStream(fis = new FileInputStream(revDepsFile));
-            ReverseDependencies res = (ReverseDependencies) ois.readObject();
+            ReverseDependencies res;
+            bis = BuildDataInStream.open(revDepsFile);
+            if (bis != null) {
+               if (!bis.isValid(BUILD_DATA_NAME, BUILD_DATA_VERSION)) {
+                  System.out.println("reverse dependencies - version changed: " + revDepsFileName);
+                  FileUtil.safeClose(bis);
+                  revDepsFile.delete();
+                  return reverseDeps;
+               }
+               res = readBuildData(bis);
+            }
+            else {
+               // Old serialized format - it's rewritten in the new format the next time these deps are saved
+               ois = new ObjectInputStream(fis = new FileInputStream(revDepsFile));
+               res = (ReverseDependencies) ois.readObject();
+            }
             if (res != null) {
                if (reverseDeps != null) {
                   reverseDeps.addDeps(res);
@@ -280,7 +400,12 @@ public class ReverseDependencies implements Serializable {
          catch (ClassNotFoundException exc) {
             System.out.println("*** can't read build reverse deps: " + exc);
          }
+         catch (RuntimeException exc) {
+            System.out.println("*** Invalid build reverse deps file: " + revDepsFileName + ": " + exc);
+            revDepsFile.delete();
+         }
          finally {
+            FileUtil.safeClose(bis);
             FileUtil.safeClose(ois);
             FileUtil.safeClose(fis);
          }
@@ -13,6 +13,8 @@ import java.util.List;
 
 /** We store this information about each type in the type index - essentially one for each .sc file for each process/runtime where it's used. */
 public class TypeIndexEntry implements Serializable {
+   private static final long serialVersionUID = -7549122968699915414L;
+
    public String typeName;
    public String layerName;
    public String processIdent;
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.layer;
+
+import sc.lang.java.DeclarationType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * The type entries of a LayerTypeIndex in the form they are stored on disk, usually read through a MappedByteBuffer.  Type and file
+ * names are kept in two sorted directories of fixed size slots, each pointing to the name and the entry in a pool of strings and
+ * entry records.  Lookups binary search the directory so only the entries that are used are turned into TypeIndexEntry objects.
+ * <p>
+ * Layout - all offsets are from the start of the buffer:
+ * numTypes, numFiles, offset of the "ANNOTATION" string or -1, then numTypes and numFiles slots of (nameOffset, entryOffset).  The
+ * entryOffset is -1 for TypeIndexEntry.EXCLUDED_SENTINEL.  A string is its length in bytes followed by UTF-8.  An entry is:
+ * declType, typeName, layerName, processIdent, fileName, layerPosition, lastModified, flags, numBaseTypes (-1 for null), baseTypes.
+ * </p>
+ * Decoded strings and entries are cached so an entry read twice is the same object.
+ */
+class TypeIndexTable {
+   private final static Charset UTF8 = Charset.forName("UTF-8");
+   private final static int HEADER_SIZE = 12;
+   private final static int SLOT_SIZE = 8;
+
+   private final static int IS_LAYER_TYPE = 1, IS_LAYER_COMPONENT = 2, IS_INNER_TYPE = 4, IS_MODIFY = 8, EXCLUDED = 16;
+
+   private final ByteBuffer buf;
+   final int numTypes;
+   final int numFiles;
+   private final int annotationOffset;
+   private final int filesStart;
+
+   private final HashMap<Integer,String> strings = new HashMap<Integer,String>();
+   private final HashMap<Integer,TypeIndexEntry> entries = new HashMap<Integer,TypeIndexEntry>();
+
+   TypeIndexTable(ByteBuffer buf) {
+      this.buf = buf;
+      numTypes = buf.getInt(0);
+      numFiles = buf.getInt(4);
+      annotationOffset = buf.getInt(8);
+      filesStart = HEADER_SIZE + numTypes * SLOT_SIZE;
+   }
+
+   synchronized String getTypeName(int ix) {
+      return getString(buf.getInt(HEADER_SIZE + ix * SLOT_SIZE));
+   }
+
+   synchronized TypeIndexEntry getTypeEntry(int ix) {
+      return getEntry(buf.getInt(HEADER_SIZE + ix * SLOT_SIZE + 4));
+   }
+
+   /** Used for enumerating names without creating the entries */
+   boolean isAnnotationType(int ix) {
+      int entryOffset = buf.getInt(HEADER_SIZE + ix * SLOT_SIZE + 4);
+      return annotationOffset != -1 && entryOffset != -1 && buf.getInt(entryOffset) == annotationOffset;
+   }
+
+   synchronized String getFileName(int ix) {
+      return getString(buf.getInt(filesStart + ix * SLOT_SIZE));
+   }
+
+   synchronized TypeIndexEntry getFileEntry(int ix) {
+      return getEntry(buf.getInt(filesStart + ix * SLOT_SIZE + 4));
+   }
+
+   synchronized TypeIndexEntry findTypeEntry(String typeName) {
+      int ix = find(HEADER_SIZE, numTypes, typeName);
+      return ix == -1 ? null : getEntry(buf.getInt(HEADER_SIZE + ix * SLOT_SIZE + 4));
+   }
+
+   synchronized TypeIndexEntry findFileEntry(String fileName) {
+      int ix = find(filesStart, numFiles, fileName);
+      return ix == -1 ? null : getEntry(buf.getInt(filesStart + ix * SLOT_SIZE + 4));
+   }
+
+   private int find(int dirStart, int num, String key) {
+      int lo = 0, hi = num - 1;
+      while (lo <= hi) {
+         int mid = (lo + hi) >>> 1;
+         int cmp = getString(buf.getInt(dirStart + mid * SLOT_SIZE)).compareTo(key);
+         if (cmp < 0)
+            lo = mid + 1;
+         else if (cmp > 0)
+            hi = mid - 1;
+         else
+            return mid;
+      }
+      return -1;
+   }
+
+   HashMap<String,TypeIndexEntry> getAllTypes() {
+      HashMap<String,TypeIndexEntry> res = new HashMap<String,TypeIndexEntry>(numTypes * 2);
+      for (int i = 0; i < numTypes; i++)
+         res.put(getTypeName(i), getTypeEntry(i));
+      return res;
+   }
+
+   HashMap<String,TypeIndexEntry> getAllFiles() {
+      HashMap<String,TypeIndexEntry> res = new HashMap<String,TypeIndexEntry>(numFiles * 2);
+      for (int i = 0; i < numFiles; i++)
+         res.put(getFileName(i), getFileEntry(i));
+      return res;
+   }
+
+   private String getString(int offset) {
+      if (offset == -1)
+         return null;
+      String res = strings.get(offset);
+      if (res == null) {
+         int len = buf.getInt(offset);
+         byte[] bytes = new byte[len];
+         ByteBuffer dup = buf.duplicate();
+         dup.position(offset + 4);
+         dup.get(bytes);
+         res = new String(bytes, UTF8);
+         strings.put(offset, res);
+      }
+      return res;
+   }
+
+   private TypeIndexEntry getEntry(int offset) {
+      if (offset == -1)
+         return TypeIndexEntry.EXCLUDED_SENTINEL;
+      TypeIndexEntry ent = entries.get(offset);
+      if (ent != null)
+         return ent;
+
+      ent = new TypeIndexEntry();
+      String declTypeName = getString(buf.getInt(offset));
+      if (declTypeName != null) {
+         try {
+            ent.declType = DeclarationType.valueOf(declTypeName);
+         }
+         catch (IllegalArgumentException exc) {
+            System.err.println("*** Unrecognized declaration type in type index: " + declTypeName);
+         }
+      }
+      ent.typeName = getString(buf.getInt(offset + 4));
+      ent.layerName = getString(buf.getInt(offset + 8));
+      ent.processIdent = getString(buf.getInt(offset + 12));
+      ent.fileName = getString(buf.getInt(offset + 16));
+      ent.layerPosition = buf.getInt(offset + 20);
+      ent.lastModified = buf.getLong(offset + 24);
+      int flags = buf.get(offset + 32);
+      ent.isLayerType = (flags & IS_LAYER_TYPE) != 0;
+      ent.isLayerComponent = (flags & IS_LAYER_COMPONENT) != 0;
+      ent.isInnerType = (flags & IS_INNER_TYPE) != 0;
+      ent.isModify = (flags & IS_MODIFY) != 0;
+      ent.excluded = (flags & EXCLUDED) != 0;
+      int numBaseTypes = buf.getInt(offset + 33);
+      if (numBaseTypes != -1) {
+         ArrayList<String> baseTypes = new ArrayList<String>(numBaseTypes);
+         for (int i = 0; i < numBaseTypes; i++)
+            baseTypes.add(getString(buf.getInt(offset + 37 + i * 4)));
+         ent.baseTypes = baseTypes;
+      }
+      entries.put(offset, ent);
+      return ent;
+   }
+
+   /** Returns the table for these maps in the format read by the constructor */
+   static byte[] write(Map<String,TypeIndexEntry> types, Map<String,TypeIndexEntry> files) {
+      try {
+         String[] typeNames = types.keySet().toArray(new String[types.size()]);
+         String[] fileNames = files.keySet().toArray(new String[files.size()]);
+         Arrays.sort(typeNames);
+         Arrays.sort(fileNames);
+
+         int poolStart = HEADER_SIZE + (typeNames.length + fileNames.length) * SLOT_SIZE;
+         PoolWriter pool = new PoolWriter(poolStart);
+
+         int[] typeSlots = new int[typeNames.length * 2];
+         for (int i = 0; i < typeNames.length; i++) {
+            typeSlots[i * 2] = pool.addString(typeNames[i]);
+            typeSlots[i * 2 + 1] = pool.addEntry(types.get(typeNames[i]));
+         }
+         int[] fileSlots = new int[fileNames.length * 2];
+         for (int i = 0; i < fileNames.length; i++) {
+            fileSlots[i * 2] = pool.addString(fileNames[i]);
+            fileSlots[i * 2 + 1] = pool.addEntry(files.get(fileNames[i]));
+         }
+
+         ByteArrayOutputStream bos = new ByteArrayOutputStream(poolStart + pool.bytes.size());
+         DataOutputStream out = new DataOutputStream(bos);
+         out.writeInt(typeNames.length);
+         out.writeInt(fileNames.length);
+         Integer annotOffset = pool.stringOffsets.get(DeclarationType.ANNOTATION.name());
+         out.writeInt(annotOffset == null ? -1 : annotOffset);
+         for (int slot:typeSlots)
+            out.writeInt(slot);
+         for (int slot:fileSlots)
+            out.writeInt(slot);
+         pool.bytes.writeTo(out);
+         out.flush();
+         return bos.toByteArray();
+      }
+      catch (IOException exc) {
+         // Not possible when writing to a byte array
+         throw new IllegalStateException(exc);
+      }
+   }
+
+   private static class PoolWriter {
+      int poolStart;
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      HashMap<String,Integer> stringOffsets = new HashMap<String,Integer>();
+      IdentityHashMap<TypeIndexEntry,Integer> entryOffsets = new IdentityHashMap<TypeIndexEntry,Integer>();
+
+      PoolWriter(int poolStart) {
+         this.poolStart = poolStart;
+      }
+
+      int addString(String str) throws IOException {
+         if (str == null)
+            return -1;
+         Integer offset = stringOffsets.get(str);
+         if (offset == null) {
+            offset = poolStart + out.size();
+            byte[] strBytes = str.getBytes(UTF8);
+            out.writeInt(strBytes.length);
+            out.write(strBytes);
+            stringOffsets.put(str, offset);
+         }
+         return offset;
+      }
+
+      int addEntry(TypeIndexEntry ent) throws IOException {
+         if (ent == TypeIndexEntry.EXCLUDED_SENTINEL)
+            return -1;
+         Integer offset = entryOffsets.get(ent);
+         if (offset != null)
+            return offset;
+
+         // Strings first so the entry record is contiguous
+         int declTypeOff = addString(ent.declType == null ? null : ent.declType.name());
+         int typeNameOff = addString(ent.typeName);
+         int layerNameOff = addString(ent.layerName);
+         int processIdentOff = addString(ent.processIdent);
+         int fileNameOff = addString(ent.fileName);
+         int[] baseTypeOffs = null;
+         if (ent.baseTypes != null) {
+            baseTypeOffs = new int[ent.baseTypes.size()];
+            for (int i = 0; i < baseTypeOffs.length; i++)
+               baseTypeOffs[i] = addString(ent.baseTypes.get(i));
+         }
+
+         offset = poolStart + out.size();
+         out.writeInt(declTypeOff);
+         out.writeInt(typeNameOff);
+         out.writeInt(layerNameOff);
+         out.writeInt(processIdentOff);
+         out.writeInt(fileNameOff);
+         out.writeInt(ent.layerPosition);
+         out.writeLong(ent.lastModified);
+         out.writeByte((ent.isLayerType ? IS_LAYER_TYPE : 0) | (ent.isLayerComponent ? IS_LAYER_COMPONENT : 0) | (ent.isInnerType ? IS_INNER_TYPE : 0) |
+                       (ent.isModify ? IS_MODIFY : 0) | (ent.excluded ? EXCLUDED : 0));
+         if (baseTypeOffs == null)
+            out.writeInt(-1);
+         else {
+            out.writeInt(baseTypeOffs.length);
+            for (int off:baseTypeOffs)
+               out.writeInt(off);
+         }
+         entryOffsets.put(ent, offset);
+         return offset;
+      }
+   }
+}
@@ -10,13 +10,20 @@ import java.util.List;
 
 public abstract class AbstractParseNode implements IParseNode, Cloneable {
    int startIndex = -1;
-   /** Set during the reparse process as a node is moved from the old to the new tree.  TODO: performance - there are a lot of parse-nodes.  we could eliminate this perhaps by copying the parse-node tree or different classes used for when we need it */
-   int newStartIndex = -1;
-   /** Set to true for any parse-nodes which are generated as part of an error state */
-   boolean errorNode = false; // TODO: performance use a bit in 'startIndex' or use a 'long' to store parselet-id (15), startIndex (32), newStartIndexOffset(15), errorNode(1), and generated(1) flag in ParentParseNode using bitfields
-   // Before apn: (java 16) + 4 + 4 + 4  +ppn: 8 + 8 + 8 + 4 = 52  +pn: 8 + 8 + 8 = 48 = 100
-   // after  apn: (16) + 8 ppn: 8 + 8 = 40  pn: 8 + 8 = 40  = 80
-   // TODO: Problem with "parseletId" is that we don't have a way to find the language here to map this back to a parselet
+   /**
+    * Holds the errorNode flag, ParentParseNode's generated flag and newStartIndex in one int.  newStartIndex is set during the reparse
+    * process as a node is moved from the old to the new tree.  It's stored + 1 above the flag bits so 0 means it's not set.
+    * With compressed oops this keeps ParseNode and ParentParseNode at 32 bytes rather than 40 - there are a lot of parse-nodes
+    * kept around for each model.
+    */
+   int packedBits = 0;
+
+   static final int ERROR_NODE_FLAG = 1;
+   static final int GENERATED_FLAG = 2;
+   static final int NUM_FLAG_BITS = 2;
+   static final int FLAG_MASK = (1 << NUM_FLAG_BITS) - 1;
+   /** Files larger than this can't be reparsed incrementally */
+   static final int MAX_NEW_START_INDEX = (-1 >>> NUM_FLAG_BITS) - 1;
 
    public void setParselet(Parselet p) {}
 
@@ -29,8 +36,9 @@ public abstract class AbstractParseNode implements IParseNode, Cloneable {
    }
 
    public int getStartIndex() {
-      if (newStartIndex != -1)
-         return newStartIndex;
+      int newIx = packedBits >>> NUM_FLAG_BITS;
+      if (newIx != 0)
+         return newIx - 1;
       return startIndex;
    }
 
@@ -39,7 +47,25 @@ public abstract class AbstractParseNode implements IParseNode, Cloneable {
    }
 
    public int getNewStartIndex() {
-      return newStartIndex;
+      return (packedBits >>> NUM_FLAG_BITS) - 1;
+   }
+
+   /** Pass -1 to clear the new start index so getStartIndex returns the original one again */
+   public void setNewStartIndex(int ix) {
+      if (ix < -1 || ix > MAX_NEW_START_INDEX)
+         throw new IllegalArgumentException("Invalid newStartIndex: " + ix);
+      packedBits = ((ix + 1) << NUM_FLAG_BITS) | (packedBits & FLAG_MASK);
+   }
+
+   boolean getFlag(int flag) {
+      return (packedBits & flag) != 0;
+   }
+
+   void setFlag(int flag, boolean val) {
+      if (val)
+         packedBits |= flag;
+      else
+         packedBits &= ~flag;
    }
 
    public void setStartIndex(int ix) {
@@ -200,10 +226,10 @@ public abstract class AbstractParseNode implements IParseNode, Cloneable {
          System.err.println("Invalid start index found");
       if (!newIndex) {
          startIndex = ix;
-         newStartIndex = -1;
+         setNewStartIndex(-1);
       }
       else
-         newStartIndex = ix;
+         setNewStartIndex(ix);
       return ix + length();
    }
 
@@ -212,11 +238,11 @@ public abstract class AbstractParseNode implements IParseNode, Cloneable {
    }
 
    public boolean isErrorNode() {
-      return errorNode;
+      return getFlag(ERROR_NODE_FLAG);
    }
 
    public void setErrorNode(boolean val) {
-      errorNode = val;
+      setFlag(ERROR_NODE_FLAG, val);
    }
 
    public int getNumSemanticValues() {
@@ -230,7 +256,7 @@ public abstract class AbstractParseNode implements IParseNode, Cloneable {
    }
 
    public boolean isIncomplete() {
-      return errorNode;
+      return getFlag(ERROR_NODE_FLAG);
    }
 
    public int getNodeCount() {
@@ -241,7 +267,7 @@ public abstract class AbstractParseNode implements IParseNode, Cloneable {
       if (!(other instanceof AbstractParseNode))
          return false;
       AbstractParseNode opn = (AbstractParseNode) other;
-      if (opn.errorNode != errorNode)
+      if (opn.getFlag(ERROR_NODE_FLAG) != getFlag(ERROR_NODE_FLAG))
          return false;
       if (opn.getParselet() != getParselet())
          return false;
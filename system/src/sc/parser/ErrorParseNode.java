@@ -22,7 +22,7 @@ public class ErrorParseNode extends AbstractParseNode {
       error = err;
       startIndex = err == null ? -1 : err.startIndex;
       errorText = errText;
-      errorNode = true;
+      setErrorNode(true);
    }
 
    public Object getSemanticValue() {
@@ -1411,10 +1411,10 @@ public abstract class NestedParselet extends Parselet implements IParserConstant
       if (clone)
          pn = pn.shallowCopy();
 
-      pn.newStartIndex = startIndex;
+      pn.setNewStartIndex(startIndex);
 
       // Clearing this because we may reuse this same parse-node in a new non-error context.
-      pn.errorNode = false;
+      pn.setErrorNode(false);
 
       if (pn.parselet != this) {
          return (ParentParseNode) newParseNode(startIndex);
@@ -2344,7 +2344,7 @@ public abstract class NestedParselet extends Parselet implements IParserConstant
       //   ((ISemanticNode) value).setParseNode(pnode);
 
       ParentParseNode ppnode = (ParentParseNode) pnode;
-      ppnode.generated = true;
+      ppnode.setGenerated(true);
       return ppnode;
    }
 
@@ -837,7 +837,7 @@ public class OrderedChoice extends NestedParselet  {
                   else {
                      newErrorRes = new ErrorParseNode(new ParseError(skipOnErrorParselet, "Expected {0}", new Object[]{this}, errorStart, parser.currentIndex), errorRes.toString());
                      // This error's startIndex is in the new parse-tree since we are reparsing.   In the event that we try to reparse this again, need to avoid removing the node in clearOldParseNodes
-                     newErrorRes.newStartIndex = newErrorRes.startIndex;
+                     newErrorRes.setNewStartIndex(newErrorRes.startIndex);
                      // There are places where we directly check startIndex field
                      //newErrorRes.startIndex = -1;
                   }
@@ -14,7 +14,6 @@ import java.util.List;
 
 public class ParentParseNode extends AbstractParseNode {
    NestedParselet parselet;
-   boolean generated = false;
 
    public ArrayList<Object> children;
 
@@ -448,7 +447,7 @@ public class ParentParseNode extends AbstractParseNode {
       // If the parse node is generated, we need to use the formatting process to add in
       // the proper spacing.  If the parse node was parsed, we toString it just as it
       // was parsed so we get back the identical input strings.
-      if (generated) {
+      if (isGenerated()) {
          // TODO: we should have a way to avoid this case - by re-formatting a file and converting generated nodes to
          // normal parse-nodes.  If we do it from the top-down, we can avoid the overhead of trying to recreate the
          // context for parse-nodes that need the 'nextChar' and prevChar to do proper spacing.
@@ -700,7 +699,11 @@ public class ParentParseNode extends AbstractParseNode {
    }
 
    public boolean isGenerated() {
-      return generated;
+      return getFlag(GENERATED_FLAG);
+   }
+
+   public void setGenerated(boolean val) {
+      setFlag(GENERATED_FLAG, val);
    }
 
    public int length() {
@@ -1002,7 +1005,7 @@ public class ParentParseNode extends AbstractParseNode {
    }
 
    public boolean isGeneratedTree() {
-      if (generated)
+      if (isGenerated())
          return true;
       if (value instanceof ISemanticNode && !((ISemanticNode) value).isParseNodeValid())
          return true;
@@ -1022,10 +1025,10 @@ public class ParentParseNode extends AbstractParseNode {
          System.out.println("*** Invalid start index found");
       if (!updateNewIndex) {
          startIndex = ix;
-         newStartIndex = -1;
+         setNewStartIndex(-1);
       }
       else {
-         newStartIndex = ix;
+         setNewStartIndex(ix);
       }
 
       if (children != null) {
@@ -296,10 +296,10 @@ public class ParseNode extends AbstractParseNode {
          System.err.println("*** Invalid start index found");
       if (!updateNewIndex) {
          startIndex = ix;
-         newStartIndex = -1;
+         setNewStartIndex(-1);
       }
       else {
-         newStartIndex = ix;
+         setNewStartIndex(ix);
       }
       if (value != null) {
          if (value instanceof IParseNode) {
@@ -381,7 +381,7 @@ public class ParseNode extends AbstractParseNode {
    }
 
    public boolean isErrorNode() {
-      return errorNode || (value instanceof IParseNode && ((IParseNode) value).isErrorNode());
+      return getFlag(ERROR_NODE_FLAG) || (value instanceof IParseNode && ((IParseNode) value).isErrorNode());
    }
 
    @Override
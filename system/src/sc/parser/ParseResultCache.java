@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2021.  Jeffrey Vroom. All Rights Reserved.
+ */
+
+package sc.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * The packrat memo table used by Parser for parselets with cacheResults set.  It maps a (start position, parselet) pair to the
+ * result of parsing that parselet at that position and the index where that result ends.
+ * <p>
+ * Entries are stored in parallel arrays using open addressing with linear probing so there's no boxing of the position and no
+ * node allocated per entry.  The key packs the start position and the parselet's id into a long.  Parselets without an id
+ * share the same key bits so we also compare the parselet itself.
+ * </p>
+ * <p>
+ * Memory is bounded by maxEntries.  When the table fills up, entries that start more than evictWindow characters behind the
+ * current parse position are dropped first since the parser rarely backtracks that far.  If that's not enough, the table is
+ * cleared.  The parser also calls removeBefore when characters are accepted and the input buffer slides forward, since those
+ * positions can never be parsed again.  Those entries are dropped the next time the table fills up, before it's grown, rather than
+ * scanning the table on every shift.  Dropping an entry only costs a reparse of that parselet.
+ * </p>
+ */
+public class ParseResultCache {
+   public final static int DEFAULT_MAX_ENTRIES = 1 << 20;
+   public final static int DEFAULT_EVICT_WINDOW = 4096;
+
+   private final static long EMPTY = -1L;
+   private final static int INITIAL_CAPACITY = 256;
+
+   public int maxEntries = DEFAULT_MAX_ENTRIES;
+   public int evictWindow = DEFAULT_EVICT_WINDOW;
+
+   private long[] keys;
+   private Parselet[] parselets;
+   private Object[] values;
+   private int[] endIxs;
+   private int[] hitCounts;
+
+   private int size;
+   private int mask;
+   /** The smallest start position of any entry in the table */
+   private int minStartIx;
+   /** Set by removeBefore - entries that start before this position will never be used again */
+   private int liveStartIx = Integer.MIN_VALUE;
+
+   // Stats - printed by Parser.getCacheStats when ENABLE_STATS is set
+   public int numHits, numMisses, numPuts, numEvicted;
+
+   public ParseResultCache() {
+      init(INITIAL_CAPACITY);
+   }
+
+   private void init(int capacity) {
+      keys = new long[capacity];
+      Arrays.fill(keys, EMPTY);
+      parselets = new Parselet[capacity];
+      values = new Object[capacity];
+      endIxs = new int[capacity];
+      hitCounts = new int[capacity];
+      mask = capacity - 1;
+      size = 0;
+      minStartIx = Integer.MAX_VALUE;
+   }
+
+   private static long toKey(int startIx, Parselet parselet) {
+      return ((long) startIx << 32) | (parselet.id & 0xffffffffL);
+   }
+
+   private static int startIndexOf(long key) {
+      return (int) (key >>> 32);
+   }
+
+   private static int hash(long key) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+   }
+
+   /** Returns the slot for the cached result of parselet at startIx, or -1 if there is none */
+   public int find(int startIx, Parselet parselet) {
+      long key = toKey(startIx, parselet);
+      for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+         long k = keys[i];
+         if (k == EMPTY) {
+            numMisses++;
+            return -1;
+         }
+         if (k == key && parselets[i] == parselet) {
+            numHits++;
+            hitCounts[i]++;
+            return i;
+         }
+      }
+   }
+
+   public Object getValue(int slot) {
+      return values[slot];
+   }
+
+   public int getEndIndex(int slot) {
+      return endIxs[slot];
+   }
+
+   /** Stores the result, replacing any previous result for the same parselet and position.  endIx is also the parser's current position. */
+   public void put(int startIx, Parselet parselet, Object value, int endIx) {
+      if ((size + 1) * 2 > keys.length)
+         makeRoom(endIx);
+      long key = toKey(startIx, parselet);
+      int i;
+      for (i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+         if (keys[i] == key && parselets[i] == parselet)
+            break;
+      }
+      if (keys[i] == EMPTY) {
+         keys[i] = key;
+         parselets[i] = parselet;
+         hitCounts[i] = 0;
+         size++;
+         if (startIx < minStartIx)
+            minStartIx = startIx;
+      }
+      values[i] = value;
+      endIxs[i] = endIx;
+      numPuts++;
+   }
+
+   private void makeRoom(int currentIx) {
+      // Entries passed to removeBefore go first - if that leaves the table no more than a quarter full, there's no need to grow it
+      if (minStartIx < liveStartIx) {
+         rehash(keys.length, liveStartIx);
+         if ((size + 1) * 4 <= keys.length)
+            return;
+      }
+      // The table is kept at most half full so it can grow until it holds maxEntries
+      if (keys.length <= maxEntries) {
+         rehash(keys.length * 2, liveStartIx);
+         return;
+      }
+      // At the size limit - drop everything well behind the current position
+      rehash(keys.length, Math.max(liveStartIx, currentIx - evictWindow));
+      if ((size + 1) * 2 > keys.length)
+         clear();
+   }
+
+   /**
+    * Marks the entries for positions before startIx as unused - called when the parser will no longer go back before that position.
+    * They are dropped the next time the table needs room.
+    */
+   public void removeBefore(int startIx) {
+      if (startIx > liveStartIx)
+         liveStartIx = startIx;
+   }
+
+   private void rehash(int newCapacity, int minStartIx) {
+      long[] oldKeys = keys;
+      Parselet[] oldParselets = parselets;
+      Object[] oldValues = values;
+      int[] oldEndIxs = endIxs;
+      int[] oldHitCounts = hitCounts;
+      int oldSize = size;
+
+      init(newCapacity);
+      for (int j = 0; j < oldKeys.length; j++) {
+         long key = oldKeys[j];
+         if (key == EMPTY || startIndexOf(key) < minStartIx)
+            continue;
+         int i = hash(key) & mask;
+         while (keys[i] != EMPTY)
+            i = (i + 1) & mask;
+         keys[i] = key;
+         parselets[i] = oldParselets[j];
+         values[i] = oldValues[j];
+         endIxs[i] = oldEndIxs[j];
+         hitCounts[i] = oldHitCounts[j];
+         size++;
+         int startIx = startIndexOf(key);
+         if (startIx < minStartIx)
+            minStartIx = startIx;
+      }
+      numEvicted += oldSize - size;
+   }
+
+   public void clear() {
+      numEvicted += size;
+      init(INITIAL_CAPACITY);
+   }
+
+   public int size() {
+      return size;
+   }
+
+   public String getStats() {
+      ArrayList<String> res = new ArrayList<String>();
+      for (int i = 0; i < keys.length; i++) {
+         if (keys[i] != EMPTY && hitCounts[i] > 1)
+            res.add(hitCounts[i] + " : " + startIndexOf(keys[i]) + ": " + parselets[i]);
+      }
+      Collections.sort(res);
+      StringBuilder out = new StringBuilder();
+      out.append("entries: " + size + " capacity: " + keys.length + " hits: " + numHits + " misses: " + numMisses + " puts: " + numPuts + " evicted: " + numEvicted + "\n");
+      for (String str:res) {
+         out.append(str);
+         out.append("\n");
+      }
+      return out.toString();
+   }
+}
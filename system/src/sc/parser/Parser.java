@@ -87,7 +87,7 @@ public class Parser implements IString {
    // When this is true, we do not produce a semantic value - just perform the match part.
    public boolean matchOnly = false;
 
-   HashMap<Integer,ParseletState> resultCache = null;
+   ParseResultCache resultCache = null;
 
    public Parser(Language l, char[] inputArray) {
       language = l;
@@ -113,6 +113,9 @@ public class Parser implements IString {
             System.arraycopy(inputBuffer, numToShift, inputBuffer, 0, bufSize - numToShift);
          currentBufferPos += numToShift;
          bufSize -= numToShift;
+         // Can't parse anything before the buffer again so those results are no longer useful
+         if (resultCache != null)
+            resultCache.removeBefore(currentBufferPos);
       }
       if (inputBuffer.length == bufSize || eof)
          return;
@@ -345,14 +348,6 @@ public class Parser implements IString {
       ParsedState next;
    }
 
-   private ParseletState findMatchingState(ParseletState state, Parselet parselet) {
-      if (state.parselet == parselet)
-         return state;
-      else if (state.next != null)
-         return findMatchingState(state.next, parselet);
-      return null;
-   }
-
    /**
     * This method is called by recognizers which are nested.
     * it will do all of the work necessary before/after calling the recognizer.recognize method
@@ -368,18 +363,14 @@ public class Parser implements IString {
       if (parselet.cacheResults || ENABLE_STATS) {
          doCache = true;
          if (resultCache != null) {
-            ParseletState state = resultCache.get(currentIndex);
-            if (state != null) {
-               ParseletState res = findMatchingState(state, parselet);
-               if (res != null) {
-                  if (parselet.cacheResults) {
-                     if (parselet.accept(semanticContext, res.value, currentIndex, res.endIx) == null) {
-                        currentIndex = res.endIx;
-                        parselet.updateCachedResult(res.value);
-                        return res.value;
-                     }
-                  }
-                  res.cacheHits++;
+            int slot = resultCache.find(currentIndex, parselet);
+            if (slot != -1 && parselet.cacheResults) {
+               Object cachedValue = resultCache.getValue(slot);
+               int cachedEndIx = resultCache.getEndIndex(slot);
+               if (parselet.accept(semanticContext, cachedValue, currentIndex, cachedEndIx) == null) {
+                  currentIndex = cachedEndIx;
+                  parselet.updateCachedResult(cachedValue);
+                  return cachedValue;
                }
             }
          }
@@ -414,22 +405,10 @@ public class Parser implements IString {
 
          if (doCache) {
             if (resultCache == null)
-               resultCache = new HashMap<Integer,ParseletState>();
-            ParseletState newState = new ParseletState(parselet, value, currentIndex);
-            ParseletState currentState;
-            if (ENABLE_STATS) {
-               currentState = resultCache.get(lastStartIndex);
-               if (currentState != null)
-                  currentState = findMatchingState(currentState, parselet);
-            }
-            else
-               currentState = null;
-            if (currentState == null) {
-               currentState = resultCache.put(lastStartIndex, newState);
-               if (currentState != null) {
-                  newState.next = currentState;
-               }
-            }
+               resultCache = new ParseResultCache();
+            // When collecting stats, keep the first result so its hit count is preserved
+            if (!ENABLE_STATS || resultCache.find(lastStartIndex, parselet) == -1)
+               resultCache.put(lastStartIndex, parselet, value, currentIndex);
          }
 
          totalParseCt++;
@@ -488,18 +467,14 @@ public class Parser implements IString {
       if (parselet.cacheResults || ENABLE_STATS) {
          doCache = true;
          if (resultCache != null) {
-            ParseletState state = resultCache.get(currentIndex);
-            if (state != null) {
-               ParseletState res = findMatchingState(state, parselet);
-               if (res != null) {
-                  if (parselet.cacheResults) {
-                     if (parselet.accept(semanticContext, res.value, currentIndex, res.endIx) == null) {
-                        currentIndex = res.endIx;
-                        parselet.updateCachedResult(res.value);
-                        return res.value;
-                     }
-                  }
-                  res.cacheHits++;
+            int slot = resultCache.find(currentIndex, parselet);
+            if (slot != -1 && parselet.cacheResults) {
+               Object cachedValue = resultCache.getValue(slot);
+               int cachedEndIx = resultCache.getEndIndex(slot);
+               if (parselet.accept(semanticContext, cachedValue, currentIndex, cachedEndIx) == null) {
+                  currentIndex = cachedEndIx;
+                  parselet.updateCachedResult(cachedValue);
+                  return cachedValue;
                }
             }
          }
@@ -519,22 +494,10 @@ public class Parser implements IString {
 
          if (doCache) {
             if (resultCache == null)
-               resultCache = new HashMap<Integer,ParseletState>();
-            ParseletState newState = new ParseletState(parselet, value, currentIndex);
-            ParseletState currentState;
-            if (ENABLE_STATS) {
-               currentState = resultCache.get(lastStartIndex);
-               if (currentState != null)
-                  currentState = findMatchingState(currentState, parselet);
-            }
-            else
-               currentState = null;
-            if (currentState == null) {
-               currentState = resultCache.put(lastStartIndex, newState);
-               if (currentState != null) {
-                  newState.next = currentState;
-               }
-            }
+               resultCache = new ParseResultCache();
+            // When collecting stats, keep the first result so its hit count is preserved
+            if (!ENABLE_STATS || resultCache.find(lastStartIndex, parselet) == -1)
+               resultCache.put(lastStartIndex, parselet, value, currentIndex);
          }
 
          totalParseCt++;
@@ -881,30 +844,6 @@ public class Parser implements IString {
       }
    }
 
-   private static class ParseletState {
-      ParseletState(Parselet p, Object v, int endIx) {
-         parselet = p;
-         value = v;
-         this.endIx = endIx;
-      }
-
-      Object value;
-      Parselet parselet;
-      int endIx;
-
-      // ifdef ENABLE_STATS
-      int cacheHits;
-
-      // Used for the states we put into the resultCache.  We store a linked list
-      // of the states... this is a way to implement what hopefully is a small set of
-      // parselet states for each position in the file.
-      ParseletState next;
-
-      public String toString() {
-         return parselet.toString() + " ends at: " + endIx + (next == null ? "" : next.toString());
-      }
-   }
-
    // TODO: ifdef ENABLE_STATS
 
    public static String getStatInfo(Parselet startParselet) {
@@ -975,22 +914,9 @@ public class Parser implements IString {
    }
 
    public String getCacheStats() {
-      ArrayList<String> res = new ArrayList<String>();
-      for (Map.Entry<Integer,ParseletState> ent:resultCache.entrySet()) {
-         Integer pos = ent.getKey();
-         ParseletState val = ent.getValue();
-
-         if (val.cacheHits > 1) {
-            res.add(val.cacheHits + " : " + pos + ": " + val.parselet);
-         }
-      }
-      Collections.sort(res);
-      StringBuilder out = new StringBuilder();
-      for (String str:res) {
-         out.append(str);
-         out.append("\n");
-      }
-      return out.toString();
+      if (resultCache == null)
+         return "<no cached results>";
+      return resultCache.getStats();
    }
 
    public void clearForSuccess() {
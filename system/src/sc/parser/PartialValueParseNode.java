@@ -15,7 +15,7 @@ public class PartialValueParseNode extends ParentParseNode {
       newPN.children = orig.children;
       newPN.startIndex = orig.startIndex;
       newPN.value = orig.value;
-      newPN.generated = orig.generated;
+      newPN.setGenerated(orig.isGenerated());
       newPN.parselet = orig.parselet;
       newPN.unparsedLen = unparsedLen;
       return newPN;
@@ -1891,6 +1891,11 @@ public class Sequence extends NestedParselet  {
       if ((customError = accept(parser.semanticContext, value, startIndex, parser.currentIndex)) != null)
          return parseError(parser, customError, value, this);
 
+      // The children grow one match at a time - drop the extra capacity since the parse tree is retained with the model.  Lookahead
+      // and matchOnly results are thrown away so they are not worth the copy.
+      if (value != null && value.children != null && !lookahead && !parser.matchOnly)
+         value.children.trimToSize();
+
       if (lookahead)
          parser.changeCurrentIndex(startIndex);
       return value;